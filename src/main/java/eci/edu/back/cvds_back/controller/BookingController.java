@@ -2,13 +2,25 @@ package eci.edu.back.cvds_back.controller;
 
 import eci.edu.back.cvds_back.config.BookingServiceException;
 import eci.edu.back.cvds_back.dto.BookingDTO;
+import eci.edu.back.cvds_back.dto.BookingPageDTO;
 import eci.edu.back.cvds_back.model.Booking;
 import eci.edu.back.cvds_back.service.interfaces.BookingService;
-import eci.edu.back.cvds_back.util.JwtUtil;
+import eci.edu.back.cvds_back.util.JwtAuthentication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * BookingController is a REST controller that provides endpoints for managing
@@ -17,7 +29,10 @@ import java.util.List;
  * 
  * Endpoints:
  * - GET /booking-service/bookings: Retrieves all bookings.
- * - GET /booking-service/my-reservations: Retrieves bookings made by the authenticated user.
+ * - GET /booking-service/bookings?limit=N[&cursor=C]: Retrieves a page of bookings (keyset pagination).
+ * - GET /booking-service/bookings (Accept: application/x-ndjson): Streams all bookings, one JSON document per line.
+ * - GET /booking-service/my-reservations: Retrieves bookings made by the authenticated user,
+ *   optionally filtered by date range (from, to) and paginated (page, size).
  * - GET /booking-service/bookings/{bookingId}: Retrieves a specific booking by its ID.
  * - POST /booking-service/bookings: Creates a new booking.
  * - DELETE /booking-service/bookings/{bookingId}: Deletes a booking by its ID.
@@ -25,12 +40,14 @@ import java.util.List;
  * - PUT /booking-service/bookings/cancel/{bookingId}: Cancels a reservation for a booking.
  * 
  * Authorization:
- * - Some endpoints require an Authorization header with a Bearer token to
- *   authenticate the user and extract their user ID.
+ * - my-reservations, make and cancel require an Authorization header with a Bearer access
+ *   token (SecurityConfig answers 401 without one). The token is verified once by the
+ *   JwtRequestFilter, and the user ID is read from the {@link JwtAuthentication} it stores;
+ *   anonymous requests never reach these methods with a made-up user.
  * 
  * Dependencies:
  * - BookingService: Service layer for booking-related operations.
- * - JwtUtil: Utility for extracting user information from JWT tokens.
+ * - ObjectMapper: Serializes the bookings written to the NDJSON stream.
  * 
  * Cross-Origin Resource Sharing (CORS):
  * - Allows access from any origin using the @CrossOrigin annotation.
@@ -46,7 +63,9 @@ public class BookingController {
     private BookingService bookingService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private ObjectMapper objectMapper;
+
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
 
     /**
      * Retrieves a list of all bookings.
@@ -59,24 +78,62 @@ public class BookingController {
     }
 
     /**
-     * Retrieves a list of bookings made by the currently authenticated user.
+     * Retrieves a page of bookings sorted by date, time and ID.
      *
-     * @param authHeader The Authorization header containing the Bearer token for authentication.
-     * @return A list of Booking objects associated with the authenticated user.
-     * 
-     * @throws IllegalArgumentException if the Authorization header is missing or invalid.
+     * @param limit The maximum number of bookings in the page (capped at 500).
+     * @param cursor The {@code next} cursor of the previous page, or absent for the first page.
+     * @return The bookings of the page and the cursor of the next one.
+     * @throws BookingServiceException If the cursor is not valid.
      */
-    @GetMapping("/my-reservations")
-    public List<Booking> myReservations(@RequestHeader("Authorization") String authHeader) {
-        String token = null;
-        String userId = null;
+    @GetMapping(value = "/bookings", params = "limit")
+    public BookingPageDTO bookingsPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor) throws BookingServiceException {
+        return bookingService.getBookingsPage(cursor, limit);
+    }
 
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            userId = jwtUtil.extractUserId(token);
-        }
+    /**
+     * Streams all bookings as newline-delimited JSON when the client accepts
+     * {@code application/x-ndjson}. Bookings are written as they are read from the
+     * database cursor, so memory per request does not depend on the collection size.
+     *
+     * @return A streaming response with one booking per line.
+     */
+    @GetMapping(value = "/bookings", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBookings() {
+        ObjectWriter writer = objectMapper.writerFor(Booking.class);
+        StreamingResponseBody body = out -> {
+            try (Stream<Booking> bookings = bookingService.streamAllBookings()) {
+                Iterator<Booking> iterator = bookings.iterator();
+                while (iterator.hasNext()) {
+                    out.write(writer.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
+    }
 
-        return bookingService.getBookingsByReservedBy(userId);
+    /**
+     * Retrieves a list of bookings made by the currently authenticated user.
+     *
+     * @param authentication The authentication of the verified token, taken from the SecurityContext.
+     * @param from Optional first booking date to include (ISO format, e.g. 2025-03-01).
+     * @param to Optional last booking date to include (ISO format).
+     * @param page Optional zero-based page number.
+     * @param size Optional page size, capped at 500.
+     * @return A list of Booking objects associated with the authenticated user, or 400 if
+     *         the page is negative or the size is less than 1.
+     * @throws BookingServiceException If the request is not authenticated.
+     */
+    @GetMapping("/my-reservations")
+    public List<Booking> myReservations(
+            JwtAuthentication authentication,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) throws BookingServiceException {
+        return bookingService.getBookingsByReservedBy(userId(authentication), from, to, page, size);
     }
 
     /**
@@ -121,62 +178,69 @@ public class BookingController {
      * Handles the HTTP PUT request to make a booking reservation.
      *
      * @param bookingId The ID of the booking to be reserved.
-     * @param authHeader The Authorization header containing the Bearer token for authentication.
+     * @param authentication The authentication of the verified token, taken from the SecurityContext.
      * @return The updated Booking object after the reservation is made.
      * @throws BookingServiceException If authentication fails or the reservation cannot be completed.
      *
-     * This method extracts the user ID from the provided Bearer token in the Authorization header.
-     * If the token is invalid or missing, an exception is thrown. The user ID is then used to
+     * The user ID comes from the token already verified by the JwtRequestFilter.
+     * If the request is not authenticated, an exception is thrown. The user ID is then used to
      * associate the reservation with the authenticated user by calling the booking service.
      */
     @PutMapping("/bookings/make/{bookingId}")
     public Booking makeBookingReservation(
             @PathVariable String bookingId,
-            @RequestHeader("Authorization") String authHeader) throws BookingServiceException {
-
-        String token = null;
-        String userId = null;
-
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            userId = jwtUtil.extractUserId(token);
-        }
-
-        // Si no hay token o no se pudo extraer el userId, lanzar excepción
-        if (userId == null) {
-            throw new BookingServiceException("Se requiere autenticación para realizar una reserva");
-        }
+            JwtAuthentication authentication) throws BookingServiceException {
 
         // Llamar al servicio con el userId para que lo asocie al hacer la reserva
-        return bookingService.makeReservation(bookingId, userId);
+        return bookingService.makeReservation(bookingId, userId(authentication));
     }
 
     /**
      * Cancels a booking reservation based on the provided booking ID.
      * 
      * @param bookingId The ID of the booking to be canceled.
-     * @param authHeader The authorization header containing the Bearer token.
+     * @param authentication The authentication of the verified token, taken from the SecurityContext.
      * @return The updated Booking object after cancellation.
      * @throws BookingServiceException If an error occurs during the cancellation process.
      * 
-     * This method extracts the user ID from the Bearer token in the authorization
-     * header and ensures that the cancellation is performed either by the user who
+     * This method uses the user ID of the token already verified by the JwtRequestFilter
+     * and ensures that the cancellation is performed either by the user who
      * made the reservation or by an administrator.
      */
     @PutMapping("/bookings/cancel/{bookingId}")
     public Booking cancelBookingReservation(
             @PathVariable String bookingId,
-            @RequestHeader("Authorization") String authHeader) throws BookingServiceException {
+            JwtAuthentication authentication) throws BookingServiceException {
 
-        String token = null;
-        String userId = null;
+        // Al cancelar, verificamos que sea el mismo usuario que hizo la reserva o un admin
+        return bookingService.cancelReservation(bookingId, userId(authentication));
+    }
 
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            userId = jwtUtil.extractUserId(token);
-        }
+    /**
+     * Answers invalid paging parameters with 400 Bad Request instead of 500.
+     *
+     * @param e The validation error.
+     * @return A 400 ResponseEntity containing a map with the error message.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidRequest(IllegalArgumentException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(response);
+    }
 
-        // Al cancelar, verificamos que sea el mismo usuario que hizo la reserva o un admin
-        return bookingService.cancelReservation(bookingId, userId);
+    /**
+     * Returns the user ID of a verified token. Spring resolves the parameter only for a
+     * {@link JwtAuthentication}, so an anonymous request arrives here as null.
+     *
+     * @param authentication The authentication of the request, or null.
+     * @return The user ID of the token.
+     * @throws BookingServiceException If the request is not authenticated.
+     */
+    private static String userId(JwtAuthentication authentication) throws BookingServiceException {
+        if (authentication == null || authentication.getPrincipal() == null) {
+            throw new BookingServiceException("Se requiere autenticación para realizar una reserva");
+        }
+        return authentication.getPrincipal();
     }
 }
\ No newline at end of file
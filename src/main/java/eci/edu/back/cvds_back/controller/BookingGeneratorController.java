@@ -1,14 +1,28 @@
 package eci.edu.back.cvds_back.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eci.edu.back.cvds_back.dto.GenerationJobDTO;
+import eci.edu.back.cvds_back.dto.GenerationRequestDTO;
+import eci.edu.back.cvds_back.dto.GenerationSummaryDTO;
 import eci.edu.back.cvds_back.model.Booking;
 import eci.edu.back.cvds_back.service.interfaces.BookingGeneratorService;
+import eci.edu.back.cvds_back.service.interfaces.GenerationJobService;
+import eci.edu.back.cvds_back.service.interfaces.GenerationProgress;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 
 /**
@@ -18,10 +32,19 @@ import java.util.Map;
  *
  * Endpoints:
  * - POST /generate-service/generate-bookings: Generates a specified number of random bookings.
- * - POST /generate-service/generate-exact-bookings: Generates an exact number of bookings.
- * - DELETE /generate-service/clear-all-bookings: Deletes all bookings from the system.
+ * - POST /generate-service/generate-exact-bookings: Generates an exact number of bookings. With
+ *   {@code Accept: application/x-ndjson}, streams the ID of each created booking as it is stored.
+ * - DELETE /generate-service/clear-all-bookings: Deletes all bookings from the system, optionally
+ *   only those of a classroom, a date range or generated IDs.
+ * - POST /generate-service/load-dataset: Stores the bookings of a generated NDJSON dataset.
+ * - POST /generate-service/jobs/generate: Starts a background generation job and returns its ID.
+ * - POST /generate-service/jobs/clear: Starts a background clearing job and returns its ID.
+ * - GET /generate-service/jobs/{jobId}: Returns the progress of a job.
+ * - DELETE /generate-service/jobs/{jobId}: Cancels a job.
  *
  * This controller uses the BookingGeneratorService to perform the underlying operations.
+ * Invalid parameters (for instance, a horizon or slot space over the limits) are answered
+ * with 400 Bad Request.
  *
  * Annotations:
  * - @RestController: Indicates that this class is a REST controller.
@@ -30,6 +53,8 @@ import java.util.Map;
  *
  * Dependencies:
  * - BookingGeneratorService: A service used to handle booking generation and deletion logic.
+ * - GenerationJobService: A service that runs generation and deletion as background jobs.
+ * - ObjectMapper: Serializes the lines of the NDJSON generation stream.
  */
 @RestController
 @RequestMapping("/generate-service")
@@ -39,59 +64,161 @@ public class BookingGeneratorController {
     @Autowired
     private BookingGeneratorService bookingGeneratorService;
 
+    @Autowired
+    private GenerationJobService generationJobService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     /**
      * Endpoint to generate a specified number of random bookings.
      *
      * @param min The minimum number of bookings to generate. Defaults to 100 if not provided.
      * @param max The maximum number of bookings to generate. Defaults to 1000 if not provided.
-     * @return A ResponseEntity containing a map with a success message and the total number of bookings generated.
+     * @return A ResponseEntity containing a map with a success message, the total number of bookings generated
+     *         and the summary of the run.
      */
     @PostMapping("/generate-bookings")
     public ResponseEntity<Map<String, Object>> generateBookings(
             @RequestParam(defaultValue = "100") int min,
             @RequestParam(defaultValue = "1000") int max) {
 
-        List<Booking> generatedBookings = bookingGeneratorService.generateRandomBookings(min, max);
+        GenerationSummaryDTO summary = bookingGeneratorService.generateRandomBookings(min, max);
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("message", "Successfully generated " + generatedBookings.size() + " bookings");
-        response.put("totalGenerated", generatedBookings.size());
-
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(generationResponse(summary));
     }
 
     /**
      * Endpoint to generate a specified number of exact bookings.
      *
      * @param count The number of bookings to generate. Defaults to 100 if not provided.
-     * @return A ResponseEntity containing a map with a success message and the total number of bookings generated.
+     * @param parallelism The number of parallel workers, each owning a subset of the classrooms. Defaults to 1.
+     * @param horizonDays The number of days from today to generate, if different from the configured horizon.
+     * @param hours The bookable hours of each day (e.g. {@code hours=7,8,9}), if different from the configured ones.
+     * @param occupancy The target ratio of booked slots (0 to 1), used instead of count if provided.
+     * @param seed The seed of every random choice, for reproducible runs. Random if not provided.
+     * @param baseDate The first day of the slot space (ISO format). Defaults to today.
+     * @param dataset Writes the bookings to this NDJSON dataset instead of the database, if provided.
+     * @return A ResponseEntity containing a map with a success message, the total number of bookings generated
+     *         and the summary of the run.
      */
     @PostMapping("/generate-exact-bookings")
     public ResponseEntity<Map<String, Object>> generateExactBookings(
-            @RequestParam(defaultValue = "100") int count) {
+            @RequestParam(defaultValue = "100") int count,
+            @RequestParam(defaultValue = "1") int parallelism,
+            @RequestParam(required = false) Integer horizonDays,
+            @RequestParam(required = false) List<Integer> hours,
+            @RequestParam(required = false) Double occupancy,
+            @RequestParam(required = false) Long seed,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate baseDate,
+            @RequestParam(required = false) String dataset) {
 
-        List<Booking> generatedBookings = bookingGeneratorService.generateExactBookings(count);
+        GenerationSummaryDTO summary = bookingGeneratorService.generateBookings(
+                generationRequest(count, parallelism, horizonDays, hours, occupancy, seed, baseDate, dataset));
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("message", "Successfully generated " + generatedBookings.size() + " bookings");
-        response.put("totalGenerated", generatedBookings.size());
+        return ResponseEntity.ok(generationResponse(summary));
+    }
 
-        return ResponseEntity.ok(response);
+    /**
+     * Generates an exact number of bookings, streaming newline-delimited JSON when the client
+     * accepts {@code application/x-ndjson}. Each stored booking is written as a
+     * {@code {"bookingId": ...}} line as soon as its batch is stored, and the last line is
+     * {@code {"summary": ...}}. Nothing but the batch in flight is held in memory, and the run
+     * stops if the client disconnects.
+     *
+     * Parameters are the same as {@link #generateExactBookings}. They are validated before
+     * the response starts, so invalid values are still answered with 400.
+     *
+     * @return A streaming response with one line per created booking, then the summary.
+     * @throws IllegalArgumentException If the horizon, hours, occupancy or dataset name are not valid.
+     */
+    @PostMapping(value = "/generate-exact-bookings", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamExactBookings(
+            @RequestParam(defaultValue = "100") int count,
+            @RequestParam(defaultValue = "1") int parallelism,
+            @RequestParam(required = false) Integer horizonDays,
+            @RequestParam(required = false) List<Integer> hours,
+            @RequestParam(required = false) Double occupancy,
+            @RequestParam(required = false) Long seed,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate baseDate,
+            @RequestParam(required = false) String dataset) {
+        GenerationRequestDTO request = generationRequest(count, parallelism, horizonDays, hours, occupancy, seed, baseDate, dataset);
+        // Una vez enviado el 200 ya no se puede responder 400: se valida antes de empezar a escribir
+        bookingGeneratorService.validate(request);
+        StreamingResponseBody body = out -> {
+            IdStream ids = new IdStream(out);
+            GenerationSummaryDTO summary = bookingGeneratorService.generateBookings(request, ids);
+            if (ids.failure != null) throw ids.failure;
+            out.write(objectMapper.writeValueAsBytes(Map.of("summary", summary)));
+            out.write('\n');
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
+    }
+
+    /**
+     * Progress sink that writes the ID of every stored booking to a response stream.
+     * Parallel workers report concurrently, so writes are serialized; a failed write
+     * (the client went away) cancels the run.
+     */
+    private class IdStream implements GenerationProgress {
+        private final OutputStream out;
+        private volatile IOException failure;
+
+        private IdStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void target(int target) {
+        }
+
+        @Override
+        public void attempted(int count) {
+        }
+
+        @Override
+        public synchronized void stored(List<Booking> stored, int rejected) {
+            if (failure != null) return;
+            try {
+                for (Booking booking : stored) {
+                    out.write(objectMapper.writeValueAsBytes(Map.of("bookingId", booking.getBookingId())));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return failure != null;
+        }
     }
 
     /**
      * Deletes all bookings from the system.
      *
      * This endpoint is mapped to the DELETE HTTP method at the path "/clear-all-bookings".
-     * It invokes the service to clear all bookings and returns a response containing
-     * the number of bookings that were successfully removed.
+     * It invokes the service to clear the bookings matching the optional filters and returns
+     * a response containing the number of bookings that were removed.
      *
+     * @param classroom     Only clear bookings of this classroom, if provided.
+     * @param from          Only clear bookings on or after this date (ISO format), if provided.
+     * @param to            Only clear bookings on or before this date (ISO format), if provided.
+     * @param generatedOnly Only clear generated bookings (IDs of the form {@code lab<n>}). Defaults to false.
      * @return ResponseEntity containing a map with a success message and the total number
      *         of bookings removed.
      */
     @DeleteMapping("/clear-all-bookings")
-    public ResponseEntity<Map<String, Object>> clearAllBookings() {
-        int count = bookingGeneratorService.clearAllBookings();
+    public ResponseEntity<Map<String, Object>> clearAllBookings(
+            @RequestParam(required = false) String classroom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean generatedOnly) {
+        int count = bookingGeneratorService.clearBookings(classroom, from, to, generatedOnly);
 
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Successfully cleared " + count + " bookings");
@@ -99,4 +226,138 @@ public class BookingGeneratorController {
 
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Stores the bookings of an NDJSON dataset written by a previous generation run.
+     *
+     * @param name The name of the dataset.
+     * @return A ResponseEntity containing a map with a success message and the total number of bookings loaded.
+     */
+    @PostMapping("/load-dataset")
+    public ResponseEntity<Map<String, Object>> loadDataset(@RequestParam String name) {
+        int count = bookingGeneratorService.loadDataset(name);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Successfully loaded " + count + " bookings");
+        response.put("totalLoaded", count);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Starts a background job that generates an exact number of bookings.
+     *
+     * @param count The number of bookings to generate. Defaults to 100 if not provided.
+     * @param parallelism The number of parallel workers. Defaults to 1.
+     * @param horizonDays The number of days from today to generate, if different from the configured horizon.
+     * @param hours The bookable hours of each day, if different from the configured ones.
+     * @param occupancy The target ratio of booked slots (0 to 1), used instead of count if provided.
+     * @param seed The seed of every random choice, for reproducible runs. Random if not provided.
+     * @param baseDate The first day of the slot space (ISO format). Defaults to today.
+     * @param dataset Writes the bookings to this NDJSON dataset instead of the database, if provided.
+     * @return A 202 ResponseEntity with the new job, whose ID is used to poll its progress,
+     *         or 503 if too many jobs are already queued.
+     */
+    @PostMapping("/jobs/generate")
+    public ResponseEntity<GenerationJobDTO> startGenerationJob(
+            @RequestParam(defaultValue = "100") int count,
+            @RequestParam(defaultValue = "1") int parallelism,
+            @RequestParam(required = false) Integer horizonDays,
+            @RequestParam(required = false) List<Integer> hours,
+            @RequestParam(required = false) Double occupancy,
+            @RequestParam(required = false) Long seed,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate baseDate,
+            @RequestParam(required = false) String dataset) {
+        return ResponseEntity.accepted().body(generationJobService.startGeneration(
+                generationRequest(count, parallelism, horizonDays, hours, occupancy, seed, baseDate, dataset)));
+    }
+
+    /**
+     * Starts a background job that clears the bookings matching the optional filters.
+     *
+     * @param classroom     Only clear bookings of this classroom, if provided.
+     * @param from          Only clear bookings on or after this date (ISO format), if provided.
+     * @param to            Only clear bookings on or before this date (ISO format), if provided.
+     * @param generatedOnly Only clear generated bookings. Defaults to false.
+     * @return A 202 ResponseEntity with the new job, or 503 if too many jobs are already queued.
+     */
+    @PostMapping("/jobs/clear")
+    public ResponseEntity<GenerationJobDTO> startClearJob(
+            @RequestParam(required = false) String classroom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean generatedOnly) {
+        return ResponseEntity.accepted().body(generationJobService.startClear(classroom, from, to, generatedOnly));
+    }
+
+    /**
+     * Returns the progress of a job: status, generated, attempted and conflicting bookings,
+     * elapsed time and throughput.
+     *
+     * @param jobId The job ID.
+     * @return The job, or 404 if no such job is known.
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<GenerationJobDTO> getJob(@PathVariable String jobId) {
+        GenerationJobDTO job = generationJobService.getJob(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    /**
+     * Cancels a job. A running generation stops after the batch it is writing.
+     *
+     * @param jobId The job ID.
+     * @return The job, or 404 if no such job is known.
+     */
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<GenerationJobDTO> cancelJob(@PathVariable String jobId) {
+        GenerationJobDTO job = generationJobService.cancelJob(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    /**
+     * Answers invalid generation parameters with 400 Bad Request instead of 500.
+     *
+     * @param e The validation error.
+     * @return A 400 ResponseEntity containing a map with the error message.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidRequest(IllegalArgumentException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    /**
+     * Answers a job refused because the job queue is full with 503 Service Unavailable.
+     *
+     * @param e The rejection.
+     * @return A 503 ResponseEntity containing a map with the error message.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleRejectedJob(RejectedExecutionException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
+    private GenerationRequestDTO generationRequest(int count, int parallelism, Integer horizonDays, List<Integer> hours,
+                                                   Double occupancy, Long seed, LocalDate baseDate, String dataset) {
+        GenerationRequestDTO request = new GenerationRequestDTO(count, parallelism);
+        request.setHorizonDays(horizonDays);
+        request.setHours(hours);
+        request.setOccupancy(occupancy);
+        request.setSeed(seed);
+        request.setBaseDate(baseDate);
+        request.setDataset(dataset);
+        return request;
+    }
+
+    private Map<String, Object> generationResponse(GenerationSummaryDTO summary) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Successfully generated " + summary.getGenerated() + " bookings");
+        response.put("totalGenerated", summary.getGenerated());
+        response.put("summary", summary);
+        return response;
+    }
+}
@@ -0,0 +1,83 @@
+package eci.edu.back.cvds_back.controller;
+
+import eci.edu.back.cvds_back.service.interfaces.BookingSlotIndex;
+import eci.edu.back.cvds_back.service.interfaces.LoginRateLimiter;
+import eci.edu.back.cvds_back.service.interfaces.TokenRevocationService;
+import eci.edu.back.cvds_back.util.JwtUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * MetricsController is a REST controller that exposes the runtime metrics of the
+ * in-memory structures used by the backend.
+ *
+ * Endpoints:
+ * - GET /metrics-service/booking-slot-index: Returns the hit/miss and size metrics of the booking slot index.
+ * - GET /metrics-service/jwt-cache: Returns the hit/miss and size metrics of the verified-token cache.
+ * - GET /metrics-service/login-rate-limiter: Returns the allowed/rejected and size metrics of the login rate limiter.
+ * - GET /metrics-service/token-revocation: Returns the Bloom filter and size metrics of the token deny list.
+ *
+ * Dependencies:
+ * - BookingSlotIndex: In-memory index used to detect booking conflicts.
+ * - JwtUtil: Issues and verifies JWT tokens, caching the verified ones.
+ * - LoginRateLimiter: Throttles login attempts per user ID and client IP.
+ * - TokenRevocationService: Deny list of revoked tokens.
+ */
+@RestController
+@RequestMapping("/metrics-service")
+@CrossOrigin(origins = "*")
+public class MetricsController {
+    @Autowired
+    private BookingSlotIndex bookingSlotIndex;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    /**
+     * Retrieves the metrics of the booking slot index.
+     *
+     * @return a map with the lookups, hits, misses, conflicts and size of the index.
+     */
+    @GetMapping("/booking-slot-index")
+    public Map<String, Object> bookingSlotIndex() {
+        return bookingSlotIndex.getStats();
+    }
+
+    /**
+     * Retrieves the metrics of the verified-token cache.
+     *
+     * @return a map with the lookups, hits, misses, hit rate, evictions and size of the cache.
+     */
+    @GetMapping("/jwt-cache")
+    public Map<String, Object> jwtCache() {
+        return jwtUtil.getCacheStats();
+    }
+
+    /**
+     * Retrieves the metrics of the login rate limiter.
+     *
+     * @return a map with the allowed and rejected attempts, tracked buckets and evictions.
+     */
+    @GetMapping("/login-rate-limiter")
+    public Map<String, Object> loginRateLimiter() {
+        return loginRateLimiter.getStats();
+    }
+
+    /**
+     * Retrieves the metrics of the token deny list.
+     *
+     * @return a map with the checks, Bloom filter hits, false positives and size of the deny list.
+     */
+    @GetMapping("/token-revocation")
+    public Map<String, Object> tokenRevocation() {
+        return tokenRevocationService.getStats();
+    }
+}
@@ -2,14 +2,25 @@ package eci.edu.back.cvds_back.controller;
 
 import eci.edu.back.cvds_back.config.UserServiceException;
 import eci.edu.back.cvds_back.dto.AuthenticationResponseDTO;
+import eci.edu.back.cvds_back.dto.RefreshTokenDTO;
 import eci.edu.back.cvds_back.dto.UserAuthenticationDTO;
 import eci.edu.back.cvds_back.dto.UserDTO;
+import eci.edu.back.cvds_back.dto.UserSummaryDTO;
 import eci.edu.back.cvds_back.model.User;
+import eci.edu.back.cvds_back.service.interfaces.LoginRateLimiter;
 import eci.edu.back.cvds_back.service.interfaces.UserService;
+import eci.edu.back.cvds_back.util.JwtAuthentication;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 
 
@@ -20,11 +31,13 @@ import java.util.List;
  *
  * <p>It exposes the following endpoints:
  * <ul>
- *   <li>GET /user-service/users - Retrieves a list of all users.</li>
+ *   <li>GET /user-service/users - Retrieves a page of users without their credentials.</li>
  *   <li>GET /user-service/users/{userId} - Retrieves a user by their unique identifier.</li>
  *   <li>POST /user-service/register - Registers a new user.</li>
- *   <li>DELETE /user-service/users/{userId} - Deletes a user by their unique identifier.</li>
+ *   <li>DELETE /user-service/users/{userId} - Deletes a user by their unique identifier (204 No Content).</li>
  *   <li>POST /user-service/login - Authenticates a user based on provided credentials.</li>
+ *   <li>POST /user-service/refresh - Issues a new access token from a refresh token.</li>
+ *   <li>POST /user-service/logout - Revokes the access token of the request and a refresh token.</li>
  * </ul>
  *
  * <p>Each endpoint is mapped to a specific method in this controller, which interacts
@@ -38,6 +51,7 @@ import java.util.List;
  * <p>Dependencies:
  * <ul>
  *   <li>{@link UserService} - Service layer for user-related operations.</li>
+ *   <li>{@link LoginRateLimiter} - Throttles login attempts per user ID and client IP.</li>
  * </ul>
  *
  * <p>Annotations used:
@@ -55,28 +69,37 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
 
     /**
-     * Retrieves a list of all users.
+     * Retrieves a page of users, sorted by ID. Only the ID and email of each user are
+     * read from the database; passwords are never returned.
      *
-     * @return a list of User objects containing information about all users.
+     * @param page Optional zero-based page number.
+     * @param size Optional page size (at most 500).
+     * @return a list of users with their ID and email, or 400 if the page is negative or
+     *         the size is less than 1.
      */
     @GetMapping("/users")
-    public List<User> users(){
-        return userService.getAllUsers();
+    public List<UserSummaryDTO> users(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return userService.getUsers(page, size);
     }
 
 
     /**
-     * Retrieves a user by their unique identifier.
+     * Retrieves a user by their unique identifier, without their credentials.
      *
      * @param userId The unique identifier of the user to retrieve.
-     * @return The User object corresponding to the provided userId.
+     * @return The ID and email of the user corresponding to the provided userId.
      * @throws UserServiceException If an error occurs while retrieving the user.
      */
     @GetMapping("/users/{userId}")
-    public User user (@PathVariable String userId) throws UserServiceException {
-        return userService.getUser(userId);
+    public UserSummaryDTO user (@PathVariable String userId) throws UserServiceException {
+        return summary(userService.getUser(userId));
     }
 
 
@@ -84,39 +107,98 @@ public class UserController {
      * Handles the HTTP POST request to register a new user.
      *
      * @param user The UserDTO object containing the details of the user to be registered.
-     * @return The saved User object after successful registration.
+     * @return The ID and email of the saved user, without the password hash.
      */
     @PostMapping("/register")
-    public User user(@RequestBody UserDTO user) {
-        return userService.saveUser(user);
+    public UserSummaryDTO user(@RequestBody UserDTO user) {
+        return summary(userService.saveUser(user));
+    }
+
+    private static UserSummaryDTO summary(User user) {
+        return user == null ? null : new UserSummaryDTO(user.getUserId(), user.getEmail());
     }
 
 
     /**
-     * Deletes a user by their unique identifier and returns the updated list of all users.
+     * Deletes a user by their unique identifier. Only the status is returned, so the
+     * remaining users are not read again.
      *
      * @param userId The unique identifier of the user to be deleted.
-     * @return A list of all remaining users after the specified user has been deleted.
+     * @return An empty response with status 204 No Content.
      * @throws UserServiceException If an error occurs while attempting to delete the user.
      */
     @DeleteMapping("/users/{userId}")
-    public List<User> deleteUser(@PathVariable String userId) throws UserServiceException {
+    public ResponseEntity<Void> deleteUser(@PathVariable String userId) throws UserServiceException {
         userService.deleteUser(userId);
-        return userService.getAllUsers();
+        return ResponseEntity.noContent().build();
     }
 
     /**
      * Handles the login request by authenticating the user based on the provided
-     * credentials.
+     * credentials. Authentication runs on the login executor and the request is completed
+     * asynchronously, so the Tomcat thread is released while the password is hashed.
+     *
+     * <p>Attempts are throttled per user ID and per client IP first; a throttled attempt is
+     * answered with 429 Too Many Requests and a Retry-After header without reaching the
+     * user service or the database.</p>
      *
      * @param authenticationDTO The data transfer object containing the user's
      *                          authentication credentials (e.g., username and password).
-     * @return An {@link AuthenticationResponseDTO} containing the authentication
+     * @param request The HTTP request, used to read the client IP (the forwarded client address
+     *                behind a trusted reverse proxy, see {@code server.forward-headers-strategy}).
+     * @return A future with an {@link AuthenticationResponseDTO} containing the authentication
      *         result, such as a token or user details.
      */
     @PostMapping("/login")
-    public AuthenticationResponseDTO authenticate(@RequestBody UserAuthenticationDTO authenticationDTO) {
-        return userService.authenticate(authenticationDTO);
+    public CompletableFuture<ResponseEntity<AuthenticationResponseDTO>> authenticate(
+            @RequestBody UserAuthenticationDTO authenticationDTO, HttpServletRequest request) {
+        if (!loginRateLimiter.tryAcquire(authenticationDTO.getUserId(), request.getRemoteAddr())) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(loginRateLimiter.getRetryAfterSeconds(authenticationDTO.getUserId(), request.getRemoteAddr())))
+                    .body(new AuthenticationResponseDTO(false, null, null, "Demasiados intentos, intente más tarde")));
+        }
+        return userService.authenticateAsync(authenticationDTO).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Issues a new access token from the refresh token obtained at login, without
+     * checking the password again.
+     *
+     * @param refreshTokenDTO The data transfer object containing the refresh token.
+     * @return An {@link AuthenticationResponseDTO} with the new access token, or a failed
+     *         authentication if the refresh token is invalid or expired.
+     */
+    @PostMapping("/refresh")
+    public AuthenticationResponseDTO refresh(@RequestBody RefreshTokenDTO refreshTokenDTO) {
+        return userService.refresh(refreshTokenDTO.getRefreshToken());
+    }
+
+    /**
+     * Logs the authenticated user out: the access token of the request is revoked, and so
+     * is the refresh token if one is sent. Both are then rejected until they expire.
+     *
+     * @param authentication The authentication of the request, holding the verified token claims.
+     * @param refreshTokenDTO Optional data transfer object with the refresh token to revoke.
+     * @return A map with a confirmation message.
+     */
+    @PostMapping("/logout")
+    public Map<String, Object> logout(JwtAuthentication authentication,
+                                      @RequestBody(required = false) RefreshTokenDTO refreshTokenDTO) {
+        userService.logout(authentication.getClaims(), refreshTokenDTO == null ? null : refreshTokenDTO.getRefreshToken());
+        return Map.of("message", "Sesión cerrada");
+    }
+
+    /**
+     * Answers invalid paging parameters with 400 Bad Request instead of 500.
+     *
+     * @param e The validation error.
+     * @return A 400 ResponseEntity containing a map with the error message.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidRequest(IllegalArgumentException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(response);
     }
 
 }
@@ -1,17 +1,18 @@
 package eci.edu.back.cvds_back.dto;
 
-import eci.edu.back.cvds_back.model.User;
 
 /**
  * Represents the response of an authentication process.
  * This DTO (Data Transfer Object) contains information about the authentication status,
- * the authenticated user, a generated token, and an optional message providing additional details.
+ * the authenticated user (without credentials), a generated token, and an optional message providing additional details.
  *
  * <p>Fields:</p>
  * <ul>
  *   <li><b>authenticated</b>: A boolean indicating whether the authentication was successful.</li>
- *   <li><b>user</b>: The {@link User} object associated with the authentication response.</li>
+ *   <li><b>user</b>: The ID and email of the authenticated user, as a {@link UserSummaryDTO}, so the
+ *       password hash is never sent to the client.</li>
  *   <li><b>token</b>: A string representing the authentication token generated for the user.</li>
+ *   <li><b>refreshToken</b>: A long-lived token used to obtain new authentication tokens.</li>
  *   <li><b>message</b>: A string providing additional information about the authentication response.</li>
  * </ul>
  *
@@ -23,20 +24,25 @@ import eci.edu.back.cvds_back.model.User;
  *   <li><b>setUser</b>: Sets the user associated with the authentication response.</li>
  *   <li><b>getToken</b>: Returns the authentication token.</li>
  *   <li><b>setToken</b>: Sets the authentication token.</li>
+ *   <li><b>getRefreshToken</b>: Returns the refresh token.</li>
+ *   <li><b>setRefreshToken</b>: Sets the refresh token.</li>
  *   <li><b>getMessage</b>: Returns the additional message about the authentication response.</li>
  *   <li><b>setMessage</b>: Sets the additional message about the authentication response.</li>
  * </ul>
  *
  * <p>Constructor:</p>
  * <ul>
- *   <li><b>AuthenticationResponseDTO(boolean authenticated, User user, String token, String message)</b>: 
+ *   <li><b>AuthenticationResponseDTO(boolean authenticated, UserSummaryDTO user, String token, String message)</b>: 
  *       Initializes the DTO with the specified authentication status, user, token, and message.</li>
+ *   <li><b>AuthenticationResponseDTO(boolean authenticated, UserSummaryDTO user, String token, String refreshToken, String message)</b>:
+ *       Also sets the refresh token.</li>
  * </ul>
  */
 public class AuthenticationResponseDTO {
     private boolean authenticated;
-    private User user;
+    private UserSummaryDTO user;
     private String token;
+    private String refreshToken;
     private String message;
 
     /**
@@ -47,22 +53,39 @@ public class AuthenticationResponseDTO {
      * @param token The authentication token generated for the user.
      * @param message A message providing additional information about the authentication response.
      */
-    public AuthenticationResponseDTO(boolean authenticated, User user, String token, String message) {
+    public AuthenticationResponseDTO(boolean authenticated, UserSummaryDTO user, String token, String message) {
         this.authenticated = authenticated;
         this.user = user;
         this.token = token;
         this.message = message;
     }
 
+    /**
+     * Constructs an AuthenticationResponseDTO object with a refresh token.
+     *
+     * @param authenticated Indicates whether the authentication was successful.
+     * @param user The user associated with the authentication response.
+     * @param token The authentication token generated for the user.
+     * @param refreshToken The refresh token used to obtain new authentication tokens.
+     * @param message A message providing additional information about the authentication response.
+     */
+    public AuthenticationResponseDTO(boolean authenticated, UserSummaryDTO user, String token, String refreshToken, String message) {
+        this(authenticated, user, token, message);
+        this.refreshToken = refreshToken;
+    }
+
     public boolean isAuthenticated() {return authenticated;}
     public void setAuthenticated(boolean authenticated) {this.authenticated = authenticated;}
 
-    public User getUser() {return user;}
-    public void setUser(User user) {this.user = user;}
+    public UserSummaryDTO getUser() {return user;}
+    public void setUser(UserSummaryDTO user) {this.user = user;}
 
     public String getToken() {return token;}
     public void setToken(String token) {this.token = token;}
 
+    public String getRefreshToken() {return refreshToken;}
+    public void setRefreshToken(String refreshToken) {this.refreshToken = refreshToken;}
+
     public String getMessage() {return message;}
     public void setMessage(String message) {this.message = message;}
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package eci.edu.back.cvds_back.dto;
+
+import eci.edu.back.cvds_back.model.Booking;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for a page of bookings obtained with keyset pagination.
+ * It contains the bookings of the page, sorted by date, time and ID, and the
+ * opaque cursor to request the next page (null when there are no more bookings).
+ */
+public class BookingPageDTO {
+    private List<Booking> items;
+    private String next;
+
+    /**
+     * Constructs a BookingPageDTO with the given bookings and next-page cursor.
+     *
+     * @param items The bookings of the page.
+     * @param next The cursor of the next page, or null if this is the last page.
+     */
+    public BookingPageDTO(List<Booking> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<Booking> getItems() {return items;}
+    public void setItems(List<Booking> items) {this.items = items;}
+
+    public String getNext() {return next;}
+    public void setNext(String next) {this.next = next;}
+}
@@ -0,0 +1,53 @@
+package eci.edu.back.cvds_back.dto;
+
+/**
+ * Data Transfer Object (DTO) with a snapshot of a background generation or clearing job.
+ * It contains the job ID, its type and status, the progress counters, the elapsed
+ * time, the throughput in stored bookings per second and, for failed jobs, the error.
+ */
+public class GenerationJobDTO {
+    private String jobId;
+    private String type;
+    private String status;
+    private int target;
+    private long attempted;
+    private long generated;
+    private long conflicts;
+    private long removed;
+    private long elapsedMillis;
+    private double throughput;
+    private String error;
+
+    public String getJobId() {return jobId;}
+    public void setJobId(String jobId) {this.jobId = jobId;}
+
+    public String getType() {return type;}
+    public void setType(String type) {this.type = type;}
+
+    public String getStatus() {return status;}
+    public void setStatus(String status) {this.status = status;}
+
+    public int getTarget() {return target;}
+    public void setTarget(int target) {this.target = target;}
+
+    public long getAttempted() {return attempted;}
+    public void setAttempted(long attempted) {this.attempted = attempted;}
+
+    public long getGenerated() {return generated;}
+    public void setGenerated(long generated) {this.generated = generated;}
+
+    public long getConflicts() {return conflicts;}
+    public void setConflicts(long conflicts) {this.conflicts = conflicts;}
+
+    public long getRemoved() {return removed;}
+    public void setRemoved(long removed) {this.removed = removed;}
+
+    public long getElapsedMillis() {return elapsedMillis;}
+    public void setElapsedMillis(long elapsedMillis) {this.elapsedMillis = elapsedMillis;}
+
+    public double getThroughput() {return throughput;}
+    public void setThroughput(double throughput) {this.throughput = throughput;}
+
+    public String getError() {return error;}
+    public void setError(String error) {this.error = error;}
+}
@@ -0,0 +1,67 @@
+package eci.edu.back.cvds_back.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) describing a booking generation run.
+ * It contains the number of bookings to generate and how many workers may
+ * generate them in parallel (each worker owns a disjoint set of classrooms).
+ *
+ * The slot space may be overridden per run: the number of days from today,
+ * the bookable hours of each day and a target occupancy ratio, which, when
+ * present, replaces the count. Null values fall back to the generator's
+ * configuration.
+ *
+ * For reproducible datasets, a seed and a base date (day offset 0, today by
+ * default) fix every random choice, and a dataset name sends the bookings to
+ * an NDJSON file instead of the database.
+ */
+public class GenerationRequestDTO {
+    private int count;
+    private int parallelism = 1;
+    private Integer horizonDays;
+    private List<Integer> hours;
+    private Double occupancy;
+    private Long seed;
+    private LocalDate baseDate;
+    private String dataset;
+
+    public GenerationRequestDTO() {
+    }
+
+    /**
+     * Constructs a GenerationRequestDTO with the given count and parallelism.
+     *
+     * @param count The number of bookings to generate.
+     * @param parallelism The number of parallel workers.
+     */
+    public GenerationRequestDTO(int count, int parallelism) {
+        this.count = count;
+        this.parallelism = parallelism;
+    }
+
+    public int getCount() {return count;}
+    public void setCount(int count) {this.count = count;}
+
+    public int getParallelism() {return parallelism;}
+    public void setParallelism(int parallelism) {this.parallelism = parallelism;}
+
+    public Integer getHorizonDays() {return horizonDays;}
+    public void setHorizonDays(Integer horizonDays) {this.horizonDays = horizonDays;}
+
+    public List<Integer> getHours() {return hours;}
+    public void setHours(List<Integer> hours) {this.hours = hours;}
+
+    public Double getOccupancy() {return occupancy;}
+    public void setOccupancy(Double occupancy) {this.occupancy = occupancy;}
+
+    public Long getSeed() {return seed;}
+    public void setSeed(Long seed) {this.seed = seed;}
+
+    public LocalDate getBaseDate() {return baseDate;}
+    public void setBaseDate(LocalDate baseDate) {this.baseDate = baseDate;}
+
+    public String getDataset() {return dataset;}
+    public void setDataset(String dataset) {this.dataset = dataset;}
+}
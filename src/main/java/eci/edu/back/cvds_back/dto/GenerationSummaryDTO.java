@@ -0,0 +1,37 @@
+package eci.edu.back.cvds_back.dto;
+
+import java.util.Map;
+
+/**
+ * Data Transfer Object (DTO) summarizing a booking generation run.
+ * It contains the number of bookings requested, attempted, stored and rejected
+ * as conflicting, the elapsed time, and how many bookings each classroom got.
+ * The generated bookings themselves are not kept, so its size does not depend
+ * on the size of the run.
+ */
+public class GenerationSummaryDTO {
+    private int target;
+    private int attempted;
+    private int generated;
+    private int conflicts;
+    private long elapsedMillis;
+    private Map<String, Integer> perClassroom;
+
+    public int getTarget() {return target;}
+    public void setTarget(int target) {this.target = target;}
+
+    public int getAttempted() {return attempted;}
+    public void setAttempted(int attempted) {this.attempted = attempted;}
+
+    public int getGenerated() {return generated;}
+    public void setGenerated(int generated) {this.generated = generated;}
+
+    public int getConflicts() {return conflicts;}
+    public void setConflicts(int conflicts) {this.conflicts = conflicts;}
+
+    public long getElapsedMillis() {return elapsedMillis;}
+    public void setElapsedMillis(long elapsedMillis) {this.elapsedMillis = elapsedMillis;}
+
+    public Map<String, Integer> getPerClassroom() {return perClassroom;}
+    public void setPerClassroom(Map<String, Integer> perClassroom) {this.perClassroom = perClassroom;}
+}
@@ -0,0 +1,12 @@
+package eci.edu.back.cvds_back.dto;
+
+/**
+ * Data Transfer Object (DTO) carrying the refresh token sent to obtain a new
+ * authentication token.
+ */
+public class RefreshTokenDTO {
+    private String refreshToken;
+
+    public String getRefreshToken() {return refreshToken;}
+    public void setRefreshToken(String refreshToken) {this.refreshToken = refreshToken;}
+}
@@ -0,0 +1,28 @@
+package eci.edu.back.cvds_back.dto;
+
+/**
+ * Data Transfer Object (DTO) for listing users without their credentials.
+ * It is used as a MongoDB projection, so the password fields are not even
+ * read from the database.
+ */
+public class UserSummaryDTO {
+    private String userId;
+    private String email;
+
+    /**
+     * Constructs a UserSummaryDTO with the given user ID and email.
+     *
+     * @param userId The unique identifier of the user.
+     * @param email The email address of the user.
+     */
+    public UserSummaryDTO(String userId, String email) {
+        this.userId = userId;
+        this.email = email;
+    }
+
+    public String getUserId() {return userId;}
+    public void setUserId(String userId) {this.userId = userId;}
+
+    public String getEmail() {return email;}
+    public void setEmail(String email) {this.email = email;}
+}
@@ -3,6 +3,9 @@ package eci.edu.back.cvds_back.model;
 import eci.edu.back.cvds_back.dto.BookingDTO;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.PersistenceCreator;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -20,6 +23,8 @@ import java.time.LocalTime;
  *   <li>Tracks whether the booking is disabled or available.</li>
  *   <li>Supports priority levels for bookings.</li>
  *   <li>Includes the user ID of the person who reserved the booking.</li>
+ *   <li>Carries a derived slot key (classroom + date + 2-hour bucket) that is unique
+ *       across the collection, so two replicas can never store the same slot twice.</li>
  * </ul>
  * 
  * <p>Constructors:</p>
@@ -36,6 +41,11 @@ import java.time.LocalTime;
  * <p>Annotations:</p>
  * <ul>
  *   <li>@Document: Specifies the MongoDB collection name ("bookings").</li>
+ *   <li>@CompoundIndex: Indexes classroom, date and time so the same-classroom
+ *       conflict check can read a single classroom/day instead of the whole collection,
+ *       reservedBy + date so a user's reservations are read without a collection scan,
+ *       and date + time + ID for keyset pagination of the whole collection.</li>
+ *   <li>@Indexed: Declares the unique (sparse) index on the derived slotKey field.</li>
  *   <li>@Id: Marks the bookingId field as the unique identifier for the document.</li>
  *   <li>@PersistenceCreator: Indicates the constructor used for persistence operations.</li>
  * </ul>
@@ -45,6 +55,11 @@ import java.time.LocalTime;
  * particularly in scenarios involving database operations and business logic.
  */
 @Document(collection = "bookings")
+@CompoundIndexes({
+        @CompoundIndex(name = "classroom_date_time", def = "{'bookingClassRoom': 1, 'bookingDate': 1, 'bookingTime': 1}"),
+        @CompoundIndex(name = "reservedBy_date", def = "{'reservedBy': 1, 'bookingDate': 1}"),
+        @CompoundIndex(name = "date_time_id", def = "{'bookingDate': 1, 'bookingTime': 1, '_id': 1}")
+})
 public class Booking {
     @Id
     private String bookingId;
@@ -54,6 +69,8 @@ public class Booking {
     private String bookingClassRoom;
     private Integer priority;
     private String reservedBy; // Almacena el userId del usuario que realizó la reserva
+    @Indexed(name = "slot_key", unique = true, sparse = true)
+    private String slotKey; // Salón + fecha + franja de 2 horas, derivado de los campos anteriores
 
     /**
      * Constructs a new Booking instance with the specified details.
@@ -75,6 +92,7 @@ public class Booking {
         this.bookingClassRoom = bookingClassRoom;
         this.priority = priority;
         this.reservedBy = reservedBy;
+        refreshSlotKey();
     }
 
     /**
@@ -100,26 +118,47 @@ public class Booking {
         this.bookingClassRoom = bookingDTO.getBookingClassRoom();
         this.priority = bookingDTO.getPriority();
         // No asignamos reservedBy aquí, porque inicialmente no tiene reserva
+        refreshSlotKey();
+    }
+
+    /**
+     * Builds the slot key of a booking: the classroom, the date and the aligned
+     * 2-hour bucket the booking time falls into (e.g. {@code A101|2025-03-10|08}).
+     *
+     * @param classRoom the classroom of the booking
+     * @param date      the date of the booking
+     * @param time      the time of the booking
+     * @return the slot key, or null if any of the values is missing
+     */
+    public static String slotKeyOf(String classRoom, LocalDate date, LocalTime time) {
+        if (classRoom == null || date == null || time == null) return null;
+        return classRoom + "|" + date + "|" + String.format("%02d", (time.getHour() / 2) * 2);
+    }
+
+    private void refreshSlotKey() {
+        this.slotKey = slotKeyOf(bookingClassRoom, bookingDate, bookingTime);
     }
 
     public boolean isDisable() {return disable;}
     public void setDisable(boolean disable) {this.disable = disable;}
 
     public LocalTime getBookingTime() {return bookingTime;}
-    public void setBookingTime(LocalTime bookingTime) {this.bookingTime = bookingTime;}
+    public void setBookingTime(LocalTime bookingTime) {this.bookingTime = bookingTime; refreshSlotKey();}
 
     public String getBookingClassRoom() {return bookingClassRoom;}
-    public void setBookingClassRoom(String bookingClassRoom) {this.bookingClassRoom = bookingClassRoom;}
+    public void setBookingClassRoom(String bookingClassRoom) {this.bookingClassRoom = bookingClassRoom; refreshSlotKey();}
 
     public String getBookingId() {return bookingId;}
     public void setBookingId(String bookingId) {this.bookingId = bookingId;}
 
     public LocalDate getBookingDate() {return bookingDate;}
-    public void setBookingDate(LocalDate bookingDate) {this.bookingDate = bookingDate;}
+    public void setBookingDate(LocalDate bookingDate) {this.bookingDate = bookingDate; refreshSlotKey();}
 
     public Integer getPriority() {return priority;}
     public void setPriority(Integer priority) {this.priority = priority;}
 
     public String getReservedBy() {return reservedBy;}
     public void setReservedBy(String reservedBy) {this.reservedBy = reservedBy;}
+
+    public String getSlotKey() {return slotKey;}
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package eci.edu.back.cvds_back.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceCreator;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Represents a named sequence counter.
+ * This class is annotated with @Document to indicate that it is a MongoDB document
+ * stored in the "counters" collection.
+ *
+ * Each counter has the following attributes:
+ * - name: The name of the sequence, used as the document ID.
+ * - value: The last value handed out for the sequence.
+ *
+ * Counters are only modified through atomic $inc/$max updates, so several
+ * application nodes can share the same sequence safely.
+ */
+@Document(collection = "counters")
+public class Counter {
+    @Id
+    private String name;
+    private long value;
+
+    /**
+     * Constructs a new Counter object.
+     *
+     * @param name  The name of the sequence.
+     * @param value The last value handed out for the sequence.
+     */
+    @PersistenceCreator
+    public Counter(String name, long value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getValue() {
+        return value;
+    }
+}
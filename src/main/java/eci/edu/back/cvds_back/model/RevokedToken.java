@@ -0,0 +1,46 @@
+package eci.edu.back.cvds_back.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceCreator;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Represents a revoked JWT token.
+ * This class is annotated with @Document to indicate that it is a MongoDB document
+ * stored in the "revoked_tokens" collection.
+ *
+ * Each revoked token has the following attributes:
+ * - jti: The unique identifier of the token, used as the document ID.
+ * - expiresAt: The expiration of the token. A TTL index removes the document once
+ *   it is reached, since an expired token is rejected anyway.
+ */
+@Document(collection = "revoked_tokens")
+public class RevokedToken {
+    @Id
+    private String jti;
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+
+    /**
+     * Constructs a new RevokedToken object.
+     *
+     * @param jti       The unique identifier of the token.
+     * @param expiresAt The expiration of the token.
+     */
+    @PersistenceCreator
+    public RevokedToken(String jti, Date expiresAt) {
+        this.jti = jti;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+}
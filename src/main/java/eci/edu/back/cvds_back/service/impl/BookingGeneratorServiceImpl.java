@@ -1,17 +1,34 @@
 package eci.edu.back.cvds_back.service.impl;
 
-import eci.edu.back.cvds_back.config.BookingServiceException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import eci.edu.back.cvds_back.dto.BookingDTO;
+import eci.edu.back.cvds_back.dto.GenerationRequestDTO;
+import eci.edu.back.cvds_back.dto.GenerationSummaryDTO;
 import eci.edu.back.cvds_back.model.Booking;
 import eci.edu.back.cvds_back.service.interfaces.BookingGeneratorService;
 import eci.edu.back.cvds_back.service.interfaces.BookingService;
+import eci.edu.back.cvds_back.service.interfaces.BookingSlotIndex;
+import eci.edu.back.cvds_back.service.interfaces.GenerationProgress;
+import eci.edu.back.cvds_back.service.interfaces.IdAllocator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import java.util.regex.Pattern;
 
 /**
  * Implementation of the BookingGeneratorService interface that provides methods
@@ -24,37 +41,64 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 
  * Dependencies:
  * - BookingService: Used to interact with the booking data layer.
+ * - IdAllocator: Hands out booking ID numbers from the persistent "booking" sequence.
+ * - ObjectMapper: Writes and reads NDJSON dataset files.
  * 
  * Features:
  * - Generate random bookings within a specified range.
  * - Generate a specific number of bookings.
  * - Clear all existing bookings.
  * - Validate and ensure no conflicting bookings are created.
+ * - Store generated bookings in bulk batches instead of one write per booking.
+ * - Generate in parallel, partitioning the classrooms across a ForkJoinPool.
+ * - Generate reproducibly from a seed and a base date, optionally into an NDJSON dataset
+ *   file instead of the database, and load such a dataset back.
  * 
  * Thread Safety:
- * - Uses an AtomicInteger (labCounter) to ensure thread-safe generation of unique booking IDs.
+ * - Booking IDs come from the IdAllocator, which is safe across threads and application nodes.
+ * - Each parallel worker owns a disjoint set of classrooms, with its own booked slots,
+ *   free slot pool and SplittableRandom, so workers share no mutable state.
  * 
  * Methods:
  * - {@link #generateRandomBookings(int, int)}: Generates a random number of bookings within a range.
  * - {@link #generateExactBookings(int)}: Generates an exact number of bookings.
+ * - {@link #generateBookings(GenerationRequestDTO)}: Generates bookings as described by a request, optionally in parallel.
+ * - {@link #generateBookings(GenerationRequestDTO, GenerationProgress)}: Same, reporting progress and honouring cancellation.
  * - {@link #clearAllBookings()}: Deletes all existing bookings and returns the count of deleted bookings.
- * - {@link #getRandomAvailableBooking(Map)}: Finds a random available booking slot.
+ * - {@link #clearBookings(String, LocalDate, LocalDate, boolean)}: Deletes the bookings matching optional filters.
+ * - {@link #loadDataset(String)}: Stores the bookings of an NDJSON dataset file.
+ * - {@link #buildFreeSlotPool(SlotSpace, Map)}: Collects every available slot of a {@link SlotSpace} into a {@link FreeSlotPool}.
+ * - {@link #buildFreeSlotPool(String[], Map, LocalDate)}: Same, for some classrooms over the configured days and hours.
  * - {@link #isSlotBooked(Map, String, LocalDate, int)}: Checks if a specific slot is already booked.
- * - {@link #createBookingDTO(Booking)}: Creates a BookingDTO object from a temporary booking.
+ * - {@link #createBookingDTO(SlotSpace, int, String, RandomGenerator)}: Creates a BookingDTO object for a slot ordinal.
  * 
  * Internal Logic:
- * - Maintains a map of booked slots to avoid conflicts.
- * - Iterates through classrooms, dates, and hours to find available slots.
- * - Generates unique booking IDs using a counter.
- * - Handles exceptions during booking creation and deletion.
+ * - Maintains a map of booked slots (minutes of the day) and enforces the 2-hour rule against it.
+ * - Flushes accepted bookings to the booking service in batches of {@code booking.generator.batch-size}.
+ * - Keeps only counters of the generated bookings, never the bookings themselves, so memory does
+ *   not grow with the target; callers that need the stored bookings receive each batch through
+ *   {@link GenerationProgress#stored(List, int)}.
+ * - Encodes each (classroom, day, hour) slot as an int ordinal of a {@link SlotSpace} and keeps
+ *   the free ones in a {@link FreeSlotPool}, so every random pick is O(1) and allocation-free.
+ * - Generates unique booking IDs from a persistent sequence, seeded once from the existing
+ *   {@code lab<n>} IDs when the sequence does not exist yet.
+ * - Clears bookings with a single server-side delete instead of one request per booking.
  * 
  * Usage:
  * This service is intended to be used in scenarios where automated booking 
  * generation is required, such as testing or populating a system with sample data.
  * 
- * Note:
- * - The service assumes a predefined set of classrooms and valid booking hours.
- * - Bookings are generated for up to 30 days from the current date.
+ * Configuration:
+ * - {@code booking.generator.classrooms}: The classrooms to generate bookings for.
+ * - {@code booking.generator.hours}: The bookable hours of each day.
+ * - {@code booking.generator.horizon-days}: How many days from today are generated
+ *   (default {@value #HORIZON_DAYS}).
+ * - {@code booking.generator.dataset-dir}: The directory NDJSON datasets are written to and loaded from.
+ * A generation request may override the hours and days, and ask for a target occupancy
+ * ratio of the slot space instead of a count. The horizon is capped at
+ * {@value #MAX_HORIZON_DAYS} days, the slot space at {@value #MAX_SLOT_SPACE} slots and the
+ * workers at {@value #MAX_PARALLELISM}, since the endpoints are public and the free slot pool
+ * and the worker pool are sized from the request.
  */
 @Service
 public class BookingGeneratorServiceImpl implements BookingGeneratorService {
@@ -62,265 +106,779 @@ public class BookingGeneratorServiceImpl implements BookingGeneratorService {
     @Autowired
     private BookingService bookingService;
 
-    private final Random random = new Random();
-    private final AtomicInteger labCounter = new AtomicInteger(1);
+    @Autowired
+    private IdAllocator idAllocator;
+
+    @Autowired
+    private BookingSlotIndex bookingSlotIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${booking.generator.batch-size:500}")
+    private int batchSize = 500;
 
-    public final String[] classrooms = {
+    private volatile boolean sequenceSeeded = false;
+
+    @Value("${booking.generator.classrooms:A101,A102,B201,B202,C301,C302,D401,D402,E501,E502}")
+    public String[] classrooms = {
             "A101", "A102", "B201", "B202", "C301",
             "C302", "D401", "D402", "E501", "E502"
     };
 
-    public final int[] validHours = {7, 9, 11, 13, 15, 17, 19};
+    @Value("${booking.generator.hours:7,9,11,13,15,17,19}")
+    public int[] validHours = {7, 9, 11, 13, 15, 17, 19};
+
+    public static final int HORIZON_DAYS = 30;
+
+    public static final int MAX_HORIZON_DAYS = 366;
+
+    public static final int MAX_SLOT_SPACE = 2_000_000;
+
+    public static final int MAX_PARALLELISM = 16;
+
+    @Value("${booking.generator.horizon-days:30}")
+    private int horizonDays = HORIZON_DAYS;
+
+    @Value("${booking.generator.dataset-dir:datasets}")
+    private String datasetDir = "datasets";
+
+    public static final String BOOKING_SEQUENCE = "booking";
+
+    private static final Pattern DATASET_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+
+    private static final int MIN_GAP_MINUTES = 120;
 
     /**
      * Generates a random number of bookings within the specified range.
      *
      * @param min The minimum number of bookings to generate.
      * @param max The maximum number of bookings to generate.
-     * @return A list of randomly generated bookings.
+     * @return The summary of the run.
      * @throws IllegalArgumentException If min is greater than max.
      */
     @Override
-    public List<Booking> generateRandomBookings(int min, int max) {
-        int targetBookings = random.nextInt(max - min + 1) + min;
-        return generateBookings(targetBookings);
+    public GenerationSummaryDTO generateRandomBookings(int min, int max) {
+        int targetBookings = ThreadLocalRandom.current().nextInt(max - min + 1) + min;
+        return generateBookings(new GenerationRequestDTO(targetBookings, 1));
     }
 
     /**
      * Generates a specified number of exact bookings.
      *
      * @param count the number of bookings to generate
-     * @return a list of generated bookings
+     * @return the summary of the run
      */
     @Override
-    public List<Booking> generateExactBookings(int count) {
-        return generateBookings(count);
+    public GenerationSummaryDTO generateExactBookings(int count) {
+        return generateBookings(new GenerationRequestDTO(count, 1));
     }
 
     /**
-     * Clears all bookings by retrieving all existing bookings and deleting them one by one.
-     * If an error occurs while deleting a booking, it logs the error and continues with the next booking.
+     * Clears all bookings with a single server-side delete.
      *
-     * @return The total number of bookings that were attempted to be deleted.
+     * @return The number of bookings deleted by the database.
      */
     @Override
     public int clearAllBookings() {
-        List<Booking> allBookings = bookingService.getAllBookings();
-        int count = allBookings.size();
-
-        for (Booking booking : allBookings) {
-            try {
-                bookingService.deleteBooking(booking.getBookingId());
-            } catch (BookingServiceException e) {
-                System.out.println("Error deleting booking " + booking.getBookingId() + ": " + e.getMessage());
-            }
-        }
+        return clearBookings(null, null, null, false);
+    }
 
-        return count;
+    /**
+     * Clears the bookings matching the given filters with a single server-side delete.
+     *
+     * @param classroom     The classroom to clear, or null for all classrooms.
+     * @param from          The first date to clear (inclusive), or null.
+     * @param to            The last date to clear (inclusive), or null.
+     * @param generatedOnly Whether to clear only generated bookings (IDs of the form {@code lab<n>}).
+     * @return The number of bookings deleted by the database.
+     */
+    @Override
+    public int clearBookings(String classroom, LocalDate from, LocalDate to, boolean generatedOnly) {
+        return bookingService.deleteBookings(classroom, from, to, generatedOnly);
     }
 
     /**
-     * Generates a specified number of bookings while avoiding conflicts with existing bookings.
+     * Generates the requested number of bookings while avoiding conflicts with existing bookings.
      *
-     * @param targetBookings The number of bookings to generate.
-     * @return A list of generated bookings.
+     * @param request The number of bookings (or the target occupancy), the slot space overrides
+     *                and the number of parallel workers.
+     * @return The summary of the run.
      * 
-     * This method initializes a counter for lab usage and maintains a map of booked slots
-     * to track existing bookings. It attempts to generate new bookings by finding available
-     * slots and saving them. If a conflict occurs during booking, it skips the conflicting
-     * booking and continues. The method stops generating bookings either when the target
-     * number of bookings is reached or when the maximum number of attempts is exceeded.
-     *
-     * The generated bookings are saved using the booking service, and the booked slots map
-     * is updated accordingly to reflect the new bookings.
+     * This method resolves the {@link SlotSpace} of the run, loads the existing bookings of its
+     * classrooms and dates into a map of booked slots and splits the classrooms into
+     * {@code parallelism} partitions (never more than there are classrooms, nor more than
+     * {@value #MAX_PARALLELISM}). With a target occupancy, the count is the number of
+     * slots needed to reach that ratio of the slot space, minus the bookings already in it.
+     * 
+     * The slot space starts at the request's base date (today by default), and all the random
+     * choices derive from the request's seed when one is given. When the request names a
+     * dataset, the bookings are written to an NDJSON file instead of the database; see
+     * {@link #generateBookings(GenerationRequestDTO, GenerationProgress)}.
+     * 
+     * Each partition gets its own free slot pool and a share of the target proportional to
+     * its free slots, and is generated by {@link #generatePartition(Partition, BookingSink, GenerationProgress)}.
+     * With more than one partition, the partitions run on a dedicated ForkJoinPool and their
+     * counters are merged once every worker has flushed its batches.
      *
-     * Note: If no more available slots are found, the method will terminate early and return
+     * Note: If no more available slots are found, the method will terminate early and report
      * the bookings generated up to that point.
-     *
-     * @throws BookingServiceException If an error occurs while saving a booking.
      */
-    private List<Booking> generateBookings(int targetBookings) {
-        List<Booking> generatedBookings = new ArrayList<>();
-
-        initializeLabCounter();
+    @Override
+    public GenerationSummaryDTO generateBookings(GenerationRequestDTO request) {
+        return generateBookings(request, GenerationProgress.NONE);
+    }
 
-        Map<String, Map<LocalDate, Set<Integer>>> bookedSlots = new HashMap<>();
+    /**
+     * Generates the requested number of bookings, reporting each flushed batch to the
+     * given progress sink. Workers check for cancellation before every candidate and,
+     * once cancelled, flush the batch they hold and stop.
+     *
+     * A dataset run starts from an empty slot space, never reads or writes the database and
+     * numbers its bookings {@code lab1, lab2, ...} in generation order. Its partitions are
+     * generated one after another on the calling thread, so the same seed, base date and
+     * parameters always produce a byte-identical file. The file is written next to its final
+     * name and moved into place once complete; a cancelled run leaves no file.
+     *
+     * @param request  The number of bookings (or the target occupancy), the slot space overrides,
+     *                 the number of parallel workers, and the optional seed, base date and dataset.
+     * @param progress The sink for progress updates, stored bookings and cancellation requests.
+     * @return The summary of the run.
+     * @throws IllegalArgumentException If the horizon, hours, occupancy or dataset name are not valid.
+     * @throws UncheckedIOException If the dataset file cannot be written.
+     */
+    @Override
+    public GenerationSummaryDTO generateBookings(GenerationRequestDTO request, GenerationProgress progress) {
+        long startNanos = System.nanoTime();
+        LocalDate startDate = request.getBaseDate() != null ? request.getBaseDate() : LocalDate.now();
+        SlotSpace space = resolveSlotSpace(request, startDate);
+        Path dataset = request.getDataset() != null ? datasetPath(request.getDataset()) : null;
+        Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots = new HashMap<>();
 
         for (String classroom : classrooms) {
             bookedSlots.put(classroom, new HashMap<>());
         }
 
-        List<Booking> existingBookings = bookingService.getAllBookings();
-        for (Booking booking : existingBookings) {
-            String classroom = booking.getBookingClassRoom();
-            LocalDate date = booking.getBookingDate();
-            int hour = booking.getBookingTime().getHour();
+        int bookedInSpace = 0;
+        if (dataset == null) {
+            Set<String> rooms = Set.copyOf(bookedSlots.keySet());
+            LocalDate lastDate = space.getStartDate().plusDays(space.getDays() - 1L);
+            for (Booking booking : bookingService.getBookingsInRange(rooms, space.getStartDate(), lastDate)) {
+                markSlotBooked(bookedSlots, booking);
+                if (rooms.contains(booking.getBookingClassRoom()) && space.covers(booking.getBookingDate())) {
+                    bookedInSpace++;
+                }
+            }
+            seedBookingSequence();
+        }
+
+        int target = request.getCount();
+        if (request.getOccupancy() != null) {
+            target = Math.max(0, (int) Math.round(request.getOccupancy() * space.capacity()) - bookedInSpace);
+        }
+        progress.target(target);
+
+        int parallelism = Math.max(1, Math.min(request.getParallelism(), Math.min(classrooms.length, MAX_PARALLELISM)));
+        SplittableRandom root = request.getSeed() != null ? new SplittableRandom(request.getSeed()) : new SplittableRandom();
+        List<Partition> partitions = partition(bookedSlots, space, parallelism, root);
+        int freeSlots = assignQuotas(partitions, target);
+        if (freeSlots < target) {
+            System.out.println("No more available slots. Generating " + freeSlots + " bookings.");
+        }
 
-            if (!bookedSlots.containsKey(classroom)) {
-                bookedSlots.put(classroom, new HashMap<>());
+        if (dataset != null) {
+            writeDataset(dataset, partitions, progress);
+            return summarize(partitions, target, startNanos);
+        }
+
+        BookingSink database = new BookingSink() {
+            @Override
+            public String nextId() {
+                return "lab" + idAllocator.next(BOOKING_SEQUENCE);
             }
 
-            if (!bookedSlots.get(classroom).containsKey(date)) {
-                bookedSlots.get(classroom).put(date, new HashSet<>());
+            @Override
+            public List<Booking> write(List<Booking> batch) {
+                return bookingService.saveBookings(batch);
             }
+        };
 
-            bookedSlots.get(classroom).get(date).add(hour);
+        if (partitions.size() == 1) {
+            generatePartition(partitions.get(0), database, progress);
+            return summarize(partitions, target, startNanos);
         }
 
-        int attempts = 0;
-        int maxAttempts = targetBookings * 5;
+        ForkJoinPool workers = new ForkJoinPool(partitions.size());
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (Partition partition : partitions) {
+                tasks.add(workers.submit(() -> generatePartition(partition, database, progress)));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            workers.shutdown();
+        }
+        return summarize(partitions, target, startNanos);
+    }
+
+    /**
+     * Merges the counters of the partitions into the summary of a run.
+     *
+     * @param partitions The generated partitions.
+     * @param target     The number of bookings the run tried to generate.
+     * @param startNanos The {@link System#nanoTime()} at which the run started.
+     * @return The summary, with the bookings of every classroom in configuration order.
+     */
+    private GenerationSummaryDTO summarize(List<Partition> partitions, int target, long startNanos) {
+        GenerationSummaryDTO summary = new GenerationSummaryDTO();
+        Map<String, Integer> perClassroom = new LinkedHashMap<>();
+        for (String classroom : classrooms) {
+            perClassroom.put(classroom, 0);
+        }
+
+        for (Partition partition : partitions) {
+            summary.setAttempted(summary.getAttempted() + partition.attempted);
+            summary.setGenerated(summary.getGenerated() + partition.generated);
+            summary.setConflicts(summary.getConflicts() + partition.attempted - partition.generated);
+            String[] rooms = partition.space.getRooms();
+            for (int r = 0; r < rooms.length; r++) {
+                perClassroom.merge(rooms[r], partition.perRoom[r], Integer::sum);
+            }
+        }
 
-        while (generatedBookings.size() < targetBookings && attempts < maxAttempts) {
-            attempts++;
+        summary.setTarget(target);
+        summary.setElapsedMillis((System.nanoTime() - startNanos) / 1_000_000);
+        summary.setPerClassroom(perClassroom);
+        return summary;
+    }
 
-            try {
-                Booking tempBooking = getRandomAvailableBooking(bookedSlots);
-                if (tempBooking == null) {
-                    System.out.println("No more available slots. Generated " + generatedBookings.size() + " bookings.");
-                    break;
+    /**
+     * Stores the bookings of an NDJSON dataset file, as written by a dataset generation run,
+     * through the booking service in batches of {@code batchSize}. The file is read line by
+     * line, so memory does not depend on its size. Afterwards, the booking ID sequence is
+     * raised past the highest {@code lab<n>} ID of the dataset.
+     *
+     * Each booking is checked against the same 2-hour rule as any other booking: against the
+     * stored bookings through the slot index, and against the bookings of the batch in flight,
+     * which only reach the index once the batch is stored. Conflicting bookings are skipped.
+     *
+     * @param name The name of the dataset.
+     * @return The number of bookings stored.
+     * @throws IllegalArgumentException If the dataset name is not valid.
+     * @throws UncheckedIOException If the dataset file cannot be read.
+     */
+    @Override
+    public int loadDataset(String name) {
+        Path dataset = datasetPath(name);
+        int loaded = 0;
+        int skipped = 0;
+        long maxLabNumber = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(dataset, StandardCharsets.UTF_8)) {
+            List<Booking> batch = new ArrayList<>();
+            Map<String, Map<LocalDate, NavigableSet<Integer>>> batchSlots = new HashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Booking booking = readBooking(objectMapper.readTree(line));
+                maxLabNumber = Math.max(maxLabNumber, labNumber(booking.getBookingId()));
+                if (isSlotBlocked(batchSlots, booking) || bookingSlotIndex.hasConflict(
+                        booking.getBookingClassRoom(), booking.getBookingDate(), booking.getBookingTime())) {
+                    skipped++;
+                    continue;
                 }
+                markSlotBooked(batchSlots, booking);
+                batch.add(booking);
 
-                BookingDTO bookingDTO = createBookingDTO(tempBooking);
-                Booking booking = bookingService.saveBooking(bookingDTO);
-                generatedBookings.add(booking);
+                if (batch.size() >= batchSize) {
+                    loaded += bookingService.saveBookings(batch).size();
+                    batch = new ArrayList<>();
+                    batchSlots.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                loaded += bookingService.saveBookings(batch).size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error: No se pudo leer el dataset '" + name + "'.", e);
+        }
 
-                String classroom = tempBooking.getBookingClassRoom();
-                LocalDate date = tempBooking.getBookingDate();
-                int hour = tempBooking.getBookingTime().getHour();
+        if (skipped > 0) {
+            System.out.println("Skipping " + skipped + " conflicting bookings.");
+        }
+        idAllocator.ensureAtLeast(BOOKING_SEQUENCE, maxLabNumber);
+        return loaded;
+    }
 
-                if (!bookedSlots.get(classroom).containsKey(date)) {
-                    bookedSlots.get(classroom).put(date, new HashSet<>());
+    /**
+     * Destination of the bookings generated by a partition: the booking service, or an
+     * NDJSON dataset file.
+     */
+    private interface BookingSink {
+        String nextId();
+
+        List<Booking> write(List<Booking> batch);
+    }
+
+    /**
+     * Writes every partition, in order, to a dataset file.
+     *
+     * @param dataset    The final path of the dataset file.
+     * @param partitions The partitions, with their quotas assigned.
+     * @param progress   The sink for progress updates and cancellation requests.
+     */
+    private void writeDataset(Path dataset, List<Partition> partitions, GenerationProgress progress) {
+        ObjectWriter writer = objectMapper.writerFor(Booking.class);
+
+        try {
+            Files.createDirectories(dataset.getParent());
+            Path partial = Files.createTempFile(dataset.getParent(), dataset.getFileName().toString(), ".part");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial))) {
+                BookingSink file = new BookingSink() {
+                    private long lastId;
+
+                    @Override
+                    public String nextId() {
+                        return "lab" + ++lastId;
+                    }
+
+                    @Override
+                    public List<Booking> write(List<Booking> batch) {
+                        try {
+                            for (Booking booking : batch) {
+                                out.write(writer.writeValueAsBytes(booking));
+                                out.write('\n');
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return batch;
+                    }
+                };
+                for (Partition partition : partitions) {
+                    generatePartition(partition, file, progress);
                 }
-                bookedSlots.get(classroom).get(date).add(hour);
+            } catch (RuntimeException | IOException e) {
+                Files.deleteIfExists(partial);
+                throw e;
+            }
 
-            } catch (BookingServiceException e) {
-                System.out.println("Skipping conflicting booking: " + e.getMessage());
+            if (progress.isCancelled()) {
+                Files.delete(partial);
+            } else {
+                Files.move(partial, dataset, StandardCopyOption.REPLACE_EXISTING);
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error: No se pudo escribir el dataset '" + dataset.getFileName() + "'.", e);
         }
+    }
 
-        return generatedBookings;
+    /**
+     * Checks the parameters of a generation request by resolving its slot space and
+     * dataset path, exactly as {@link #generateBookings(GenerationRequestDTO, GenerationProgress)} does.
+     *
+     * @param request The generation request to check.
+     * @throws IllegalArgumentException If the horizon, hours, occupancy or dataset name are not valid,
+     *                                  or the slot space is too large.
+     */
+    @Override
+    public void validate(GenerationRequestDTO request) {
+        resolveSlotSpace(request, request.getBaseDate() != null ? request.getBaseDate() : LocalDate.now());
+        if (request.getDataset() != null) {
+            datasetPath(request.getDataset());
+        }
     }
 
     /**
-     * Initializes the lab counter by analyzing existing bookings and determining
-     * the highest lab number currently in use. The lab counter is then set to one
-     * greater than the highest lab number found.
-     * 
-     * This method retrieves all bookings from the booking service and checks for
-     * booking IDs that start with "lab". It extracts the numeric part of the ID,
-     * parses it, and keeps track of the maximum lab number encountered. If no
-     * valid lab numbers are found, the counter is initialized to 1.
-     * 
-     * Note: Any non-numeric or malformed booking IDs starting with "lab" are
-     * ignored.
+     * Resolves the file of a dataset inside the dataset directory.
+     *
+     * @param name The name of the dataset, without directories.
+     * @return The path of {@code <name>.ndjson} in the dataset directory.
+     * @throws IllegalArgumentException If the name is not valid.
      */
-    private void initializeLabCounter() {
-        List<Booking> existingBookings = bookingService.getAllBookings();
-        int maxLabNumber = 0;
-
-        for (Booking booking : existingBookings) {
-            String bookingId = booking.getBookingId();
-            if (bookingId.startsWith("lab")) {
-                try {
-                    int labNumber = Integer.parseInt(bookingId.substring(3));
-                    maxLabNumber = Math.max(maxLabNumber, labNumber);
-                } catch (NumberFormatException e) {
-                }
+    private Path datasetPath(String name) {
+        if (name == null || !DATASET_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Error: Nombre de dataset inválido.");
+        }
+        return Path.of(datasetDir).toAbsolutePath().resolve(name + ".ndjson");
+    }
+
+    private Booking readBooking(JsonNode node) throws IOException {
+        return new Booking(
+                node.path("bookingId").asText(null),
+                objectMapper.treeToValue(node.get("bookingDate"), LocalDate.class),
+                objectMapper.treeToValue(node.get("bookingTime"), LocalTime.class),
+                node.path("disable").asBoolean(true),
+                node.path("bookingClassRoom").asText(null),
+                node.hasNonNull("priority") ? node.get("priority").asInt() : null,
+                node.hasNonNull("reservedBy") ? node.get("reservedBy").asText() : null);
+    }
+
+    private long labNumber(String bookingId) {
+        if (bookingId == null || !bookingId.startsWith("lab")) return 0;
+        try {
+            return Long.parseLong(bookingId.substring(3));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Resolves the slot space of a run from the request overrides and the configuration.
+     *
+     * @param request   The generation request.
+     * @param startDate The date of day offset 0.
+     * @return The slot space over all the configured classrooms.
+     * @throws IllegalArgumentException If the horizon, hours or occupancy are not valid,
+     *                                  or the slot space is larger than {@value #MAX_SLOT_SPACE} slots.
+     */
+    private SlotSpace resolveSlotSpace(GenerationRequestDTO request, LocalDate startDate) {
+        int days = request.getHorizonDays() != null ? request.getHorizonDays() : horizonDays;
+        if (days < 1 || days > MAX_HORIZON_DAYS) {
+            throw new IllegalArgumentException("Error: El horizonte debe estar entre 1 y " + MAX_HORIZON_DAYS + " días.");
+        }
+
+        int[] hours = request.getHours() != null && !request.getHours().isEmpty()
+                ? request.getHours().stream().mapToInt(Integer::intValue).toArray()
+                : validHours;
+        hours = Arrays.stream(hours).sorted().distinct().toArray();
+        if (hours.length == 0 || hours[0] < 0 || hours[hours.length - 1] > 23) {
+            throw new IllegalArgumentException("Error: Las horas deben estar entre 0 y 23.");
+        }
+
+        Double occupancy = request.getOccupancy();
+        if (occupancy != null && !(occupancy >= 0 && occupancy <= 1)) {
+            throw new IllegalArgumentException("Error: La ocupación debe estar entre 0 y 1.");
+        }
+
+        SlotSpace space = new SlotSpace(classrooms, startDate, days, hours);
+        if (space.capacity() > MAX_SLOT_SPACE) {
+            throw new IllegalArgumentException("Error: El espacio de franjas supera " + MAX_SLOT_SPACE + " franjas.");
+        }
+        return space;
+    }
+
+    /**
+     * Slice of the slot space owned by a single worker: a disjoint set of classrooms,
+     * their booked slots, their free slot pool, a random source split from the root,
+     * and the counters of what the worker stored.
+     */
+    private static final class Partition {
+        private final SlotSpace space;
+        private final Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots;
+        private final FreeSlotPool freeSlots;
+        private final SplittableRandom random;
+        private final Map<String, Integer> roomIndex = new HashMap<>();
+        private final int[] perRoom;
+        private int quota;
+        private int attempted;
+        private int generated;
+
+        private Partition(SlotSpace space, Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots,
+                          FreeSlotPool freeSlots, SplittableRandom random) {
+            this.space = space;
+            this.bookedSlots = bookedSlots;
+            this.freeSlots = freeSlots;
+            this.random = random;
+            this.perRoom = new int[space.getRooms().length];
+            for (int r = 0; r < perRoom.length; r++) {
+                roomIndex.put(space.getRooms()[r], r);
             }
         }
+    }
 
-        labCounter.set(maxLabNumber + 1);
+    /**
+     * Splits the classrooms round-robin into the given number of partitions.
+     *
+     * @param bookedSlots The booked slots of every classroom.
+     * @param space       The slot space of the run.
+     * @param count       The number of partitions.
+     * @param root        The random source each partition splits its own from.
+     * @return The partitions, each with its own booked slots and free slot pool.
+     */
+    private List<Partition> partition(Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots,
+                                      SlotSpace space, int count, SplittableRandom root) {
+        List<Partition> partitions = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            String[] rooms = new String[(classrooms.length - p + count - 1) / count];
+            Map<String, Map<LocalDate, NavigableSet<Integer>>> partitionSlots = new HashMap<>();
+            for (int r = 0; r < rooms.length; r++) {
+                rooms[r] = classrooms[p + r * count];
+                partitionSlots.put(rooms[r], bookedSlots.get(rooms[r]));
+            }
+            SlotSpace partitionSpace = space.withRooms(rooms);
+            FreeSlotPool pool = buildFreeSlotPool(partitionSpace, partitionSlots);
+            partitions.add(new Partition(partitionSpace, partitionSlots, pool, root.split()));
+        }
+        return partitions;
+    }
+
+    /**
+     * Distributes the target among the partitions proportionally to their free slots.
+     *
+     * @param partitions The partitions.
+     * @param target     The total number of bookings to generate.
+     * @return The total number of free slots.
+     */
+    private int assignQuotas(List<Partition> partitions, int target) {
+        int free = 0;
+        for (Partition partition : partitions) {
+            free += partition.freeSlots.size();
+        }
+        int goal = Math.min(Math.max(target, 0), free);
+        if (goal == 0) return free;
+
+        int assigned = 0;
+        for (Partition partition : partitions) {
+            partition.quota = (int) ((long) goal * partition.freeSlots.size() / free);
+            assigned += partition.quota;
+        }
+        for (int p = 0; assigned < goal; p = (p + 1) % partitions.size()) {
+            Partition partition = partitions.get(p);
+            if (partition.quota < partition.freeSlots.size()) {
+                partition.quota++;
+                assigned++;
+            }
+        }
+        return free;
     }
 
     /**
-     * Retrieves a random available booking from the provided map of booked slots.
+     * Generates the quota of one partition.
      * 
-     * This method generates a list of available booking slots for the next 30 days
-     * for all classrooms and valid hours. It checks if a slot is already booked
-     * and, if not, creates a temporary booking object for that slot. A random
-     * booking is then selected from the list of available slots.
+     * Candidate slots are taken from the partition's free slot pool, which already reflects
+     * the same 2-hour rule the booking service applies, so no per-booking round trip is needed.
+     * Accepted bookings are buffered and flushed through {@link BookingService#saveBookings(List)}
+     * in batches of {@code batchSize}. Bookings the database still rejects (for instance,
+     * because another client booked the slot meanwhile) are skipped. Only the batch in
+     * flight is held in memory; the stored bookings are counted in the partition.
+     *
+     * @param partition The partition to generate.
+     * @param sink      The destination of the bookings, which also names them.
+     * @param progress  The sink for progress updates and cancellation requests.
+     */
+    private void generatePartition(Partition partition, BookingSink sink, GenerationProgress progress) {
+        List<Booking> batch = new ArrayList<>();
+
+        while (partition.generated + batch.size() < partition.quota && !progress.isCancelled()) {
+            int slot = partition.freeSlots.takeRandom(partition.random);
+            if (slot < 0) break;
+
+            Booking booking = new Booking(createBookingDTO(partition.space, slot, sink.nextId(), partition.random));
+            markSlotBooked(partition.bookedSlots, booking);
+            removeBlockedSlots(partition.freeSlots, partition.space, partition.bookedSlots, slot);
+            batch.add(booking);
+
+            if (batch.size() >= batchSize) {
+                flush(sink, partition, batch, progress);
+                batch = new ArrayList<>();
+            }
+        }
+        flush(sink, partition, batch, progress);
+    }
+
+    /**
+     * Stores a batch of bookings through the sink and counts the ones that
+     * were actually saved in the partition.
+     *
+     * @param sink      The destination of the bookings.
+     * @param partition The partition the batch belongs to.
+     * @param batch     The bookings to store.
+     * @param progress  The sink the batch outcome and the stored bookings are reported to.
+     */
+    private void flush(BookingSink sink, Partition partition, List<Booking> batch, GenerationProgress progress) {
+        if (batch.isEmpty()) return;
+
+        List<Booking> saved = sink.write(batch);
+        partition.attempted += batch.size();
+        partition.generated += saved.size();
+        for (Booking booking : saved) {
+            partition.perRoom[partition.roomIndex.get(booking.getBookingClassRoom())]++;
+        }
+
+        progress.attempted(batch.size());
+        progress.stored(saved, batch.size() - saved.size());
+        if (saved.size() < batch.size()) {
+            System.out.println("Skipping " + (batch.size() - saved.size()) + " conflicting bookings.");
+        }
+    }
+
+    /**
+     * Records the slot taken by a booking in the booked slots map.
+     *
+     * @param bookedSlots The booked slots map, keyed by classroom and date, holding minutes of the day.
+     * @param booking     The booking whose slot is taken.
+     */
+    private void markSlotBooked(Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots, Booking booking) {
+        LocalTime time = booking.getBookingTime();
+        bookedSlots.computeIfAbsent(booking.getBookingClassRoom(), k -> new HashMap<>())
+                .computeIfAbsent(booking.getBookingDate(), k -> new TreeSet<>())
+                .add(time.getHour() * 60 + time.getMinute());
+    }
+
+    /**
+     * Checks whether the slot of a booking is within 2 hours of a slot in the booked slots map.
+     *
+     * @param bookedSlots The booked slots map, keyed by classroom and date, holding minutes of the day.
+     * @param booking     The booking to check.
+     * @return {@code true} if another booked slot of the classroom and date is less than 2 hours away.
+     */
+    private boolean isSlotBlocked(Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots, Booking booking) {
+        NavigableSet<Integer> dateBookings = bookedSlots
+                .getOrDefault(booking.getBookingClassRoom(), Map.of())
+                .get(booking.getBookingDate());
+        if (dateBookings == null) return false;
+
+        LocalTime time = booking.getBookingTime();
+        int minute = time.getHour() * 60 + time.getMinute();
+        Integer nearest = dateBookings.ceiling(minute - MIN_GAP_MINUTES + 1);
+        return nearest != null && nearest < minute + MIN_GAP_MINUTES;
+    }
+
+    /**
+     * Seeds the persistent booking ID sequence the first time this node generates bookings.
      * 
+     * If the sequence does not exist yet, it is raised to the highest stored {@code lab<n>}
+     * number, so generated IDs never collide with IDs created before the sequence existed.
+     * Only the generated IDs are read, and only this once. Seeding uses $max, so concurrent
+     * seeding from several nodes is safe.
+     */
+    private void seedBookingSequence() {
+        if (sequenceSeeded) return;
+
+        if (!idAllocator.exists(BOOKING_SEQUENCE)) {
+            idAllocator.ensureAtLeast(BOOKING_SEQUENCE, bookingService.getMaxGeneratedNumber());
+        }
+        sequenceSeeded = true;
+    }
+
+    /**
+     * Builds the pool of available slots of the given classrooms over the configured
+     * horizon days and valid hours.
+     *
+     * @param rooms       The classrooms covered by the pool.
+     * @param bookedSlots A map containing the booked slots, where the key is the
+     *                    classroom name, and the value is another map with dates
+     *                    as keys and sets of booked minutes of the day as values.
+     * @param startDate   The date of day offset 0.
+     * @return A pool holding every slot that is not blocked by an existing booking.
+     */
+    public FreeSlotPool buildFreeSlotPool(String[] rooms, Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots,
+                                          LocalDate startDate) {
+        return buildFreeSlotPool(new SlotSpace(rooms, startDate, horizonDays, validHours), bookedSlots);
+    }
+
+    /**
+     * Builds the pool of available slots of a slot space.
+     *
+     * Days without bookings are added without any lookup, so the cost is one pass over
+     * the ordinals plus a range check per slot of the booked days only.
+     *
+     * @param space       The slot space covered by the pool.
      * @param bookedSlots A map containing the booked slots, where the key is the
      *                    classroom name, and the value is another map with dates
-     *                    as keys and sets of booked hours as values.
-     * @return A randomly selected available booking, or {@code null} if no
-     *         available slots are found.
+     *                    as keys and sets of booked minutes of the day as values.
+     * @return A pool holding every slot that is not blocked by an existing booking.
      */
-    public Booking getRandomAvailableBooking(Map<String, Map<LocalDate, Set<Integer>>> bookedSlots) {
-        List<Booking> availableSlots = new ArrayList<>();
+    public FreeSlotPool buildFreeSlotPool(SlotSpace space, Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots) {
+        FreeSlotPool pool = new FreeSlotPool(space.capacity());
+        String[] rooms = space.getRooms();
+        int[] hours = space.getHours();
+
+        LocalDate[] dates = new LocalDate[space.getDays()];
+        for (int day = 0; day < dates.length; day++) {
+            dates[day] = space.getStartDate().plusDays(day);
+        }
 
-        LocalDate today = LocalDate.now();
+        for (int c = 0; c < rooms.length; c++) {
+            Map<LocalDate, NavigableSet<Integer>> classroomBookings = bookedSlots.get(rooms[c]);
 
-        for (String classroom : classrooms) {
-            for (int day = 0; day < 30; day++) {
-                LocalDate date = today.plusDays(day);
-
-                for (int hour : validHours) {
-                    if (!isSlotBooked(bookedSlots, classroom, date, hour)) {
-                        BookingDTO dto = new BookingDTO();
-                        dto.setBookingClassRoom(classroom);
-                        dto.setBookingDate(date);
-                        dto.setBookingTime(LocalTime.of(hour, 0));
-                        dto.setBookingId("temp");
-                        dto.setDisable(true);
-                        dto.setPriority(1);
-
-                        Booking tempBooking = new Booking(dto);
-                        availableSlots.add(tempBooking);
+            for (int day = 0; day < dates.length; day++) {
+                boolean bookedDay = classroomBookings != null && classroomBookings.containsKey(dates[day]);
+
+                for (int h = 0; h < hours.length; h++) {
+                    if (!bookedDay || !isSlotBooked(bookedSlots, rooms[c], dates[day], hours[h])) {
+                        pool.add(space.ordinal(c, day, h));
                     }
                 }
             }
         }
+        return pool;
+    }
 
-        if (availableSlots.isEmpty()) {
-            return null;
+    /**
+     * Removes from the pool the slots of the same classroom and day that became
+     * unavailable after booking the given slot.
+     *
+     * @param freeSlots   The pool of free slots.
+     * @param space       The slot space the pool covers.
+     * @param bookedSlots The booked slots map, already including the new booking.
+     * @param slot        The slot ordinal that was just booked.
+     */
+    private void removeBlockedSlots(FreeSlotPool freeSlots, SlotSpace space,
+                                    Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots, int slot) {
+        int[] hours = space.getHours();
+        int firstOfDay = slot - space.hourIndex(slot);
+        String classroom = space.classroom(slot);
+        LocalDate date = space.date(slot);
+
+        for (int h = 0; h < hours.length; h++) {
+            int candidate = firstOfDay + h;
+            if (freeSlots.contains(candidate) && isSlotBooked(bookedSlots, classroom, date, hours[h])) {
+                freeSlots.remove(candidate);
+            }
         }
-        return availableSlots.get(random.nextInt(availableSlots.size()));
     }
 
     /**
-     * Checks if a specific time slot is booked for a given classroom on a specific date.
+     * Checks if a specific time slot is unavailable for a given classroom on a specific date,
+     * that is, if a booking exists less than 2 hours before or after it.
      *
      * @param bookedSlots A map containing booking information, where the key is the classroom name,
-     *                    and the value is another map with dates as keys and sets of booked hours as values.
+     *                    and the value is another map with dates as keys and sets of booked minutes of the day as values.
      * @param classroom   The name of the classroom to check.
      * @param date        The date to check for bookings.
      * @param hour        The hour to check for bookings (in 24-hour format).
      * @return {@code true} if the specified time slot is booked, {@code false} otherwise.
      */
-    public boolean isSlotBooked(Map<String, Map<LocalDate, Set<Integer>>> bookedSlots,
+    public boolean isSlotBooked(Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots,
                                  String classroom, LocalDate date, int hour) {
-        Map<LocalDate, Set<Integer>> classroomBookings = bookedSlots.get(classroom);
+        Map<LocalDate, NavigableSet<Integer>> classroomBookings = bookedSlots.get(classroom);
         if (classroomBookings == null) return false;
 
-        Set<Integer> dateBookings = classroomBookings.get(date);
+        NavigableSet<Integer> dateBookings = classroomBookings.get(date);
         if (dateBookings == null) return false;
 
-        return dateBookings.contains(hour);
+        int minute = hour * 60;
+        Integer nearest = dateBookings.ceiling(minute - MIN_GAP_MINUTES + 1);
+        return nearest != null && nearest < minute + MIN_GAP_MINUTES;
     }
 
     /**
-     * Creates a BookingDTO object based on the provided Booking instance.
+     * Creates a BookingDTO object for the given slot ordinal.
      * 
-     * This method generates a unique booking ID, copies relevant booking details
-     * from the input Booking object, assigns a random priority between 1 and 5, 
+     * This method decodes the classroom, date and
+     * hour of the slot, assigns a random priority between 1 and 5, 
      * and sets the booking as disabled by default.
      * 
-     * @param tempBooking The Booking object containing the details to be copied 
-     *                    into the BookingDTO.
-     * @return A BookingDTO object populated with the details from the input 
-     *         Booking object and additional generated values.
+     * @param space     The slot space the slot ordinal refers to.
+     * @param slot      The slot ordinal to book.
+     * @param bookingId The unique booking ID.
+     * @param random    The random source of the calling worker.
+     * @return A BookingDTO object populated with the details of the slot
+     *         and additional generated values.
      */
-    private BookingDTO createBookingDTO(Booking tempBooking) {
+    private BookingDTO createBookingDTO(SlotSpace space, int slot, String bookingId, RandomGenerator random) {
         BookingDTO bookingDTO = new BookingDTO();
 
-        String bookingId = "lab" + labCounter.getAndIncrement();
         bookingDTO.setBookingId(bookingId);
 
-        bookingDTO.setBookingDate(tempBooking.getBookingDate());
-        bookingDTO.setBookingTime(tempBooking.getBookingTime());
+        bookingDTO.setBookingDate(space.date(slot));
+        bookingDTO.setBookingTime(LocalTime.of(space.hour(slot), 0));
 
-        bookingDTO.setBookingClassRoom(tempBooking.getBookingClassRoom());
+        bookingDTO.setBookingClassRoom(space.classroom(slot));
 
         int priority = random.nextInt(5) + 1;
         bookingDTO.setPriority(priority);
@@ -1,14 +1,40 @@
 package eci.edu.back.cvds_back.service.impl;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteError;
+import com.mongodb.bulk.BulkWriteError;
 import eci.edu.back.cvds_back.config.BookingServiceException;
 import eci.edu.back.cvds_back.model.Booking;
 import eci.edu.back.cvds_back.service.interfaces.BookingMongoRepository;
 import eci.edu.back.cvds_back.service.interfaces.BookingRepository;
+import org.bson.BsonDocument;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Range.Bound;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the BookingRepository interface that provides methods
@@ -21,38 +47,163 @@ import java.util.Optional;
  * 
  * Methods:
  * - save(Booking booking): Saves a booking entity to the database.
+ *   Throws BookingServiceException if its slot key is already taken.
+ * - insert(Booking booking): Inserts a new booking without upserting.
+ *   Throws BookingServiceException if its ID or its slot key is already taken.
+ * - insertAll(List<Booking> bookings): Inserts many bookings in one unordered
+ *   bulk write and returns the ones that were stored.
  * - findAll(): Retrieves all booking entities from the database.
+ * - findByClassRoomAndDate(String classRoom, LocalDate date): Retrieves the bookings
+ *   of one classroom on one date using the classroom/date/time index.
+ * - findByClassRoomsAndDates(Collection<String> classRooms, LocalDate from, LocalDate to):
+ *   Retrieves the bookings of some classrooms within a date range.
+ * - findMaxGeneratedNumber(): Returns the highest number of the generated {@code lab<n>} IDs.
+ * - streamAll(): Streams all booking entities through a database cursor.
+ * - findPageAfter(LocalDate date, LocalTime time, String bookingId, int limit):
+ *   Retrieves the bookings that follow a given position in date/time/ID order.
+ * - findByReservedBy(String userId, LocalDate from, LocalDate to, Integer page, Integer size):
+ *   Retrieves the bookings reserved by a user, optionally within a date range and paginated.
  * - findById(String bookingId): Retrieves a booking entity by its ID.
  *   Throws BookingServiceException if the booking is not found.
- * - deleteById(String bookingId): Deletes a booking entity by its ID.
+ * - deleteById(String bookingId): Deletes a booking entity by its ID and returns it.
+ * - deleteMatching(String classRoom, LocalDate from, LocalDate to, boolean generatedOnly):
+ *   Deletes every booking matching the optional filters in one server-side delete.
  * - update(Booking booking): Updates an existing booking entity.
  *   Throws BookingServiceException if the booking does not exist.
  * - existsById(String bookingId): Checks if a booking entity exists by its ID.
+ * - reserve(String bookingId, String userId): Atomically reserves an available booking.
+ * - release(String bookingId, String userId): Atomically cancels a reservation
+ *   held by the given user (or by nobody).
  * 
  * Exceptions:
  * - BookingServiceException: Thrown when a booking is not found during
- *   retrieval, deletion, or update operations.
+ *   retrieval, deletion, or update operations, or when the unique slot key
+ *   index rejects a save.
  * 
  * Dependencies:
  * - BookingMongoRepository: The MongoDB repository used for data access.
+ * - MongoTemplate: Used for conditional find-and-modify updates and bulk writes.
  * 
  * Annotations:
  * - @Service: Marks this class as a Spring service component.
- * - @Autowired: Injects the BookingMongoRepository dependency.
+ * - @Autowired: Injects the BookingMongoRepository and MongoTemplate dependencies.
  */
 @Service
 public class BookingRepositoryImpl implements BookingRepository {
     @Autowired
     private BookingMongoRepository bookingMongoRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final Sort BY_DATE_AND_TIME = Sort.by("bookingDate", "bookingTime");
+    private static final Sort BY_DATE_TIME_AND_ID = Sort.by("bookingDate", "bookingTime", "bookingId");
+    private static final String GENERATED_ID_PATTERN = "^lab\\d+$";
+
     /**
      * Saves the given booking entity to the database.
+     * The unique slot key index rejects a second booking in the same classroom,
+     * date and 2-hour bucket, even when it comes from another instance.
      *
      * @param booking the booking entity to be saved
+     * @throws BookingServiceException if another booking already holds the same slot
      */
     @Override
-    public void save(Booking booking) {
-        bookingMongoRepository.save(booking);
+    public void save(Booking booking) throws BookingServiceException {
+        try {
+            bookingMongoRepository.save(booking);
+        } catch (DuplicateKeyException e) {
+            throw new BookingServiceException("Error: No se puede reservar en el mismo salón dentro de un intervalo de 2 horas.");
+        }
+    }
+
+    /**
+     * Inserts a new booking. Unlike {@link #save(Booking)} this never overwrites an
+     * existing document, so the unique {@code _id} index is what detects a reused ID,
+     * without a separate existence check.
+     *
+     * @param booking the booking entity to be inserted
+     * @throws BookingServiceException if the booking ID already exists, or if another
+     *         booking already holds the same slot
+     */
+    @Override
+    public void insert(Booking booking) throws BookingServiceException {
+        try {
+            bookingMongoRepository.insert(booking);
+        } catch (DuplicateKeyException e) {
+            if (isIdCollision(e, booking)) {
+                throw new BookingServiceException("Error: El bookingId '" + booking.getBookingId() + "' ya existe.");
+            }
+            throw new BookingServiceException("Error: No se puede reservar en el mismo salón dentro de un intervalo de 2 horas.");
+        }
+    }
+
+    /**
+     * Checks whether a duplicate key error was raised by the primary key index.
+     * The driver's {@link WriteError} must carry a duplicate key code (11000); its
+     * details name the key pattern when the server reports it. Otherwise, since the
+     * only other unique index is the slot key, the rejected ID is looked up.
+     *
+     * @param e       the duplicate key error
+     * @param booking the booking whose insertion was rejected
+     * @return true if the {@code _id_} index rejected the write
+     */
+    private boolean isIdCollision(DuplicateKeyException e, Booking booking) {
+        WriteError error = writeError(e);
+        if (error != null) {
+            if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) return false;
+
+            BsonDocument keyPattern = error.getDetails().getDocument("keyPattern", null);
+            if (keyPattern != null) return keyPattern.containsKey("_id");
+        }
+        return bookingMongoRepository.existsById(booking.getBookingId());
+    }
+
+    /**
+     * Returns the write error of the driver exception causing the given error, if any.
+     */
+    private static WriteError writeError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoWriteException writeException) {
+                return writeException.getError();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Inserts the given bookings in a single unordered bulk write. Bookings rejected by
+     * the database (duplicate ID or slot key) are skipped without aborting the rest.
+     *
+     * @param bookings the bookings to insert
+     * @return the bookings that were actually inserted
+     * @throws BulkOperationException if any write failed for a reason other than a
+     *         duplicate key, such as a validation or write concern error
+     */
+    @Override
+    public List<Booking> insertAll(List<Booking> bookings) {
+        if (bookings.isEmpty()) return bookings;
+
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class).insert(bookings).execute();
+            return bookings;
+        } catch (BulkOperationException e) {
+            Set<Integer> rejected = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                // Solo se toleran los duplicados; cualquier otro error se propaga
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) throw e;
+                rejected.add(error.getIndex());
+            }
+            if (e.getCause() instanceof MongoBulkWriteException bulk && bulk.getWriteConcernError() != null) throw e;
+
+            List<Booking> inserted = new ArrayList<>(bookings.size() - rejected.size());
+            for (int i = 0; i < bookings.size(); i++) {
+                if (!rejected.contains(i)) inserted.add(bookings.get(i));
+            }
+            return inserted;
+        }
     }
 
     /**
@@ -65,6 +216,121 @@ public class BookingRepositoryImpl implements BookingRepository {
         return bookingMongoRepository.findAll();
     }
 
+    /**
+     * Retrieves the bookings of a classroom on a given date.
+     *
+     * @param classRoom the classroom whose bookings are requested
+     * @param date      the date whose bookings are requested
+     * @return the bookings of that classroom on that date
+     */
+    @Override
+    public List<Booking> findByClassRoomAndDate(String classRoom, LocalDate date) {
+        return bookingMongoRepository.findByBookingClassRoomAndBookingDate(classRoom, date);
+    }
+
+    /**
+     * Retrieves the bookings of the given classrooms within a date range with a single
+     * {@code $in} query, which the classroom/date/time index serves.
+     *
+     * @param classRooms the classrooms whose bookings are requested
+     * @param from       the first date to include
+     * @param to         the last date to include
+     * @return the bookings of those classrooms within the range
+     */
+    @Override
+    public List<Booking> findByClassRoomsAndDates(Collection<String> classRooms, LocalDate from, LocalDate to) {
+        Query query = new Query(Criteria.where("bookingClassRoom").in(classRooms)
+                .and("bookingDate").gte(from).lte(to));
+        return mongoTemplate.find(query, Booking.class);
+    }
+
+    /**
+     * Returns the highest number among the generated booking IDs ({@code lab<n>}).
+     * Only the IDs are read, through a cursor, so the bookings are never materialized.
+     *
+     * @return the highest generated number, or 0 if there are no generated bookings
+     */
+    @Override
+    public long findMaxGeneratedNumber() {
+        Query query = new Query(Criteria.where("bookingId").regex(GENERATED_ID_PATTERN));
+        query.fields().include("bookingId");
+        try (Stream<Booking> bookings = mongoTemplate.stream(query, Booking.class)) {
+            return bookings.mapToLong(booking -> {
+                try {
+                    return Long.parseLong(booking.getBookingId().substring(3));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }).max().orElse(0);
+        }
+    }
+
+    /**
+     * Streams all booking records from the database through a cursor.
+     * The caller is responsible for closing the returned stream.
+     *
+     * @return a stream over all bookings.
+     */
+    @Override
+    public Stream<Booking> streamAll() {
+        return bookingMongoRepository.streamAllBy();
+    }
+
+    /**
+     * Retrieves the bookings that come after the given position when the collection is
+     * sorted by date, time and ID (keyset pagination). The query walks the
+     * {@code date_time_id} index, so its cost does not depend on how deep the page is.
+     *
+     * @param date      the date of the last booking already returned, or null for the first page
+     * @param time      the time of the last booking already returned
+     * @param bookingId the ID of the last booking already returned
+     * @param limit     the maximum number of bookings to return
+     * @return the next bookings in date/time/ID order
+     */
+    @Override
+    public List<Booking> findPageAfter(LocalDate date, LocalTime time, String bookingId, int limit) {
+        Query query = new Query().with(BY_DATE_TIME_AND_ID).limit(limit);
+        if (date != null) {
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where("bookingDate").gt(date),
+                    Criteria.where("bookingDate").is(date).and("bookingTime").gt(time),
+                    Criteria.where("bookingDate").is(date).and("bookingTime").is(time).and("bookingId").gt(bookingId)));
+        }
+        return mongoTemplate.find(query, Booking.class);
+    }
+
+    /**
+     * Retrieves the bookings reserved by a user, sorted by date and time. The page size
+     * is capped at {@value #MAX_PAGE_SIZE}.
+     *
+     * @param userId the ID of the user who made the reservations
+     * @param from   the first booking date to include, or null for no lower bound
+     * @param to     the last booking date to include, or null for no upper bound
+     * @param page   the zero-based page to return, or null
+     * @param size   the page size, or null; when both page and size are null all results are returned
+     * @return the matching bookings
+     * @throws IllegalArgumentException if the page is negative or the size is less than 1
+     */
+    @Override
+    public List<Booking> findByReservedBy(String userId, LocalDate from, LocalDate to, Integer page, Integer size) {
+        if ((page != null && page < 0) || (size != null && size < 1)) {
+            throw new IllegalArgumentException("Error: La página no puede ser negativa y el tamaño debe ser al menos 1.");
+        }
+        Pageable pageable = (page == null && size == null)
+                ? Pageable.unpaged(BY_DATE_AND_TIME)
+                : PageRequest.of(page == null ? 0 : page,
+                        size == null ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE), BY_DATE_AND_TIME);
+
+        if (from == null && to == null) {
+            return bookingMongoRepository.findByReservedBy(userId, pageable);
+        }
+
+        Range<LocalDate> dates = Range.of(
+                from == null ? Bound.unbounded() : Bound.inclusive(from),
+                to == null ? Bound.unbounded() : Bound.inclusive(to));
+        return bookingMongoRepository.findByReservedByAndBookingDateBetween(userId, dates, pageable);
+    }
+
     /**
      * Retrieves a booking by its unique identifier.
      *
@@ -83,11 +349,41 @@ public class BookingRepositoryImpl implements BookingRepository {
      * Deletes a booking record by its unique identifier.
      *
      * @param bookingId The unique identifier of the booking to be deleted.
+     * @return The deleted booking, or null if no booking had the given identifier.
      * @throws BookingServiceException If an error occurs during the deletion process.
      */
     @Override
-    public void deleteById(String bookingId) throws BookingServiceException {
-        bookingMongoRepository.deleteById(bookingId);
+    public Booking deleteById(String bookingId) throws BookingServiceException {
+        return bookingMongoRepository.deleteByBookingId(bookingId);
+    }
+
+    /**
+     * Deletes every booking matching the given filters with a single server-side
+     * delete. Null filters are ignored, so passing no filters empties the collection.
+     *
+     * @param classRoom     the classroom to delete from, or null for all classrooms
+     * @param from          the first date to delete (inclusive), or null for no lower bound
+     * @param to            the last date to delete (inclusive), or null for no upper bound
+     * @param generatedOnly whether to delete only generated bookings (IDs of the form {@code lab<n>})
+     * @return the number of deleted bookings
+     */
+    @Override
+    public int deleteMatching(String classRoom, LocalDate from, LocalDate to, boolean generatedOnly) {
+        Query query = new Query();
+        if (classRoom != null) {
+            query.addCriteria(Criteria.where("bookingClassRoom").is(classRoom));
+        }
+        if (from != null || to != null) {
+            Criteria date = Criteria.where("bookingDate");
+            if (from != null) date.gte(from);
+            if (to != null) date.lte(to);
+            query.addCriteria(date);
+        }
+        if (generatedOnly) {
+            query.addCriteria(Criteria.where("bookingId").regex(GENERATED_ID_PATTERN));
+        }
+
+        return Math.toIntExact(mongoTemplate.remove(query, Booking.class).getDeletedCount());
     }
 
     /**
@@ -115,4 +411,37 @@ public class BookingRepositoryImpl implements BookingRepository {
         return bookingMongoRepository.existsById(bookingId);
     }
 
+    /**
+     * Reserves an available booking for a user in a single find-and-modify operation.
+     * The update only applies if the booking exists and is still available
+     * ({@code disable = true}), so two concurrent reservations cannot both succeed.
+     *
+     * @param bookingId the unique identifier of the booking to reserve
+     * @param userId    the user making the reservation
+     * @return the updated booking, or null if no available booking matched
+     */
+    @Override
+    public Booking reserve(String bookingId, String userId) {
+        Query query = new Query(Criteria.where("_id").is(bookingId).and("disable").is(true));
+        Update update = new Update().set("disable", false).set("reservedBy", userId);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Booking.class);
+    }
+
+    /**
+     * Cancels an active reservation in a single find-and-modify operation.
+     * The update only applies if the booking is active ({@code disable = false}) and
+     * was reserved by the given user or by nobody.
+     *
+     * @param bookingId the unique identifier of the booking to release
+     * @param userId    the user canceling the reservation
+     * @return the updated booking, or null if no matching active reservation was found
+     */
+    @Override
+    public Booking release(String bookingId, String userId) {
+        Query query = new Query(Criteria.where("_id").is(bookingId).and("disable").is(false)
+                .and("reservedBy").in(userId, null));
+        Update update = new Update().set("disable", true).unset("reservedBy");
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Booking.class);
+    }
+
 }
\ No newline at end of file
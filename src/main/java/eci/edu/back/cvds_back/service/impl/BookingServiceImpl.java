@@ -2,16 +2,26 @@ package eci.edu.back.cvds_back.service.impl;
 
 import eci.edu.back.cvds_back.config.BookingServiceException;
 import eci.edu.back.cvds_back.dto.BookingDTO;
+import eci.edu.back.cvds_back.dto.BookingPageDTO;
 import eci.edu.back.cvds_back.model.Booking;
 import eci.edu.back.cvds_back.service.interfaces.BookingRepository;
 import eci.edu.back.cvds_back.service.interfaces.BookingService;
+import eci.edu.back.cvds_back.service.interfaces.BookingSlotIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the BookingService interface, providing methods to manage bookings.
@@ -21,7 +31,8 @@ import java.util.stream.Collectors;
  * <p>Key functionalities include:</p>
  * <ul>
  *   <li>Retrieving bookings by ID or user.</li>
- *   <li>Saving new bookings with validation checks.</li>
+ *   <li>Paginating (keyset) and streaming the whole collection with bounded memory.</li>
+ *   <li>Saving new bookings with validation checks, one by one or in bulk.</li>
  *   <li>Deleting bookings by ID.</li>
  *   <li>Activating and canceling reservations with user-specific constraints.</li>
  * </ul>
@@ -31,6 +42,7 @@ import java.util.stream.Collectors;
  *   <li>Booking IDs must be unique.</li>
  *   <li>Priority must be between 1 and 5.</li>
  *   <li>Bookings in the same classroom must not overlap within a 2-hour interval.</li>
+ *   <li>Concurrent creations for the same classroom and date are serialized by a striped lock.</li>
  *   <li>Only the user who made a reservation can cancel it.</li>
  * </ul>
  * 
@@ -42,7 +54,7 @@ import java.util.stream.Collectors;
  * <p>Annotations:</p>
  * <ul>
  *   <li>{@code @Service}: Marks this class as a Spring service component.</li>
- *   <li>{@code @Autowired}: Injects the BookingRepository dependency.</li>
+ *   <li>{@code @Autowired}: Injects the BookingRepository and BookingSlotIndex dependencies.</li>
  * </ul>
  */
 @Service
@@ -50,6 +62,19 @@ public class BookingServiceImpl implements BookingService {
     @Autowired
     private BookingRepository bookingRepository;
 
+    @Autowired
+    private BookingSlotIndex bookingSlotIndex;
+
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int LOCK_STRIPES = 256;
+    private final Lock[] slotLocks = new Lock[LOCK_STRIPES];
+
+    public BookingServiceImpl() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            slotLocks[i] = new ReentrantLock();
+        }
+    }
+
     /**
      * Retrieves a booking by its unique identifier.
      *
@@ -65,6 +90,11 @@ public class BookingServiceImpl implements BookingService {
     /**
      * Saves a new booking based on the provided BookingDTO.
      *
+     * The checks keep their original order: a reused ID is reported first, then an invalid
+     * priority, then a 2-hour conflict. A new ID is only detected by the insert itself, so the
+     * ID is looked up just when another check already fails. Only the conflict check and the
+     * insert run under the stripe lock.
+     *
      * @param bookingDTO The data transfer object containing booking details.
      * @return The saved Booking entity.
      * @throws BookingServiceException If:
@@ -76,35 +106,77 @@ public class BookingServiceImpl implements BookingService {
      */
     @Override
     public Booking saveBooking(BookingDTO bookingDTO) throws BookingServiceException {
-        if (bookingRepository.existsById(bookingDTO.getBookingId())) {
-            throw new BookingServiceException("Error: El bookingId '" + bookingDTO.getBookingId() + "' ya existe.");
-        }
-
         if (bookingDTO.getPriority() < 1 || bookingDTO.getPriority() > 5) {
+            checkNewBookingId(bookingDTO.getBookingId());
             throw new BookingServiceException("Error: La prioridad debe estar entre 1 y 5.");
         }
 
-        List<Booking> existingBookings = bookingRepository.findAll();
         LocalDate newDate = bookingDTO.getBookingDate();
         LocalTime newTime = bookingDTO.getBookingTime();
         String newClassRoom = bookingDTO.getBookingClassRoom();
 
-        for (Booking existingBooking : existingBookings) {
-            if (existingBooking.getBookingDate().equals(newDate) &&
-                    existingBooking.getBookingClassRoom().equals(newClassRoom)) {
+        // La verificación de 2 horas y la inserción se serializan por salón y fecha
+        Lock slotLock = slotLock(newClassRoom, newDate);
+        slotLock.lock();
+        try {
+            // El índice en memoria responde la regla de 2 horas sin consultar la colección
+            if (bookingSlotIndex.hasConflict(newClassRoom, newDate, newTime)) {
+                checkNewBookingId(bookingDTO.getBookingId());
+                throw new BookingServiceException("Error: No se puede reservar en el mismo salón dentro de un intervalo de 2 horas.");
+            }
 
-                // Calcular la diferencia en horas entre las reservas
-                long difference = Math.abs(existingBooking.getBookingTime().until(newTime, java.time.temporal.ChronoUnit.HOURS));
+            // La inserción falla si el bookingId ya existe, sin consultarlo antes
+            Booking booking = new Booking(bookingDTO);
+            bookingRepository.insert(booking);
+            bookingSlotIndex.add(booking);
+            return booking;
+        } finally {
+            slotLock.unlock();
+        }
+    }
 
-                if (difference < 2) {
-                    throw new BookingServiceException("Error: No se puede reservar en el mismo salón dentro de un intervalo de 2 horas.");
-                }
-            }
+    /**
+     * Reports a reused booking ID ahead of the other validation errors of a booking.
+     *
+     * @param bookingId The ID of the rejected booking.
+     * @throws BookingServiceException If the booking ID already exists.
+     */
+    private void checkNewBookingId(String bookingId) throws BookingServiceException {
+        if (bookingRepository.existsById(bookingId)) {
+            throw new BookingServiceException("Error: El bookingId '" + bookingId + "' ya existe.");
         }
+    }
 
-        Booking booking = new Booking(bookingDTO);
-        bookingRepository.save(booking);
-        return booking;
+    /**
+     * Stores many bookings in a single bulk write and registers the stored ones in the
+     * slot index. Intended for callers, such as the booking generator, that already
+     * validated the 2-hour rule against their own view of the booked slots.
+     *
+     * @param bookings The bookings to store.
+     * @return The bookings that were actually stored.
+     */
+    @Override
+    public List<Booking> saveBookings(List<Booking> bookings) {
+        List<Booking> inserted = bookingRepository.insertAll(bookings);
+        for (Booking booking : inserted) {
+            bookingSlotIndex.add(booking);
+        }
+        return inserted;
+    }
+
+    /**
+     * Returns the lock stripe guarding a classroom and date. Bookings of the same
+     * classroom and date always map to the same stripe, so their check-then-insert
+     * sequences never interleave, while other classrooms use other stripes.
+     *
+     * @param classRoom The classroom of the booking.
+     * @param date The date of the booking.
+     * @return The lock guarding that classroom and date.
+     */
+    private Lock slotLock(String classRoom, LocalDate date) {
+        int hash = Objects.hash(classRoom, date);
+        hash ^= (hash >>> 16);
+        return slotLocks[hash & (LOCK_STRIPES - 1)];
     }
 
     /**
@@ -117,6 +189,80 @@ public class BookingServiceImpl implements BookingService {
         return bookingRepository.findAll();
     }
 
+    /**
+     * Retrieves the bookings of some classrooms within a date range.
+     *
+     * @param classRooms The classrooms whose bookings are retrieved.
+     * @param from The first date to include.
+     * @param to The last date to include.
+     * @return The bookings of those classrooms within the range.
+     */
+    @Override
+    public List<Booking> getBookingsInRange(Collection<String> classRooms, LocalDate from, LocalDate to) {
+        return bookingRepository.findByClassRoomsAndDates(classRooms, from, to);
+    }
+
+    /**
+     * Returns the highest number among the generated booking IDs ({@code lab<n>}).
+     *
+     * @return The highest generated number, or 0 if there are none.
+     */
+    @Override
+    public long getMaxGeneratedNumber() {
+        return bookingRepository.findMaxGeneratedNumber();
+    }
+
+    /**
+     * Retrieves a page of bookings sorted by date, time and ID. The cursor encodes the
+     * position of the last booking of the previous page, so every page costs the same
+     * regardless of its depth.
+     *
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of bookings in the page (between 1 and 500).
+     * @return The page of bookings and the cursor of the next page (null on the last page).
+     * @throws BookingServiceException If the cursor cannot be decoded.
+     */
+    @Override
+    public BookingPageDTO getBookingsPage(String cursor, int limit) throws BookingServiceException {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDate afterDate = null;
+        LocalTime afterTime = null;
+        String afterId = null;
+
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+                afterDate = LocalDate.parse(parts[0]);
+                afterTime = LocalTime.parse(parts[1]);
+                afterId = parts[2];
+            } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+                throw new BookingServiceException("Error: El cursor '" + cursor + "' no es válido.");
+            }
+        }
+
+        // Se pide un elemento extra para saber si existe una página siguiente
+        List<Booking> bookings = bookingRepository.findPageAfter(afterDate, afterTime, afterId, pageSize + 1);
+        if (bookings.size() <= pageSize) {
+            return new BookingPageDTO(bookings, null);
+        }
+
+        List<Booking> items = new ArrayList<>(bookings.subList(0, pageSize));
+        Booking last = items.get(pageSize - 1);
+        String position = last.getBookingDate() + "|" + last.getBookingTime() + "|" + last.getBookingId();
+        String next = Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        return new BookingPageDTO(items, next);
+    }
+
+    /**
+     * Streams all bookings from a database cursor without materializing the collection.
+     *
+     * @return A stream over all bookings that must be closed by the caller.
+     */
+    @Override
+    public Stream<Booking> streamAllBookings() {
+        return bookingRepository.streamAll();
+    }
+
     /**
      * Retrieves a list of bookings that are reserved by a specific user.
      *
@@ -125,10 +271,25 @@ public class BookingServiceImpl implements BookingService {
      */
     @Override
     public List<Booking> getBookingsByReservedBy(String userId) {
-        return bookingRepository.findAll()
-                .stream()
-                .filter(booking -> booking.getReservedBy() != null && booking.getReservedBy().equals(userId))
-                .collect(Collectors.toList());
+        return getBookingsByReservedBy(userId, null, null, null, null);
+    }
+
+    /**
+     * Retrieves the bookings reserved by a specific user, filtered and paginated in the database.
+     *
+     * @param userId The ID of the user whose bookings are to be retrieved.
+     * @param from The first booking date to include, or null for no lower bound.
+     * @param to The last booking date to include, or null for no upper bound.
+     * @param page The zero-based page to return, or null.
+     * @param size The page size, or null.
+     * @return A list of bookings where the reservedBy field matches the given userId.
+     */
+    @Override
+    public List<Booking> getBookingsByReservedBy(String userId, LocalDate from, LocalDate to, Integer page, Integer size) {
+        if (userId == null) {
+            return new ArrayList<>();
+        }
+        return bookingRepository.findByReservedBy(userId, from, to, page, size);
     }
 
     /**
@@ -139,57 +300,76 @@ public class BookingServiceImpl implements BookingService {
      */
     @Override
     public void deleteBooking(String bookingId) throws BookingServiceException {
-        bookingRepository.deleteById(bookingId);
+        Booking deleted = bookingRepository.deleteById(bookingId);
+        if (deleted != null) {
+            bookingSlotIndex.remove(deleted);
+        }
+    }
+
+    /**
+     * Deletes every booking matching the given filters with one database operation
+     * and drops the affected slot index buckets so they are reloaded on demand.
+     *
+     * @param classRoom The classroom to delete from, or null for all classrooms.
+     * @param from The first date to delete (inclusive), or null.
+     * @param to The last date to delete (inclusive), or null.
+     * @param generatedOnly Whether to delete only generated bookings.
+     * @return The number of deleted bookings.
+     */
+    @Override
+    public int deleteBookings(String classRoom, LocalDate from, LocalDate to, boolean generatedOnly) {
+        int deleted = bookingRepository.deleteMatching(classRoom, from, to, generatedOnly);
+        bookingSlotIndex.invalidate(classRoom);
+        return deleted;
     }
 
     /**
      * Activates a previously disabled booking and assigns it to a user.
+     * The state transition is a single conditional update; the current booking is
+     * only read when the update did not apply, to report the reason.
      *
      * @param bookingId The unique identifier of the booking to be activated.
      * @param userId The unique identifier of the user making the reservation.
      * @return The updated Booking object with the reservation details.
-     * @throws BookingServiceException If the booking is already active.
+     * @throws BookingServiceException If the booking does not exist or is already active.
      */
     @Override
     public Booking makeReservation(String bookingId, String userId) throws BookingServiceException {
-        Booking booking = bookingRepository.findById(bookingId);
+        Booking booking = bookingRepository.reserve(bookingId, userId); // Asignamos el userId a la reserva
 
-        if (!booking.isDisable()) {
+        if (booking == null) {
+            // Lanza "Booking Not found" si la reserva no existe
+            bookingRepository.findById(bookingId);
             throw new BookingServiceException("La reserva ya está activa.");
         }
 
-        booking.setDisable(false);
-        booking.setReservedBy(userId); // Asignamos el userId a la reserva
-        bookingRepository.update(booking);
         return booking;
     }
 
     /**
      * Cancels a reservation based on the provided booking ID and user ID.
+     * The state transition is a single conditional update; the current booking is
+     * only read when the update did not apply, to report the reason.
      *
      * @param bookingId The unique identifier of the booking to be canceled.
      * @param userId The unique identifier of the user attempting to cancel the booking.
      * @return The updated Booking object with the reservation canceled.
-     * @throws BookingServiceException If the reservation is already canceled or if the user
-     *         attempting to cancel the reservation is not the one who made it.
+     * @throws BookingServiceException If the booking does not exist, the reservation is already
+     *         canceled or the user attempting to cancel the reservation is not the one who made it.
      */
     @Override
     public Booking cancelReservation(String bookingId, String userId) throws BookingServiceException {
-        Booking booking = bookingRepository.findById(bookingId);
-
-        if (booking.isDisable()) {
-            throw new BookingServiceException("La reserva ya está cancelada.");
-        }
+        // Solo aplica si la reserva está activa y la hizo el mismo usuario (o nadie)
+        Booking booking = bookingRepository.release(bookingId, userId);
 
-        // Verificar que el usuario que cancela sea quien hizo la reserva
-        if (booking.getReservedBy() != null && !booking.getReservedBy().equals(userId)) {
+        if (booking == null) {
+            Booking current = bookingRepository.findById(bookingId);
+            if (current.isDisable()) {
+                throw new BookingServiceException("La reserva ya está cancelada.");
+            }
             throw new BookingServiceException("Solo el usuario que realizó la reserva puede cancelarla.");
         }
 
-        booking.setDisable(true);
-        // Eliminamos el reservedBy para que no quede asociado a ningún usuario
-        booking.setReservedBy(null);
-        bookingRepository.update(booking);
         return booking;
     }
 }
\ No newline at end of file
@@ -0,0 +1,314 @@
+package eci.edu.back.cvds_back.service.impl;
+
+import eci.edu.back.cvds_back.model.Booking;
+import eci.edu.back.cvds_back.service.interfaces.BookingRepository;
+import eci.edu.back.cvds_back.service.interfaces.BookingSlotIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * In-memory implementation of the BookingSlotIndex interface.
+ *
+ * <p>Each classroom/date pair owns a bucket: a sorted map from minute of the day to the
+ * number of bookings starting at that minute. The 2-hour rule is answered with a single
+ * {@code ceilingKey} lookup, i.e. in O(log n) for the bucket size.</p>
+ *
+ * <p>Population:</p>
+ * <ul>
+ *   <li>On {@link ApplicationReadyEvent} every booking is streamed once from the repository.</li>
+ *   <li>A bucket that is not resident (e.g. a date without bookings, or a lookup before the
+ *       warm-up finished) is loaded on demand with the classroom/date query and counted as a miss.</li>
+ *   <li>{@link BookingServiceImpl} keeps the buckets up to date on save and delete.</li>
+ * </ul>
+ *
+ * <p>Freshness and size:</p>
+ * <ul>
+ *   <li>Bookings written by another replica, or straight to the database, do not go through
+ *       this index. A bucket is therefore trusted for {@code ttl} after it was loaded and is
+ *       reloaded on the next lookup once it is older. Within that window the unique slot key
+ *       index still rejects a conflicting insert.</li>
+ *   <li>Once a minute, a sweep drops the expired buckets and those of past dates, so only
+ *       the buckets looked up recently stay resident.</li>
+ *   <li>At most {@code max-buckets} buckets are resident. When the index is full, a missing
+ *       bucket is loaded and answered but not kept, until the next sweep makes room.</li>
+ * </ul>
+ *
+ * Configuration:
+ * - booking.slot-index.ttl: How long a loaded bucket is trusted (default 30s).
+ * - booking.slot-index.max-buckets: Maximum resident buckets (default 100000).
+ *
+ * <p>Annotations:</p>
+ * <ul>
+ *   <li>{@code @Service}: Marks this class as a Spring service component.</li>
+ *   <li>{@code @Autowired}: Injects the BookingRepository dependency.</li>
+ * </ul>
+ */
+@Service
+public class BookingSlotIndexImpl implements BookingSlotIndex {
+    private static final Logger logger = LoggerFactory.getLogger(BookingSlotIndexImpl.class);
+    private static final int MIN_GAP_MINUTES = 120;
+    private static final long SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Value("${booking.slot-index.ttl:30s}")
+    private Duration ttl = Duration.ofSeconds(30);
+
+    @Value("${booking.slot-index.max-buckets:100000}")
+    private int maxBuckets = 100000;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private final ConcurrentMap<String, ConcurrentMap<LocalDate, Bucket>> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger residentBuckets = new AtomicInteger();
+    private final AtomicLong lastSweep = new AtomicLong(Long.MIN_VALUE);
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile boolean warmedUp = false;
+
+    /**
+     * Booked minutes of one classroom and date, with the time they were loaded.
+     */
+    private record Bucket(ConcurrentSkipListMap<Integer, Integer> minutes, long loadedAt) {}
+
+    /**
+     * Loads every existing booking from today on into the index once the application is ready,
+     * up to {@code max-buckets} buckets. Buckets already loaded on demand while the warm-up was
+     * running are kept as they are.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        LocalDate today = LocalDate.now();
+        Map<String, Map<LocalDate, ConcurrentSkipListMap<Integer, Integer>>> loaded = new HashMap<>();
+        try (Stream<Booking> bookings = bookingRepository.streamAll()) {
+            bookings.filter(booking -> !booking.getBookingDate().isBefore(today))
+                    .forEach(booking -> addTo(loaded
+                            .computeIfAbsent(booking.getBookingClassRoom(), k -> new HashMap<>())
+                            .computeIfAbsent(booking.getBookingDate(), k -> new ConcurrentSkipListMap<>()), booking.getBookingTime()));
+        } catch (RuntimeException e) {
+            logger.error("Error warming up the booking slot index, buckets will be loaded on demand", e);
+            return;
+        }
+
+        long now = clock.getAsLong();
+        loaded.forEach((classRoom, dates) -> dates.forEach((date, minutes) -> keep(classRoom, date, new Bucket(minutes, now))));
+        warmedUp = true;
+    }
+
+    /**
+     * Checks whether an existing booking in the same classroom and date starts less than
+     * 2 hours before or after the given time.
+     *
+     * @param classRoom The classroom of the candidate booking.
+     * @param date The date of the candidate booking.
+     * @param time The time of the candidate booking.
+     * @return true if the candidate booking conflicts with an existing one, false otherwise.
+     */
+    @Override
+    public boolean hasConflict(String classRoom, LocalDate date, LocalTime time) {
+        lookups.increment();
+        long now = clock.getAsLong();
+        sweepIfDue(now);
+
+        int minute = toMinute(time);
+        Integer nearest = lookup(classRoom, date, now).ceilingKey(minute - MIN_GAP_MINUTES + 1);
+        boolean conflict = nearest != null && nearest < minute + MIN_GAP_MINUTES;
+        if (conflict) conflicts.increment();
+        return conflict;
+    }
+
+    /**
+     * Registers a saved booking in its classroom/date bucket. A resident bucket is updated
+     * even if it expired, since a reload would already include the booking; a missing one is
+     * loaded first. Neither counts as a lookup.
+     *
+     * @param booking The saved booking.
+     */
+    @Override
+    public void add(Booking booking) {
+        Bucket bucket = resident(booking.getBookingClassRoom(), booking.getBookingDate());
+        if (bucket == null) {
+            bucket = load(booking.getBookingClassRoom(), booking.getBookingDate(), clock.getAsLong());
+            bucket = keep(booking.getBookingClassRoom(), booking.getBookingDate(), bucket);
+        }
+        addTo(bucket.minutes(), booking.getBookingTime());
+    }
+
+    /**
+     * Removes a deleted booking from its classroom/date bucket, if the bucket is resident.
+     *
+     * @param booking The deleted booking.
+     */
+    @Override
+    public void remove(Booking booking) {
+        Bucket bucket = resident(booking.getBookingClassRoom(), booking.getBookingDate());
+        if (bucket == null) return;
+
+        bucket.minutes().computeIfPresent(toMinute(booking.getBookingTime()), (minute, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Drops the resident buckets of a classroom, or all buckets when the classroom is null.
+     *
+     * @param classRoom The classroom to invalidate, or null for the whole index.
+     */
+    @Override
+    public void invalidate(String classRoom) {
+        if (classRoom == null) {
+            slots.clear();
+            residentBuckets.set(0);
+        } else {
+            ConcurrentMap<LocalDate, Bucket> dates = slots.remove(classRoom);
+            if (dates != null) residentBuckets.addAndGet(-dates.size());
+        }
+    }
+
+    /**
+     * Returns the index metrics.
+     *
+     * @return A map with the lookups, hits, misses, conflicts, evictions, number of classrooms,
+     *         number of resident buckets and number of indexed bookings.
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        long buckets = 0;
+        long entries = 0;
+        for (ConcurrentMap<LocalDate, Bucket> dates : slots.values()) {
+            buckets += dates.size();
+            for (Bucket bucket : dates.values()) {
+                for (Integer count : bucket.minutes().values()) entries += count;
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("warmedUp", warmedUp);
+        stats.put("lookups", lookups.sum());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("conflicts", conflicts.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("classrooms", slots.size());
+        stats.put("buckets", buckets);
+        stats.put("size", entries);
+        return stats;
+    }
+
+    /**
+     * Returns the booked minutes of a classroom and date for a lookup. A resident bucket
+     * younger than the TTL is a hit; otherwise the bucket is (re)loaded from the repository.
+     */
+    private ConcurrentSkipListMap<Integer, Integer> lookup(String classRoom, LocalDate date, long now) {
+        Bucket bucket = resident(classRoom, date);
+        if (bucket != null && now - bucket.loadedAt() < ttl.toMillis()) {
+            hits.increment();
+            return bucket.minutes();
+        }
+
+        misses.increment();
+        Bucket loaded = load(classRoom, date, now);
+        if (bucket != null) {
+            ConcurrentMap<LocalDate, Bucket> dates = slots.get(classRoom);
+            if (dates != null && dates.replace(date, bucket, loaded)) {
+                return loaded.minutes();
+            }
+        }
+        return keep(classRoom, date, loaded).minutes();
+    }
+
+    private Bucket resident(String classRoom, LocalDate date) {
+        ConcurrentMap<LocalDate, Bucket> dates = slots.get(classRoom);
+        return dates == null ? null : dates.get(date);
+    }
+
+    private Bucket load(String classRoom, LocalDate date, long now) {
+        ConcurrentSkipListMap<Integer, Integer> minutes = new ConcurrentSkipListMap<>();
+        for (Booking booking : bookingRepository.findByClassRoomAndDate(classRoom, date)) {
+            addTo(minutes, booking.getBookingTime());
+        }
+        return new Bucket(minutes, now);
+    }
+
+    /**
+     * Makes a loaded bucket resident unless the index is full.
+     *
+     * @return the resident bucket (a concurrently loaded one wins), or the given bucket if it was not kept
+     */
+    private Bucket keep(String classRoom, LocalDate date, Bucket bucket) {
+        if (residentBuckets.get() >= maxBuckets) {
+            return bucket;
+        }
+        Bucket previous = slots.computeIfAbsent(classRoom, k -> new ConcurrentHashMap<>()).putIfAbsent(date, bucket);
+        if (previous != null) {
+            return previous;
+        }
+        residentBuckets.incrementAndGet();
+        return bucket;
+    }
+
+    /**
+     * Drops the expired buckets and those of past dates once per sweep interval, and
+     * recounts the resident buckets. Only one caller runs the sweep.
+     */
+    private void sweepIfDue(long now) {
+        long last = lastSweep.get();
+        if (last == Long.MIN_VALUE) {
+            lastSweep.compareAndSet(last, now);
+            return;
+        }
+        if (now - last < SWEEP_INTERVAL_MILLIS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        long ttlMillis = ttl.toMillis();
+        int remaining = 0;
+        for (Map.Entry<String, ConcurrentMap<LocalDate, Bucket>> entry : slots.entrySet()) {
+            ConcurrentMap<LocalDate, Bucket> dates = entry.getValue();
+            dates.forEach((date, bucket) -> {
+                if ((date.isBefore(today) || now - bucket.loadedAt() >= ttlMillis) && dates.remove(date, bucket)) {
+                    evictions.increment();
+                }
+            });
+            if (dates.isEmpty()) {
+                slots.remove(entry.getKey(), dates);
+            } else {
+                remaining += dates.size();
+            }
+        }
+        residentBuckets.set(remaining);
+    }
+
+    private static void addTo(ConcurrentSkipListMap<Integer, Integer> bucket, LocalTime time) {
+        bucket.merge(toMinute(time), 1, Integer::sum);
+    }
+
+    private static int toMinute(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
@@ -0,0 +1,99 @@
+package eci.edu.back.cvds_back.service.impl;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Set of free slot ordinals in the range {@code [0, capacity)} that supports
+ * O(1) insertion, removal, membership checks and uniform random extraction
+ * without allocating.
+ *
+ * Free ordinals are kept densely packed at the front of {@code slots}; a
+ * second array maps each ordinal to its position so removal can swap the
+ * last free ordinal into the gap.
+ *
+ * This class is not thread-safe. Each generation run owns its own pool.
+ */
+public final class FreeSlotPool {
+
+    private final int[] slots;
+    private final int[] positions;
+    private int size;
+
+    /**
+     * Creates an empty pool for ordinals in {@code [0, capacity)}.
+     *
+     * @param capacity the number of distinct slot ordinals
+     */
+    public FreeSlotPool(int capacity) {
+        this.slots = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Marks a slot as free.
+     *
+     * @param slot the slot ordinal
+     * @return {@code true} if the slot was not already free
+     */
+    public boolean add(int slot) {
+        if (positions[slot] >= 0) return false;
+        slots[size] = slot;
+        positions[slot] = size++;
+        return true;
+    }
+
+    /**
+     * Marks a slot as taken.
+     *
+     * @param slot the slot ordinal
+     * @return {@code true} if the slot was free
+     */
+    public boolean remove(int slot) {
+        int position = positions[slot];
+        if (position < 0) return false;
+        int last = slots[--size];
+        slots[position] = last;
+        positions[last] = position;
+        positions[slot] = -1;
+        return true;
+    }
+
+    /**
+     * Checks whether a slot is free.
+     *
+     * @param slot the slot ordinal
+     * @return {@code true} if the slot is free
+     */
+    public boolean contains(int slot) {
+        return positions[slot] >= 0;
+    }
+
+    /**
+     * Removes and returns a uniformly chosen free slot.
+     *
+     * @param random the random source
+     * @return the slot ordinal, or {@code -1} if the pool is empty
+     */
+    public int takeRandom(RandomGenerator random) {
+        if (size == 0) return -1;
+        int slot = slots[random.nextInt(size)];
+        remove(slot);
+        return slot;
+    }
+
+    /**
+     * @return the number of free slots
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if no slot is free
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,166 @@
+package eci.edu.back.cvds_back.service.impl;
+
+import eci.edu.back.cvds_back.dto.GenerationJobDTO;
+import eci.edu.back.cvds_back.model.Booking;
+import eci.edu.back.cvds_back.service.interfaces.GenerationProgress;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * State of a background generation or clearing job.
+ *
+ * Workers report progress through the {@link GenerationProgress} methods; the
+ * counters are LongAdders, so parallel workers can update them without contention.
+ * The status and timestamps are volatile and only written by the job's own thread,
+ * except for the cancellation flag, which any request thread may set.
+ */
+public class GenerationJob implements GenerationProgress {
+
+    /**
+     * Lifecycle of a job: QUEUED, then RUNNING, then one of the final states.
+     */
+    public enum Status {QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED}
+
+    private final String jobId;
+    private final String type;
+    private volatile int target;
+    private final long createdAt = System.currentTimeMillis();
+
+    private final LongAdder attempted = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private volatile long removed;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile boolean cancelRequested;
+    private volatile long startedAtNanos;
+    private volatile long finishedAtNanos;
+    private volatile String error;
+
+    /**
+     * Constructs a queued job.
+     *
+     * @param jobId The job ID.
+     * @param type The kind of job, "generate" or "clear".
+     * @param target The number of bookings requested, or 0 for clearing jobs. Generation
+     *               replaces it with the resolved target once the run starts.
+     */
+    public GenerationJob(String jobId, String type, int target) {
+        this.jobId = jobId;
+        this.type = type;
+        this.target = target;
+    }
+
+    @Override
+    public void target(int target) {
+        this.target = target;
+    }
+
+    @Override
+    public void attempted(int count) {
+        attempted.add(count);
+    }
+
+    @Override
+    public void stored(List<Booking> stored, int rejected) {
+        generated.add(stored.size());
+        conflicts.add(rejected);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    /**
+     * Requests cancellation. Running generation jobs stop after their current batch;
+     * queued jobs are skipped when they reach the executor.
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    /**
+     * Marks the job as started.
+     */
+    public void start() {
+        startedAtNanos = System.nanoTime();
+        status = Status.RUNNING;
+    }
+
+    /**
+     * Marks the job as finished: CANCELLED if cancellation was requested, COMPLETED otherwise.
+     */
+    public void finish() {
+        finishedAtNanos = System.nanoTime();
+        status = cancelRequested ? Status.CANCELLED : Status.COMPLETED;
+    }
+
+    /**
+     * Marks the job as failed.
+     *
+     * @param e The error that stopped the job.
+     */
+    public void fail(Exception e) {
+        finishedAtNanos = System.nanoTime();
+        error = e.getMessage();
+        status = Status.FAILED;
+    }
+
+    /**
+     * Records the number of bookings removed by a clearing job.
+     *
+     * @param removed The number of removed bookings.
+     */
+    public void setRemoved(long removed) {
+        this.removed = removed;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return true if the job is in a final state.
+     */
+    public boolean isFinished() {
+        Status current = status;
+        return current == Status.COMPLETED || current == Status.CANCELLED || current == Status.FAILED;
+    }
+
+    /**
+     * Takes a snapshot of the job.
+     *
+     * @return The job state, with the elapsed time and throughput computed at this moment.
+     */
+    public GenerationJobDTO toDTO() {
+        GenerationJobDTO dto = new GenerationJobDTO();
+        dto.setJobId(jobId);
+        dto.setType(type);
+        dto.setStatus(status.name());
+        dto.setTarget(target);
+        dto.setAttempted(attempted.sum());
+        dto.setGenerated(generated.sum());
+        dto.setConflicts(conflicts.sum());
+        dto.setRemoved(removed);
+        dto.setError(error);
+
+        long start = startedAtNanos;
+        if (start != 0) {
+            long end = finishedAtNanos != 0 ? finishedAtNanos : System.nanoTime();
+            long elapsedNanos = Math.max(end - start, 1);
+            dto.setElapsedMillis(elapsedNanos / 1_000_000);
+            dto.setThroughput(dto.getGenerated() * 1_000_000_000.0 / elapsedNanos);
+        }
+        return dto;
+    }
+}
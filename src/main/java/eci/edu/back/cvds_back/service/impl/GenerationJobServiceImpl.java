@@ -0,0 +1,191 @@
+package eci.edu.back.cvds_back.service.impl;
+
+import eci.edu.back.cvds_back.dto.GenerationJobDTO;
+import eci.edu.back.cvds_back.dto.GenerationRequestDTO;
+import eci.edu.back.cvds_back.service.interfaces.BookingGeneratorService;
+import eci.edu.back.cvds_back.service.interfaces.GenerationJobService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of the GenerationJobService interface that runs generation and
+ * clearing on a small dedicated thread pool, so HTTP requests return immediately
+ * with a job ID instead of holding a Tomcat worker for the whole run.
+ *
+ * Jobs are kept in memory on the node that started them. Finished jobs beyond
+ * {@value #MAX_RETAINED_JOBS} are evicted, oldest first. Jobs waiting for a thread
+ * are held in a bounded queue: a job is refused with a RejectedExecutionException
+ * when the queue is full, or when {@value #MAX_RETAINED_JOBS} unfinished jobs are
+ * already retained, so at most {@value #MAX_RETAINED_JOBS} jobs are ever kept.
+ *
+ * Dependencies:
+ * - BookingGeneratorService: Performs the actual generation and clearing.
+ *
+ * Configuration:
+ * - booking.generator.jobs.threads: Number of jobs that may run at the same time (default 2).
+ * - booking.generator.jobs.queue-capacity: Number of jobs that may wait for a thread (default 10).
+ */
+@Service
+public class GenerationJobServiceImpl implements GenerationJobService {
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobServiceImpl.class);
+    public static final int MAX_RETAINED_JOBS = 100;
+
+    @Autowired
+    private BookingGeneratorService bookingGeneratorService;
+
+    @Value("${booking.generator.jobs.threads:2}")
+    private int threads = 2;
+
+    @Value("${booking.generator.jobs.queue-capacity:10}")
+    private int queueCapacity = 10;
+
+    private Executor executor;
+    private final ConcurrentMap<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the bounded job thread pool.
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "generation-job-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Stops the job thread pool, interrupting running jobs.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts a background generation job.
+     *
+     * @param request The number of bookings to generate and the number of parallel workers.
+     * @return A snapshot of the new job.
+     * @throws RejectedExecutionException If the job queue or the retained jobs are full.
+     */
+    @Override
+    public GenerationJobDTO startGeneration(GenerationRequestDTO request) {
+        GenerationJob job = register("generate", request.getCount());
+        submit(job, () -> bookingGeneratorService.generateBookings(request, job));
+        return job.toDTO();
+    }
+
+    /**
+     * Starts a background job that clears the bookings matching the given filters.
+     *
+     * @param classroom The classroom to clear, or null for all classrooms.
+     * @param from The first date to clear (inclusive), or null.
+     * @param to The last date to clear (inclusive), or null.
+     * @param generatedOnly Whether to clear only generated bookings.
+     * @return A snapshot of the new job.
+     * @throws RejectedExecutionException If the job queue or the retained jobs are full.
+     */
+    @Override
+    public GenerationJobDTO startClear(String classroom, LocalDate from, LocalDate to, boolean generatedOnly) {
+        GenerationJob job = register("clear", 0);
+        submit(job, () -> job.setRemoved(bookingGeneratorService.clearBookings(classroom, from, to, generatedOnly)));
+        return job.toDTO();
+    }
+
+    /**
+     * Returns the current state of a job.
+     *
+     * @param jobId The job ID.
+     * @return A snapshot of the job, or null if no such job is known.
+     */
+    @Override
+    public GenerationJobDTO getJob(String jobId) {
+        GenerationJob job = jobs.get(jobId);
+        return job == null ? null : job.toDTO();
+    }
+
+    /**
+     * Requests the cancellation of a job. A running generation job stops after the
+     * batch it is writing; a queued job is skipped. Finished jobs are not affected.
+     *
+     * @param jobId The job ID.
+     * @return A snapshot of the job, or null if no such job is known.
+     */
+    @Override
+    public GenerationJobDTO cancelJob(String jobId) {
+        GenerationJob job = jobs.get(jobId);
+        if (job == null) return null;
+
+        if (!job.isFinished()) {
+            job.cancel();
+        }
+        return job.toDTO();
+    }
+
+    private synchronized GenerationJob register(String type, int target) {
+        evictFinishedJobs();
+        if (jobs.size() >= MAX_RETAINED_JOBS) {
+            throw new RejectedExecutionException("Demasiados trabajos en curso, intente más tarde");
+        }
+        GenerationJob job = new GenerationJob(UUID.randomUUID().toString(), type, target);
+        jobs.put(job.getJobId(), job);
+        return job;
+    }
+
+    private void submit(GenerationJob job, Runnable work) {
+        try {
+            executor.execute(() -> {
+                job.start();
+                try {
+                    if (!job.isCancelled()) {
+                        work.run();
+                    }
+                    job.finish();
+                } catch (RuntimeException e) {
+                    logger.error("Generation job {} failed", job.getJobId(), e);
+                    job.fail(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobId());
+            throw new RejectedExecutionException("Demasiados trabajos en cola, intente más tarde", e);
+        }
+    }
+
+    /**
+     * Drops the oldest finished jobs while more than {@value #MAX_RETAINED_JOBS} jobs are retained.
+     */
+    private void evictFinishedJobs() {
+        int excess = jobs.size() - MAX_RETAINED_JOBS + 1;
+        if (excess <= 0) return;
+
+        jobs.values().stream()
+                .filter(GenerationJob::isFinished)
+                .sorted(Comparator.comparingLong(GenerationJob::getCreatedAt))
+                .limit(excess)
+                .forEach(job -> jobs.remove(job.getJobId()));
+    }
+}
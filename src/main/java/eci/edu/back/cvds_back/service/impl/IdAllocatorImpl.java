@@ -0,0 +1,128 @@
+package eci.edu.back.cvds_back.service.impl;
+
+import eci.edu.back.cvds_back.model.Counter;
+import eci.edu.back.cvds_back.service.interfaces.IdAllocator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Implementation of the IdAllocator interface backed by the "counters" collection.
+ *
+ * Instead of one database round trip per value, each node reserves a block of
+ * {@code booking.id-allocator.block-size} values with a single atomic $inc and hands
+ * them out from memory. Blocks reserved by different nodes never overlap; values
+ * left unused in a block when a node stops are simply skipped.
+ *
+ * Thread Safety:
+ * - Each sequence has its own block, and handing out values from it is synchronized on that block.
+ */
+@Service
+public class IdAllocatorImpl implements IdAllocator {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${booking.id-allocator.block-size:1000}")
+    private int blockSize = 1000;
+
+    private final ConcurrentMap<String, Block> blocks = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the next value of a sequence, reserving a new block from the database
+     * when the current one is exhausted.
+     *
+     * @param sequence The name of the sequence.
+     * @return The next value of the sequence.
+     */
+    @Override
+    public long next(String sequence) {
+        Block block = blocks.computeIfAbsent(sequence, k -> new Block());
+        synchronized (block) {
+            if (block.next > block.last) {
+                block.last = reserveBlock(sequence);
+                block.next = block.last - blockSize + 1;
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * Checks whether the counter document of a sequence exists.
+     *
+     * @param sequence The name of the sequence.
+     * @return true if the sequence exists, false otherwise.
+     */
+    @Override
+    public boolean exists(String sequence) {
+        return mongoTemplate.exists(byName(sequence), Counter.class);
+    }
+
+    /**
+     * Raises the counter of a sequence to at least the given value with an atomic
+     * $max upsert, so concurrent seeding from several nodes is harmless.
+     *
+     * The values of this node's current block up to the given value are in use as well,
+     * so they are skipped; a block lying entirely below it is discarded and the next call
+     * reserves a fresh one above the raised counter.
+     *
+     * @param sequence The name of the sequence.
+     * @param value The highest value already in use.
+     */
+    @Override
+    public void ensureAtLeast(String sequence, long value) {
+        try {
+            mongoTemplate.upsert(byName(sequence), new Update().max("value", value), Counter.class);
+        } catch (DuplicateKeyException e) {
+            // Another node created the counter concurrently; $max is idempotent, so apply it again.
+            mongoTemplate.upsert(byName(sequence), new Update().max("value", value), Counter.class);
+        }
+
+        Block block = blocks.get(sequence);
+        if (block != null) {
+            synchronized (block) {
+                block.next = Math.max(block.next, value + 1);
+            }
+        }
+    }
+
+    /**
+     * Atomically advances a sequence by one block.
+     *
+     * @param sequence The name of the sequence.
+     * @return The last value of the reserved block.
+     */
+    private long reserveBlock(String sequence) {
+        FindAndModifyOptions options = FindAndModifyOptions.options().returnNew(true).upsert(true);
+        Update update = new Update().inc("value", blockSize);
+        Counter counter;
+        try {
+            counter = mongoTemplate.findAndModify(byName(sequence), update, options, Counter.class);
+        } catch (DuplicateKeyException e) {
+            // Concurrent upsert of a missing counter; the document exists now.
+            counter = mongoTemplate.findAndModify(byName(sequence), update, options, Counter.class);
+        }
+        return counter.getValue();
+    }
+
+    private static Query byName(String sequence) {
+        return new Query(Criteria.where("_id").is(sequence));
+    }
+
+    /**
+     * Range of values reserved by this node: next to last, inclusive.
+     */
+    private static final class Block {
+        private long next = 1;
+        private long last = 0;
+    }
+}
@@ -0,0 +1,188 @@
+package eci.edu.back.cvds_back.service.impl;
+
+import eci.edu.back.cvds_back.service.interfaces.LoginRateLimiter;
+import eci.edu.back.cvds_back.util.StripedLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket implementation of the LoginRateLimiter interface.
+ *
+ * <p>Every user ID and every client IP owns a bucket that holds up to {@code capacity}
+ * attempts and regains {@code refill-per-minute} attempts per minute. The bucket state is
+ * updated with compare-and-set, so concurrent logins of the same user never block each
+ * other. The buckets are held in a {@link StripedLruCache}: only the segment of the key is
+ * locked, and only for the O(1) lookup or insertion, so logins of different users rarely
+ * wait on each other.</p>
+ *
+ * <p>A bucket that has refilled completely carries no information and is evicted by the
+ * periodic sweep, which locks one segment at a time. Each map is bounded by
+ * {@code max-buckets} and every segment is kept in least-recently-used order: when it is
+ * full, a new key evicts the bucket of that segment used longest ago, without scanning.
+ * An attacker rotating user IDs therefore evicts its own stale buckets before the recently
+ * attacked ones, and memory stays bounded.</p>
+ *
+ * <p>The client IP is the address Spring resolves for the request. Behind a reverse proxy,
+ * {@code server.forward-headers-strategy} makes it the forwarded client address instead of
+ * the proxy's. Clients behind the campus NAT still share one address, so the IP limit is
+ * sized for many users and the per-user limit does the fine-grained throttling.</p>
+ *
+ * Configuration:
+ * - security.login.rate-limit.user.capacity / user.refill-per-minute: Attempts per user ID (default 5 / 5).
+ * - security.login.rate-limit.ip.capacity / ip.refill-per-minute: Attempts per client IP (default 100 / 100).
+ * - security.login.rate-limit.max-buckets: Maximum buckets tracked per map (default 100000).
+ */
+@Service
+public class LoginRateLimiterImpl implements LoginRateLimiter {
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    @Value("${security.login.rate-limit.user.capacity:5}")
+    private int userCapacity = 5;
+
+    @Value("${security.login.rate-limit.user.refill-per-minute:5}")
+    private int userRefillPerMinute = 5;
+
+    @Value("${security.login.rate-limit.ip.capacity:100}")
+    private int ipCapacity = 100;
+
+    @Value("${security.login.rate-limit.ip.refill-per-minute:100}")
+    private int ipRefillPerMinute = 100;
+
+    @Value("${security.login.rate-limit.max-buckets:100000}")
+    private int maxBuckets = 100000;
+
+    private LongSupplier clock = System::nanoTime;
+
+    private final StripedLruCache<TokenBucket> userBuckets = new StripedLruCache<>(() -> maxBuckets);
+    private final StripedLruCache<TokenBucket> ipBuckets = new StripedLruCache<>(() -> maxBuckets);
+    private final AtomicLong lastSweep = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Bucket state: available attempts and the time they were last refilled.
+     */
+    private record State(double tokens, long refilledAt) {}
+
+    /**
+     * Lock-free token bucket. The state is replaced as a whole with compare-and-set.
+     */
+    private static final class TokenBucket {
+        private final AtomicReference<State> state;
+
+        TokenBucket(int capacity, long now) {
+            state = new AtomicReference<>(new State(capacity, now));
+        }
+
+        boolean tryConsume(int capacity, int refillPerMinute, long now) {
+            while (true) {
+                State current = state.get();
+                double tokens = available(current, capacity, refillPerMinute, now);
+                if (tokens < 1) {
+                    return false;
+                }
+                if (state.compareAndSet(current, new State(tokens - 1, Math.max(now, current.refilledAt())))) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isFull(int capacity, int refillPerMinute, long now) {
+            return available(state.get(), capacity, refillPerMinute, now) >= capacity;
+        }
+
+        long nanosUntilNextAttempt(int capacity, int refillPerMinute, long now) {
+            double missing = 1 - available(state.get(), capacity, refillPerMinute, now);
+            return missing <= 0 ? 0 : (long) Math.ceil(missing * TimeUnit.MINUTES.toNanos(1) / Math.max(1, refillPerMinute));
+        }
+
+        private static double available(State state, int capacity, int refillPerMinute, long now) {
+            long elapsed = Math.max(0, now - state.refilledAt());
+            return Math.min(capacity, state.tokens() + (double) elapsed * refillPerMinute / TimeUnit.MINUTES.toNanos(1));
+        }
+    }
+
+    /**
+     * Takes one attempt from the user bucket and one from the IP bucket. The IP is checked
+     * first, so a rejected address does not use up the attempts of the users it targets.
+     *
+     * @param userId The user ID of the attempt.
+     * @param clientIp The IP address the attempt comes from.
+     * @return true if the attempt may proceed, false otherwise.
+     */
+    @Override
+    public boolean tryAcquire(String userId, String clientIp) {
+        long now = clock.getAsLong();
+        sweepIfDue(now);
+
+        boolean granted = consume(ipBuckets, String.valueOf(clientIp), ipCapacity, ipRefillPerMinute, now)
+                && consume(userBuckets, String.valueOf(userId), userCapacity, userRefillPerMinute, now);
+        (granted ? allowed : rejected).increment();
+        return granted;
+    }
+
+    private boolean consume(StripedLruCache<TokenBucket> buckets, String key, int capacity, int refillPerMinute, long now) {
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, now)).tryConsume(capacity, refillPerMinute, now);
+    }
+
+    /**
+     * Evicts the refilled buckets once per sweep interval. Only one caller runs the sweep,
+     * and it locks one segment at a time.
+     */
+    private void sweepIfDue(long now) {
+        long last = lastSweep.get();
+        if (last == Long.MIN_VALUE) {
+            lastSweep.compareAndSet(last, now);
+        } else if (now - last >= SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(last, now)) {
+            userBuckets.removeIf(bucket -> bucket.isFull(userCapacity, userRefillPerMinute, now));
+            ipBuckets.removeIf(bucket -> bucket.isFull(ipCapacity, ipRefillPerMinute, now));
+        }
+    }
+
+    /**
+     * Returns the time the bucket that refused an attempt needs to regain one. The IP
+     * bucket is checked first, as in {@link #tryAcquire(String, String)}.
+     *
+     * @param userId The user ID of the refused attempt.
+     * @param clientIp The IP address the refused attempt came from.
+     * @return The number of seconds, at least 1.
+     */
+    @Override
+    public long getRetryAfterSeconds(String userId, String clientIp) {
+        long now = clock.getAsLong();
+        long wait = nanosUntilNextAttempt(ipBuckets, String.valueOf(clientIp), ipCapacity, ipRefillPerMinute, now);
+        if (wait == 0) {
+            wait = nanosUntilNextAttempt(userBuckets, String.valueOf(userId), userCapacity, userRefillPerMinute, now);
+        }
+        return Math.max(1, (long) Math.ceil((double) wait / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private long nanosUntilNextAttempt(StripedLruCache<TokenBucket> buckets, String key, int capacity, int refillPerMinute, long now) {
+        TokenBucket bucket = buckets.get(key);
+        return bucket == null ? 0 : bucket.nanosUntilNextAttempt(capacity, refillPerMinute, now);
+    }
+
+    /**
+     * Returns the limiter metrics.
+     *
+     * @return A map with the allowed and rejected attempts, the tracked buckets and the evictions.
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("allowed", allowed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("userBuckets", userBuckets.size());
+        stats.put("ipBuckets", ipBuckets.size());
+        stats.put("evictions", userBuckets.evictions() + ipBuckets.evictions());
+        return stats;
+    }
+}
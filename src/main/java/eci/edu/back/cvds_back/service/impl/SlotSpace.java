@@ -0,0 +1,104 @@
+package eci.edu.back.cvds_back.service.impl;
+
+import java.time.LocalDate;
+
+/**
+ * The (classroom, day, hour) slots a generation run may book, encoded as int
+ * ordinals in the range {@code [0, capacity())}.
+ *
+ * A slot is encoded as
+ * {@code (classroomIndex * days + dayOffset) * hours.length + hourIndex},
+ * so all the slots of a classroom and day are contiguous and no slot is ever
+ * materialized as an object.
+ *
+ * Instances are immutable and may be shared between threads.
+ */
+public final class SlotSpace {
+
+    private final String[] rooms;
+    private final LocalDate startDate;
+    private final int days;
+    private final int[] hours;
+    private final int capacity;
+
+    /**
+     * Creates a slot space.
+     *
+     * @param rooms     the classrooms, in ordinal order
+     * @param startDate the date of day offset 0
+     * @param days      the number of days from {@code startDate}
+     * @param hours     the bookable hours of each day, in ascending order
+     * @throws IllegalArgumentException if the space does not fit in an int ordinal
+     */
+    public SlotSpace(String[] rooms, LocalDate startDate, int days, int[] hours) {
+        this.rooms = rooms;
+        this.startDate = startDate;
+        this.days = days;
+        this.hours = hours;
+        try {
+            this.capacity = Math.multiplyExact(Math.multiplyExact(rooms.length, days), hours.length);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Error: El espacio de franjas es demasiado grande.");
+        }
+    }
+
+    /**
+     * Creates a slot space with the same days and hours over other classrooms.
+     *
+     * @param rooms the classrooms of the new space
+     * @return the new slot space
+     */
+    public SlotSpace withRooms(String[] rooms) {
+        return new SlotSpace(rooms, startDate, days, hours);
+    }
+
+    /**
+     * @return the number of slots
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    public int ordinal(int classroomIndex, int dayOffset, int hourIndex) {
+        return (classroomIndex * days + dayOffset) * hours.length + hourIndex;
+    }
+
+    public int classroomIndex(int slot) {
+        return slot / hours.length / days;
+    }
+
+    public int dayOffset(int slot) {
+        return slot / hours.length % days;
+    }
+
+    public int hourIndex(int slot) {
+        return slot % hours.length;
+    }
+
+    public String classroom(int slot) {
+        return rooms[classroomIndex(slot)];
+    }
+
+    public LocalDate date(int slot) {
+        return startDate.plusDays(dayOffset(slot));
+    }
+
+    public int hour(int slot) {
+        return hours[hourIndex(slot)];
+    }
+
+    /**
+     * Checks whether a date falls inside the days of this space.
+     *
+     * @param date the date
+     * @return {@code true} if {@code startDate <= date < startDate + days}
+     */
+    public boolean covers(LocalDate date) {
+        return !date.isBefore(startDate) && date.isBefore(startDate.plusDays(days));
+    }
+
+    public String[] getRooms() {return rooms;}
+    public LocalDate getStartDate() {return startDate;}
+    public int getDays() {return days;}
+    public int[] getHours() {return hours;}
+}
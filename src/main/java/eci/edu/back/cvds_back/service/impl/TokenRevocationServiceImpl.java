@@ -0,0 +1,270 @@
+package eci.edu.back.cvds_back.service.impl;
+
+import eci.edu.back.cvds_back.model.RevokedToken;
+import eci.edu.back.cvds_back.service.interfaces.RevokedTokenMongoRepository;
+import eci.edu.back.cvds_back.service.interfaces.TokenRevocationService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory implementation of the TokenRevocationService interface.
+ *
+ * <p>Revoked tokens are kept in an exact map from {@code jti} to expiration, fronted by a
+ * Bloom filter. Almost every token checked is not revoked, and the filter answers those
+ * with a few bit reads and no lock; only a filter hit is confirmed against the map, which
+ * sorts out the false positives.</p>
+ *
+ * <p>A Bloom filter cannot forget entries, so expired revocations are purged from the map
+ * and the filter is rebuilt from the live entries on every sync.</p>
+ *
+ * <p>When persistence is enabled, revocations are also stored in the "revoked_tokens"
+ * collection, where a TTL index drops them at token expiry. Every sync interval a
+ * background thread reloads the live revocations, so a token revoked on one node is denied
+ * by every node; requests themselves never query the database.</p>
+ *
+ * Configuration:
+ * - security.revocation.bloom-bits: Size of the Bloom filter in bits (default 1048576).
+ * - security.revocation.bloom-hashes: Number of bits set per token (default 7).
+ * - security.revocation.persist: Whether revocations are stored in MongoDB (default true).
+ * - security.revocation.sync-interval: Interval between reloads from MongoDB (default 30s).
+ */
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationServiceImpl.class);
+
+    @Autowired
+    private RevokedTokenMongoRepository revokedTokenRepository;
+
+    @Value("${security.revocation.bloom-bits:1048576}")
+    private int bloomBits = 1 << 20;
+
+    @Value("${security.revocation.bloom-hashes:7}")
+    private int bloomHashes = 7;
+
+    @Value("${security.revocation.persist:true}")
+    private boolean persist = true;
+
+    @Value("${security.revocation.sync-interval:30s}")
+    private Duration syncInterval = Duration.ofSeconds(30);
+
+    private final ConcurrentMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloom;
+    private ScheduledExecutorService syncExecutor;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder bloomHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * Bloom filter over token IDs. Bits are only ever set, with atomic updates, so
+     * lookups need no lock.
+     */
+    private static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final int bits;
+        private final int hashes;
+
+        BloomFilter(int bits, int hashes) {
+            this.words = new AtomicLongArray((bits + 63) / 64);
+            this.bits = words.length() * 64;
+            this.hashes = hashes;
+        }
+
+        void add(String jti) {
+            long h1 = hash(jti);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (int) Math.floorMod(h1 + i * h2, (long) bits);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long current;
+                while (((current = words.get(word)) & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                    // Otro hilo cambió la palabra: se reintenta
+                }
+            }
+        }
+
+        boolean mightContain(String jti) {
+            long h1 = hash(jti);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (int) Math.floorMod(h1 + i * h2, (long) bits);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a de 64 bits seguido del mezclador final de MurmurHash3
+        private static long hash(String jti) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : jti.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+
+    /**
+     * Loads the persisted revocations and starts the periodic sync once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        sync();
+        if (persist) {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "token-revocation-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = syncInterval.toMillis();
+            syncExecutor.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the sync thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges the revocations persisted by every node, purges the expired ones and
+     * rebuilds the Bloom filter from the live entries.
+     */
+    public void sync() {
+        long now = System.currentTimeMillis();
+        if (persist) {
+            try {
+                for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(new Date(now))) {
+                    revoked.putIfAbsent(token.getJti(), token.getExpiresAt().getTime());
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error loading revoked tokens, keeping the local deny list", e);
+            }
+        }
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        rebuild();
+    }
+
+    /**
+     * Replaces the Bloom filter with one built from the current entries. Synchronized
+     * with {@link #revoke(String, Date)} so no revocation is lost while the filter is swapped.
+     */
+    private synchronized void rebuild() {
+        BloomFilter filter = new BloomFilter(bloomBits, bloomHashes);
+        revoked.keySet().forEach(filter::add);
+        bloom = filter;
+        rebuilds.increment();
+    }
+
+    /**
+     * Revokes a token until it expires and persists the revocation if enabled.
+     *
+     * @param jti The unique identifier of the token.
+     * @param expiresAt The expiration of the token.
+     */
+    @Override
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        synchronized (this) {
+            revoked.put(jti, expiresAt.getTime());
+            filter().add(jti);
+        }
+        if (persist) {
+            revokedTokenRepository.save(new RevokedToken(jti, expiresAt));
+        }
+    }
+
+    /**
+     * Checks whether a token has been revoked. A Bloom filter miss answers without
+     * touching the map; a hit is confirmed against it.
+     *
+     * @param jti The unique identifier of the token.
+     * @return true if the token is revoked and not expired, false otherwise.
+     */
+    @Override
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        checks.increment();
+        if (!filter().mightContain(jti)) {
+            return false;
+        }
+
+        bloomHits.increment();
+        Long expiresAt = revoked.get(jti);
+        if (expiresAt == null) {
+            falsePositives.increment();
+            return false;
+        }
+        return expiresAt > System.currentTimeMillis();
+    }
+
+    private BloomFilter filter() {
+        BloomFilter filter = bloom;
+        if (filter == null) {
+            synchronized (this) {
+                if (bloom == null) {
+                    bloom = new BloomFilter(bloomBits, bloomHashes);
+                }
+                filter = bloom;
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Returns the deny list metrics.
+     *
+     * @return A map with the checks, Bloom filter hits, false positives, rebuilds and size.
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("checks", checks.sum());
+        stats.put("bloomHits", bloomHits.sum());
+        stats.put("falsePositives", falsePositives.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("size", revoked.size());
+        stats.put("bloomBits", bloomBits);
+        return stats;
+    }
+}
@@ -1,10 +1,14 @@
 package eci.edu.back.cvds_back.service.impl;
 
 import eci.edu.back.cvds_back.config.UserServiceException;
+import eci.edu.back.cvds_back.dto.UserSummaryDTO;
 import eci.edu.back.cvds_back.model.User;
 import eci.edu.back.cvds_back.service.interfaces.UserMongoRepository;
 import eci.edu.back.cvds_back.service.interfaces.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -19,6 +23,7 @@ import java.util.Optional;
  * <ul>
  *   <li>{@link #save(User)}: Saves a User object to the database.</li>
  *   <li>{@link #findAll()}: Retrieves all User objects from the database.</li>
+ *   <li>{@link #findSummaries(Integer, Integer)}: Retrieves a page of users without their credentials.</li>
  *   <li>{@link #findById(String)}: Finds a User by its ID, throws an exception if not found.</li>
  *   <li>{@link #deleteById(String)}: Deletes a User by its ID.</li>
  * </ul>
@@ -39,6 +44,10 @@ public class UserRepositoryImpl implements UserRepository{
     @Autowired
     private UserMongoRepository userMongoRepository;
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final Sort BY_USER_ID = Sort.by("userId");
+
     /**
      * Saves the given user entity to the database.
      *
@@ -59,6 +68,27 @@ public class UserRepositoryImpl implements UserRepository{
         return userMongoRepository.findAll();
     }
 
+    /**
+     * Retrieves users projected to their ID and email, sorted by ID. The page size is
+     * capped at {@value #MAX_PAGE_SIZE}.
+     *
+     * @param page the zero-based page to return, or null
+     * @param size the page size, or null; when both page and size are null all users are returned
+     * @return the projected users of the page
+     * @throws IllegalArgumentException if the page is negative or the size is less than 1
+     */
+    @Override
+    public List<UserSummaryDTO> findSummaries(Integer page, Integer size) {
+        if ((page != null && page < 0) || (size != null && size < 1)) {
+            throw new IllegalArgumentException("Error: La página no puede ser negativa y el tamaño debe ser al menos 1.");
+        }
+        Pageable pageable = (page == null && size == null)
+                ? Pageable.unpaged(BY_USER_ID)
+                : PageRequest.of(page == null ? 0 : page,
+                        size == null ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE), BY_USER_ID);
+        return userMongoRepository.findSummariesBy(pageable);
+    }
+
     /**
      * Retrieves a user by their unique identifier.
      *
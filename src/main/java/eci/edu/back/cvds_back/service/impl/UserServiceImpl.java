@@ -4,23 +4,104 @@ import eci.edu.back.cvds_back.config.UserServiceException;
 import eci.edu.back.cvds_back.dto.AuthenticationResponseDTO;
 import eci.edu.back.cvds_back.dto.UserAuthenticationDTO;
 import eci.edu.back.cvds_back.dto.UserDTO;
+import eci.edu.back.cvds_back.dto.UserSummaryDTO;
 import eci.edu.back.cvds_back.model.User;
+import eci.edu.back.cvds_back.service.interfaces.TokenRevocationService;
 import eci.edu.back.cvds_back.service.interfaces.UserRepository;
 import eci.edu.back.cvds_back.service.interfaces.UserService;
 import eci.edu.back.cvds_back.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
+/**
+ * Implementation of the UserService interface.
+ *
+ * <p>Passwords are stored as salted BCrypt hashes. Records created before hashing was
+ * introduced still hold the plaintext password; they are compared in constant time and
+ * re-hashed on their next successful login, as are hashes of a lower BCrypt strength.</p>
+ *
+ * <p>Logins run on a small bounded executor: hashing is deliberately slow, and a burst
+ * of logins must not take every Tomcat thread away from booking requests. When both the
+ * threads and the queue are busy the login is refused right away.</p>
+ *
+ * <p>A login returns a short-lived access token and a long-lived refresh token. Refreshing
+ * only verifies the refresh token, so most of the authentication traffic touches neither
+ * the database nor the password hash. Logging out revokes both tokens.</p>
+ *
+ * Configuration:
+ * - security.login.threads: Number of logins hashed at the same time (default 4).
+ * - security.login.queue-capacity: Number of logins that may wait for a thread (default 100).
+ */
 @Service
 public class UserServiceImpl implements UserService {
+    private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$\\d\\d\\$[./A-Za-z0-9]{53}$");
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Value("${security.login.threads:4}")
+    private int loginThreads = 4;
+
+    @Value("${security.login.queue-capacity:100}")
+    private int loginQueueCapacity = 100;
+
+    private Executor loginExecutor;
+
+    /**
+     * Creates the bounded login thread pool.
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        loginExecutor = new ThreadPoolExecutor(loginThreads, loginThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(loginQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "login-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Stops the login thread pool.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (loginExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
     /**
      * Retrieves a user by their unique identifier.
      *
@@ -34,7 +115,8 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Saves a new user to the repository.
+     * Saves a new user to the repository. The password is stored as a BCrypt hash and the
+     * password confirmation is not stored at all.
      *
      * @param userDTO The data transfer object containing user information to be saved.
      * @return The saved User entity.
@@ -42,6 +124,8 @@ public class UserServiceImpl implements UserService {
     @Override
     public User saveUser(UserDTO userDTO) {
         User user = new User(userDTO);
+        user.setPassword(passwordEncoder.encode(userDTO.getPassword()));
+        user.setPasswordConfirmation(null);
         userRepository.save(user);
         return user;
     }
@@ -56,6 +140,18 @@ public class UserServiceImpl implements UserService {
         return userRepository.findAll();
     }
 
+    /**
+     * Retrieves a page of users without their credentials.
+     *
+     * @param page The zero-based page to return, or null.
+     * @param size The page size, or null.
+     * @return The users of the page, with their ID and email only.
+     */
+    @Override
+    public List<UserSummaryDTO> getUsers(Integer page, Integer size) {
+        return userRepository.findSummaries(page, size);
+    }
+
     /**
      * Deletes a user from the system based on the provided user ID.
      *
@@ -73,8 +169,8 @@ public class UserServiceImpl implements UserService {
      * @param authenticationDTO The data transfer object containing the user's authentication details,
      *                          including user ID and password.
      * @return An {@link AuthenticationResponseDTO} containing the authentication result:
-     *         - If authentication is successful, it includes the user details, a generated JWT token,
-     *           and a success message.
+     *         - If authentication is successful, it includes the user details, a generated JWT access
+     *           token, a refresh token, and a success message.
      *         - If authentication fails due to incorrect password or user not found, it includes
      *           an appropriate failure message.
      * @throws UserServiceException If an error occurs while retrieving the user from the repository.
@@ -86,10 +182,13 @@ public class UserServiceImpl implements UserService {
             User user = userRepository.findById(authenticationDTO.getUserId());
 
             // Verificar la contraseña
-            if (user.getPassword().equals(authenticationDTO.getPassword())) {
-                // Generar token JWT
+            if (passwordMatches(user, authenticationDTO.getPassword())) {
+                // Generar access token y refresh token JWT
                 String token = jwtUtil.generateToken(user.getUserId());
-                return new AuthenticationResponseDTO(true, user, token, "Autenticación exitosa");
+                String refreshToken = jwtUtil.generateRefreshToken(user.getUserId());
+                // Solo se envían el ID y el email, nunca el hash de la contraseña
+                UserSummaryDTO summary = new UserSummaryDTO(user.getUserId(), user.getEmail());
+                return new AuthenticationResponseDTO(true, summary, token, refreshToken, "Autenticación exitosa");
             } else {
                 return new AuthenticationResponseDTO(false, null, null, "Contraseña incorrecta");
             }
@@ -98,4 +197,111 @@ public class UserServiceImpl implements UserService {
             return new AuthenticationResponseDTO(false, null, null, "Usuario no encontrado");
         }
     }
+
+    /**
+     * Authenticates a user on the login executor.
+     *
+     * @param authenticationDTO The data transfer object containing the user's authentication details.
+     * @return A future with the result of {@link #authenticate(UserAuthenticationDTO)}, or a failed
+     *         authentication asking to retry when the login executor is saturated.
+     */
+    @Override
+    public CompletableFuture<AuthenticationResponseDTO> authenticateAsync(UserAuthenticationDTO authenticationDTO) {
+        try {
+            return CompletableFuture.supplyAsync(() -> authenticate(authenticationDTO), loginExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(
+                    new AuthenticationResponseDTO(false, null, null, "Servidor ocupado, intente de nuevo"));
+        }
+    }
+
+    /**
+     * Issues a new access token from a refresh token. The refresh token is returned as is
+     * and keeps its original expiration.
+     *
+     * @param refreshToken The refresh token obtained at login.
+     * @return The authentication response with the new access token, or a failed authentication.
+     */
+    @Override
+    public AuthenticationResponseDTO refresh(String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtUtil.extractAllClaims(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            return new AuthenticationResponseDTO(false, null, null, "Token de renovación inválido");
+        }
+        if (!JwtUtil.isRefreshToken(claims) || claims.getSubject() == null
+                || tokenRevocationService.isRevoked(claims.getId())) {
+            return new AuthenticationResponseDTO(false, null, null, "Token de renovación inválido");
+        }
+
+        String token = jwtUtil.generateToken(claims.getSubject());
+        return new AuthenticationResponseDTO(true, null, token, refreshToken, "Token renovado");
+    }
+
+    /**
+     * Revokes the access token of the request and, if it is a valid refresh token of the
+     * same user, the given refresh token. Other tokens are ignored.
+     *
+     * @param accessClaims The verified claims of the access token of the request.
+     * @param refreshToken The refresh token to revoke, or null.
+     */
+    @Override
+    public void logout(Claims accessClaims, String refreshToken) {
+        tokenRevocationService.revoke(accessClaims.getId(), accessClaims.getExpiration());
+        if (refreshToken == null) {
+            return;
+        }
+        try {
+            Claims refreshClaims = jwtUtil.extractAllClaims(refreshToken);
+            if (JwtUtil.isRefreshToken(refreshClaims) && accessClaims.getSubject().equals(refreshClaims.getSubject())) {
+                tokenRevocationService.revoke(refreshClaims.getId(), refreshClaims.getExpiration());
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            // Un refresh token inválido o expirado ya no sirve: no hay nada que revocar
+        }
+    }
+
+    /**
+     * Checks a password against the stored one. A legacy plaintext password, or a hash of a
+     * lower strength than the configured one, is replaced with a new hash when it matches.
+     *
+     * @param user     The stored user.
+     * @param password The password provided at login.
+     * @return true if the password matches, false otherwise.
+     */
+    private boolean passwordMatches(User user, String password) {
+        String stored = user.getPassword();
+        if (stored == null || password == null) {
+            return false;
+        }
+
+        if (BCRYPT_HASH.matcher(stored).matches()) {
+            if (!passwordEncoder.matches(password, stored)) {
+                return false;
+            }
+            if (passwordEncoder.upgradeEncoding(stored)) {
+                rehash(user, password);
+            }
+            return true;
+        }
+
+        // Registro anterior al hash: se compara en tiempo constante y se migra
+        if (!MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8))) {
+            return false;
+        }
+        rehash(user, password);
+        return true;
+    }
+
+    private void rehash(User user, String password) {
+        user.setPassword(passwordEncoder.encode(password));
+        user.setPasswordConfirmation(null);
+        try {
+            userRepository.save(user);
+        } catch (RuntimeException e) {
+            // El login sigue siendo válido; se reintenta en el próximo
+            logger.warn("Could not upgrade the password hash of user {}", user.getUserId(), e);
+        }
+    }
 }
\ No newline at end of file
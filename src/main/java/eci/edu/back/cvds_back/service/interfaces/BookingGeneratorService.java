@@ -1,8 +1,9 @@
 package eci.edu.back.cvds_back.service.interfaces;
 
-import eci.edu.back.cvds_back.model.Booking;
+import eci.edu.back.cvds_back.dto.GenerationRequestDTO;
+import eci.edu.back.cvds_back.dto.GenerationSummaryDTO;
 
-import java.util.List;
+import java.time.LocalDate;
 
 /**
  * Service interface for generating and managing bookings.
@@ -14,17 +15,44 @@ public interface BookingGeneratorService {
      *
      * @param min The minimum number of bookings to generate.
      * @param max The maximum number of bookings to generate.
-     * @return A list of randomly generated bookings.
+     * @return The summary of the run.
      */
-    List<Booking> generateRandomBookings(int min, int max);
+    GenerationSummaryDTO generateRandomBookings(int min, int max);
 
     /**
      * Generates a list of bookings with an exact count.
      *
      * @param count The exact number of bookings to generate.
-     * @return A list of bookings with the specified count.
+     * @return The summary of the run.
      */
-    List<Booking> generateExactBookings(int count);
+    GenerationSummaryDTO generateExactBookings(int count);
+
+    /**
+     * Generates bookings as described by a generation request.
+     *
+     * @param request The number of bookings to generate and the number of parallel workers.
+     * @return The summary of the run.
+     */
+    GenerationSummaryDTO generateBookings(GenerationRequestDTO request);
+
+    /**
+     * Generates bookings as described by a generation request, reporting progress and
+     * every stored batch, and stopping early if the progress sink is cancelled.
+     *
+     * @param request The number of bookings to generate and the number of parallel workers.
+     * @param progress The sink for progress updates, stored bookings and cancellation requests.
+     * @return The summary of the run.
+     */
+    GenerationSummaryDTO generateBookings(GenerationRequestDTO request, GenerationProgress progress);
+
+    /**
+     * Checks the parameters of a generation request without generating anything, so a
+     * caller can reject an invalid request before it starts responding.
+     *
+     * @param request The generation request to check.
+     * @throws IllegalArgumentException If the horizon, hours, occupancy or dataset name are not valid.
+     */
+    void validate(GenerationRequestDTO request);
 
     /**
      * Clears all existing bookings.
@@ -32,4 +60,24 @@ public interface BookingGeneratorService {
      * @return The number of bookings that were cleared.
      */
     int clearAllBookings();
+
+    /**
+     * Clears the bookings matching the given filters. Null filters are ignored.
+     *
+     * @param classroom The classroom to clear, or null for all classrooms.
+     * @param from The first date to clear (inclusive), or null.
+     * @param to The last date to clear (inclusive), or null.
+     * @param generatedOnly Whether to clear only generated bookings (IDs of the form {@code lab<n>}).
+     * @return The number of bookings that were cleared.
+     */
+    int clearBookings(String classroom, LocalDate from, LocalDate to, boolean generatedOnly);
+
+    /**
+     * Stores the bookings of an NDJSON dataset previously written by a generation run.
+     * Bookings within 2 hours of a stored booking of the same classroom are skipped.
+     *
+     * @param name The name of the dataset.
+     * @return The number of bookings stored.
+     */
+    int loadDataset(String name);
 }
\ No newline at end of file
@@ -1,9 +1,15 @@
 package eci.edu.back.cvds_back.service.interfaces;
 
 import eci.edu.back.cvds_back.model.Booking;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
 /**
  * Repository interface for managing Booking entities in a MongoDB database.
  * This interface extends the MongoRepository interface, providing CRUD operations
@@ -15,4 +21,50 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface BookingMongoRepository extends MongoRepository<Booking, String> {
+
+    /**
+     * Retrieves the bookings of a single classroom on a single date.
+     * Backed by the {@code classroom_date_time} compound index declared on {@link Booking}.
+     *
+     * @param bookingClassRoom the classroom to look up
+     * @param bookingDate      the date to look up
+     * @return the bookings of that classroom on that date
+     */
+    List<Booking> findByBookingClassRoomAndBookingDate(String bookingClassRoom, LocalDate bookingDate);
+
+    /**
+     * Retrieves the bookings reserved by a user.
+     * Backed by the {@code reservedBy_date} compound index declared on {@link Booking}.
+     *
+     * @param reservedBy the ID of the user who made the reservations
+     * @param pageable   the page and sort to apply
+     * @return the bookings reserved by that user
+     */
+    List<Booking> findByReservedBy(String reservedBy, Pageable pageable);
+
+    /**
+     * Retrieves the bookings reserved by a user within a date range.
+     *
+     * @param reservedBy  the ID of the user who made the reservations
+     * @param bookingDate the range of booking dates to include
+     * @param pageable    the page and sort to apply
+     * @return the bookings reserved by that user within the range
+     */
+    List<Booking> findByReservedByAndBookingDateBetween(String reservedBy, Range<LocalDate> bookingDate, Pageable pageable);
+
+    /**
+     * Streams every booking through a Mongo cursor instead of materializing the collection.
+     * The returned stream must be closed by the caller.
+     *
+     * @return a stream over all bookings
+     */
+    Stream<Booking> streamAllBy();
+
+    /**
+     * Deletes a booking by its ID in a single find-and-remove operation.
+     *
+     * @param bookingId the ID of the booking to delete
+     * @return the deleted booking, or null if no booking had that ID
+     */
+    Booking deleteByBookingId(String bookingId);
 }
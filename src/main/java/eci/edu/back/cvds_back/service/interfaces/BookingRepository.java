@@ -3,17 +3,32 @@ package eci.edu.back.cvds_back.service.interfaces;
 import eci.edu.back.cvds_back.config.BookingServiceException;
 import eci.edu.back.cvds_back.model.Booking;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing Booking entities.
  * Provides methods for saving, retrieving, updating, and deleting bookings.
  */
 public interface BookingRepository {
-    void save(Booking booking);
+    void save(Booking booking) throws BookingServiceException;
+    void insert(Booking booking) throws BookingServiceException;
+    List<Booking> insertAll(List<Booking> bookings);
     List<Booking> findAll();
+    List<Booking> findByClassRoomAndDate(String classRoom, LocalDate date);
+    List<Booking> findByClassRoomsAndDates(Collection<String> classRooms, LocalDate from, LocalDate to);
+    long findMaxGeneratedNumber();
+    Stream<Booking> streamAll();
+    List<Booking> findPageAfter(LocalDate date, LocalTime time, String bookingId, int limit);
+    List<Booking> findByReservedBy(String userId, LocalDate from, LocalDate to, Integer page, Integer size);
     Booking findById(String bookingId) throws BookingServiceException;
-    void deleteById(String bookingId) throws BookingServiceException;
+    Booking deleteById(String bookingId) throws BookingServiceException;
+    int deleteMatching(String classRoom, LocalDate from, LocalDate to, boolean generatedOnly);
     void update(Booking booking) throws BookingServiceException;
+    Booking reserve(String bookingId, String userId);
+    Booking release(String bookingId, String userId);
     boolean existsById(String bookingId);
 }
\ No newline at end of file
@@ -2,9 +2,13 @@ package eci.edu.back.cvds_back.service.interfaces;
 
 import eci.edu.back.cvds_back.config.BookingServiceException;
 import eci.edu.back.cvds_back.dto.BookingDTO;
+import eci.edu.back.cvds_back.dto.BookingPageDTO;
 import eci.edu.back.cvds_back.model.Booking;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Service interface for managing bookings.
@@ -29,6 +33,16 @@ public interface BookingService {
      */
     Booking saveBooking(BookingDTO bookingDTO) throws BookingServiceException;
 
+    /**
+     * Stores many already-validated bookings using batched bulk writes.
+     * Callers are responsible for the 2-hour rule; the database still rejects
+     * duplicate IDs and slot keys, and those bookings are left out of the result.
+     *
+     * @param bookings The bookings to store.
+     * @return The bookings that were actually stored.
+     */
+    List<Booking> saveBookings(List<Booking> bookings);
+
     /**
      * Retrieves all bookings.
      *
@@ -36,6 +50,40 @@ public interface BookingService {
      */
     List<Booking> getAllBookings();
 
+    /**
+     * Retrieves the bookings of some classrooms within a date range.
+     *
+     * @param classRooms The classrooms whose bookings are retrieved.
+     * @param from The first date to include.
+     * @param to The last date to include.
+     * @return The bookings of those classrooms within the range.
+     */
+    List<Booking> getBookingsInRange(Collection<String> classRooms, LocalDate from, LocalDate to);
+
+    /**
+     * Returns the highest number among the generated booking IDs ({@code lab<n>}).
+     *
+     * @return The highest generated number, or 0 if there are none.
+     */
+    long getMaxGeneratedNumber();
+
+    /**
+     * Retrieves a page of bookings sorted by date, time and ID using keyset pagination.
+     *
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of bookings in the page.
+     * @return The page of bookings and the cursor of the next page.
+     * @throws BookingServiceException If the cursor is not valid.
+     */
+    BookingPageDTO getBookingsPage(String cursor, int limit) throws BookingServiceException;
+
+    /**
+     * Streams all bookings from a database cursor. The stream must be closed by the caller.
+     *
+     * @return A stream over all bookings.
+     */
+    Stream<Booking> streamAllBookings();
+
     /**
      * Retrieves bookings made by a specific user.
      *
@@ -44,6 +92,18 @@ public interface BookingService {
      */
     List<Booking> getBookingsByReservedBy(String userId);
 
+    /**
+     * Retrieves bookings made by a specific user within an optional date range and page.
+     *
+     * @param userId The ID of the user whose bookings are to be retrieved.
+     * @param from The first booking date to include, or null for no lower bound.
+     * @param to The last booking date to include, or null for no upper bound.
+     * @param page The zero-based page to return, or null.
+     * @param size The page size, or null. When page and size are both null, all bookings are returned.
+     * @return A list of bookings made by the specified user, sorted by date and time.
+     */
+    List<Booking> getBookingsByReservedBy(String userId, LocalDate from, LocalDate to, Integer page, Integer size);
+
     /**
      * Deletes a booking by its ID.
      *
@@ -52,6 +112,18 @@ public interface BookingService {
      */
     void deleteBooking(String bookingId) throws BookingServiceException;
 
+    /**
+     * Deletes every booking matching the given filters in a single server-side operation.
+     * Null filters are ignored.
+     *
+     * @param classRoom The classroom to delete from, or null for all classrooms.
+     * @param from The first date to delete (inclusive), or null.
+     * @param to The last date to delete (inclusive), or null.
+     * @param generatedOnly Whether to delete only generated bookings (IDs of the form {@code lab<n>}).
+     * @return The number of deleted bookings.
+     */
+    int deleteBookings(String classRoom, LocalDate from, LocalDate to, boolean generatedOnly);
+
     /**
      * Makes a reservation for a booking by associating it with a user.
      *
@@ -0,0 +1,54 @@
+package eci.edu.back.cvds_back.service.interfaces;
+
+import eci.edu.back.cvds_back.model.Booking;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+
+/**
+ * Resident index of booked slots (classroom -> date -> sorted minutes of the day)
+ * used to enforce the 2-hour same-classroom rule without querying the whole collection.
+ */
+public interface BookingSlotIndex {
+
+    /**
+     * Checks whether a booking in the given classroom, date and time would fall
+     * within 2 hours of an existing booking.
+     *
+     * @param classRoom The classroom of the candidate booking.
+     * @param date The date of the candidate booking.
+     * @param time The time of the candidate booking.
+     * @return true if an existing booking is less than 2 hours away, false otherwise.
+     */
+    boolean hasConflict(String classRoom, LocalDate date, LocalTime time);
+
+    /**
+     * Registers a booking that has just been persisted.
+     *
+     * @param booking The saved booking.
+     */
+    void add(Booking booking);
+
+    /**
+     * Unregisters a booking that has just been deleted.
+     *
+     * @param booking The deleted booking.
+     */
+    void remove(Booking booking);
+
+    /**
+     * Drops the resident buckets of a classroom, or of every classroom, so they are
+     * reloaded from the database on the next lookup. Used after bulk deletes.
+     *
+     * @param classRoom The classroom to invalidate, or null to invalidate the whole index.
+     */
+    void invalidate(String classRoom);
+
+    /**
+     * Returns the index metrics (lookups, hits, misses, conflicts and size).
+     *
+     * @return A map with the current metric values.
+     */
+    Map<String, Object> getStats();
+}
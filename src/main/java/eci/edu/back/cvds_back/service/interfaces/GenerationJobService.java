@@ -0,0 +1,49 @@
+package eci.edu.back.cvds_back.service.interfaces;
+
+import eci.edu.back.cvds_back.dto.GenerationJobDTO;
+import eci.edu.back.cvds_back.dto.GenerationRequestDTO;
+
+import java.time.LocalDate;
+
+/**
+ * Service interface for running booking generation and clearing as background jobs.
+ */
+public interface GenerationJobService {
+
+    /**
+     * Starts a background generation job.
+     *
+     * @param request The number of bookings to generate and the number of parallel workers.
+     * @return A snapshot of the new job.
+     * @throws java.util.concurrent.RejectedExecutionException If too many jobs are already queued or retained.
+     */
+    GenerationJobDTO startGeneration(GenerationRequestDTO request);
+
+    /**
+     * Starts a background job that clears the bookings matching the given filters.
+     *
+     * @param classroom The classroom to clear, or null for all classrooms.
+     * @param from The first date to clear (inclusive), or null.
+     * @param to The last date to clear (inclusive), or null.
+     * @param generatedOnly Whether to clear only generated bookings.
+     * @return A snapshot of the new job.
+     * @throws java.util.concurrent.RejectedExecutionException If too many jobs are already queued or retained.
+     */
+    GenerationJobDTO startClear(String classroom, LocalDate from, LocalDate to, boolean generatedOnly);
+
+    /**
+     * Returns the current state of a job.
+     *
+     * @param jobId The job ID.
+     * @return A snapshot of the job, or null if no such job is known.
+     */
+    GenerationJobDTO getJob(String jobId);
+
+    /**
+     * Requests the cancellation of a job.
+     *
+     * @param jobId The job ID.
+     * @return A snapshot of the job, or null if no such job is known.
+     */
+    GenerationJobDTO cancelJob(String jobId);
+}
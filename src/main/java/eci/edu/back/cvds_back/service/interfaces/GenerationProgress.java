@@ -0,0 +1,66 @@
+package eci.edu.back.cvds_back.service.interfaces;
+
+import eci.edu.back.cvds_back.model.Booking;
+
+import java.util.List;
+
+/**
+ * Receives progress updates from a booking generation run and tells it whether
+ * to stop early. Implementations must be thread-safe, since parallel workers
+ * report concurrently.
+ */
+public interface GenerationProgress {
+
+    /**
+     * Progress sink for runs nobody is tracking: ignores updates and is never cancelled.
+     */
+    GenerationProgress NONE = new GenerationProgress() {
+        @Override
+        public void target(int target) {
+        }
+
+        @Override
+        public void attempted(int count) {
+        }
+
+        @Override
+        public void stored(List<Booking> stored, int rejected) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * Reports the number of bookings the run will try to generate, once it is resolved
+     * (for instance, from a target occupancy).
+     *
+     * @param target The number of bookings to generate.
+     */
+    void target(int target);
+
+    /**
+     * Reports candidate bookings taken from the free slots.
+     *
+     * @param count The number of new candidates.
+     */
+    void attempted(int count);
+
+    /**
+     * Reports the outcome of a batch write. The list is only valid during the call;
+     * implementations must not keep it, so a run never holds more than a batch.
+     *
+     * @param stored The bookings stored.
+     * @param rejected The number of bookings the database rejected as conflicting.
+     */
+    void stored(List<Booking> stored, int rejected);
+
+    /**
+     * Checks whether the run should stop as soon as possible.
+     *
+     * @return true if cancellation was requested, false otherwise.
+     */
+    boolean isCancelled();
+}
@@ -0,0 +1,33 @@
+package eci.edu.back.cvds_back.service.interfaces;
+
+/**
+ * Allocates unique, increasing values from named persistent sequences.
+ * Values are unique across application nodes sharing the same database.
+ */
+public interface IdAllocator {
+
+    /**
+     * Returns the next value of a sequence.
+     *
+     * @param sequence The name of the sequence.
+     * @return A value never returned before for this sequence, on any node.
+     */
+    long next(String sequence);
+
+    /**
+     * Checks whether a sequence has already been created in the database.
+     *
+     * @param sequence The name of the sequence.
+     * @return true if the sequence exists, false otherwise.
+     */
+    boolean exists(String sequence);
+
+    /**
+     * Raises a sequence so that subsequent values are greater than the given one.
+     * Never lowers the sequence.
+     *
+     * @param sequence The name of the sequence.
+     * @param value The highest value already in use.
+     */
+    void ensureAtLeast(String sequence, long value);
+}
@@ -0,0 +1,36 @@
+package eci.edu.back.cvds_back.service.interfaces;
+
+import java.util.Map;
+
+/**
+ * Throttles login attempts per user ID and per client IP, so bursts of attempts
+ * are rejected in memory before any database lookup.
+ */
+public interface LoginRateLimiter {
+
+    /**
+     * Takes one attempt from the buckets of the user and of the client IP.
+     *
+     * @param userId The user ID of the attempt.
+     * @param clientIp The IP address the attempt comes from.
+     * @return true if the attempt may proceed, false if either bucket is empty.
+     */
+    boolean tryAcquire(String userId, String clientIp);
+
+    /**
+     * Returns how long a rejected client should wait before trying again, according to
+     * the bucket that refused the attempt.
+     *
+     * @param userId The user ID of the refused attempt.
+     * @param clientIp The IP address the refused attempt came from.
+     * @return The number of seconds until that bucket gets a new attempt.
+     */
+    long getRetryAfterSeconds(String userId, String clientIp);
+
+    /**
+     * Returns the limiter metrics (allowed and rejected attempts, tracked buckets and evictions).
+     *
+     * @return A map with the current metric values.
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,23 @@
+package eci.edu.back.cvds_back.service.interfaces;
+
+import eci.edu.back.cvds_back.model.RevokedToken;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository interface for the revoked tokens stored in MongoDB.
+ */
+@Repository
+public interface RevokedTokenMongoRepository extends MongoRepository<RevokedToken, String> {
+
+    /**
+     * Finds the revoked tokens that have not expired yet.
+     *
+     * @param now The current time.
+     * @return The revoked tokens expiring after now.
+     */
+    List<RevokedToken> findByExpiresAtAfter(Date now);
+}
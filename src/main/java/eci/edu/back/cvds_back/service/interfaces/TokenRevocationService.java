@@ -0,0 +1,34 @@
+package eci.edu.back.cvds_back.service.interfaces;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Deny list of revoked JWT tokens, identified by their {@code jti} claim.
+ * Checking a token must not require a database round trip.
+ */
+public interface TokenRevocationService {
+
+    /**
+     * Revokes a token until it expires.
+     *
+     * @param jti The unique identifier of the token.
+     * @param expiresAt The expiration of the token, after which it no longer needs to be denied.
+     */
+    void revoke(String jti, Date expiresAt);
+
+    /**
+     * Checks whether a token has been revoked.
+     *
+     * @param jti The unique identifier of the token, or null for tokens issued without one.
+     * @return true if the token is revoked and not expired, false otherwise.
+     */
+    boolean isRevoked(String jti);
+
+    /**
+     * Returns the deny list metrics (checks, Bloom filter hits and false positives, size).
+     *
+     * @return A map with the current metric values.
+     */
+    Map<String, Object> getStats();
+}
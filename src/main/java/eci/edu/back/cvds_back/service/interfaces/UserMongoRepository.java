@@ -1,9 +1,13 @@
 package eci.edu.back.cvds_back.service.interfaces;
 
+import eci.edu.back.cvds_back.dto.UserSummaryDTO;
 import eci.edu.back.cvds_back.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Repository interface for managing User entities in a MongoDB database.
  * Extends the MongoRepository interface to provide CRUD operations and
@@ -16,4 +20,12 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface UserMongoRepository extends MongoRepository<User, String>{
 
+    /**
+     * Retrieves users projected to their ID and email. The projection is applied by
+     * MongoDB, so the credential fields are never read or transferred.
+     *
+     * @param pageable the page and sort to apply
+     * @return the projected users
+     */
+    List<UserSummaryDTO> findSummariesBy(Pageable pageable);
 }
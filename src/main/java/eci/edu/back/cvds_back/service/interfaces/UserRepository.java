@@ -1,6 +1,7 @@
 package eci.edu.back.cvds_back.service.interfaces;
 
 import eci.edu.back.cvds_back.config.UserServiceException;
+import eci.edu.back.cvds_back.dto.UserSummaryDTO;
 import eci.edu.back.cvds_back.model.User;
 
 import java.util.List;
@@ -12,6 +13,7 @@ import java.util.List;
 public interface UserRepository{
     void save(User user);
     List<User> findAll();
+    List<UserSummaryDTO> findSummaries(Integer page, Integer size);
     User findById(String userId) throws UserServiceException;
     void deleteById(String userId) throws UserServiceException;
 }
@@ -5,9 +5,12 @@ import eci.edu.back.cvds_back.config.UserServiceException;
 import eci.edu.back.cvds_back.dto.UserAuthenticationDTO;
 import eci.edu.back.cvds_back.dto.AuthenticationResponseDTO;
 import eci.edu.back.cvds_back.dto.UserDTO;
+import eci.edu.back.cvds_back.dto.UserSummaryDTO;
 import eci.edu.back.cvds_back.model.User;
+import io.jsonwebtoken.Claims;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service interface for managing user-related operations.
@@ -38,6 +41,15 @@ public interface UserService {
      */
     List<User> getAllUsers();
 
+    /**
+     * Retrieves a page of users without their credentials.
+     *
+     * @param page The zero-based page to return, or null.
+     * @param size The page size, or null; when both are null all users are returned.
+     * @return The users of the page, with their ID and email only.
+     */
+    List<UserSummaryDTO> getUsers(Integer page, Integer size);
+
     /**
      * Deletes a user by their unique identifier.
      *
@@ -53,4 +65,33 @@ public interface UserService {
      * @return The authentication response containing relevant authentication details.
      */
     AuthenticationResponseDTO authenticate(UserAuthenticationDTO authenticationDTO);
+
+    /**
+     * Authenticates a user on the dedicated login executor, so password hashing does not
+     * hold a request thread.
+     *
+     * @param authenticationDTO The data transfer object containing authentication credentials.
+     * @return A future with the authentication response; when the login executor is saturated
+     *         the response is a failed authentication asking to retry.
+     */
+    CompletableFuture<AuthenticationResponseDTO> authenticateAsync(UserAuthenticationDTO authenticationDTO);
+
+    /**
+     * Issues a new access token from a refresh token, without checking the password
+     * or reading the user from the database.
+     *
+     * @param refreshToken The refresh token obtained at login.
+     * @return The authentication response with the new access token, or a failed
+     *         authentication if the refresh token is invalid or expired.
+     */
+    AuthenticationResponseDTO refresh(String refreshToken);
+
+    /**
+     * Logs a user out by revoking the access token of the request and, if given,
+     * the refresh token of the same user.
+     *
+     * @param accessClaims The verified claims of the access token of the request.
+     * @param refreshToken The refresh token to revoke, or null.
+     */
+    void logout(Claims accessClaims, String refreshToken);
 }
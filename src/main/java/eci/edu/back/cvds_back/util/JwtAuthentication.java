@@ -0,0 +1,62 @@
+package eci.edu.back.cvds_back.util;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+
+import java.util.Collection;
+
+/**
+ * Authentication stored in the SecurityContext by {@link JwtRequestFilter} once a
+ * token has been verified.
+ *
+ * <p>The principal is the user ID (the token subject). Controllers declare a
+ * {@code JwtAuthentication} parameter, which Spring resolves from the SecurityContext
+ * (null for an anonymous request), and read the user ID with {@link #getPrincipal()}.
+ * The verified claims are kept alongside it, so nothing downstream has to parse the
+ * token again.
+ */
+public class JwtAuthentication extends AbstractAuthenticationToken {
+    private static final long serialVersionUID = 1L;
+
+    private final String userId;
+    private final Claims claims;
+
+    /**
+     * Creates an authenticated token for verified claims.
+     *
+     * @param claims      the verified claims of the token
+     * @param authorities the authorities granted to the user
+     */
+    public JwtAuthentication(Claims claims, Collection<? extends GrantedAuthority> authorities) {
+        super(authorities);
+        this.userId = claims.getSubject();
+        this.claims = claims;
+        setAuthenticated(true);
+    }
+
+    /**
+     * @return the user ID
+     */
+    @Override
+    public String getPrincipal() {
+        return userId;
+    }
+
+    /**
+     * The token itself is not kept once verified.
+     *
+     * @return always null
+     */
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    /**
+     * @return the verified claims of the token
+     */
+    public Claims getClaims() {
+        return claims;
+    }
+}
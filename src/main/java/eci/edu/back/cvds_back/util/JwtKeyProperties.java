@@ -0,0 +1,58 @@
+package eci.edu.back.cvds_back.util;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signing keys shared by every replica, bound from the {@code jwt.*} properties.
+ *
+ * <p>Each key has an ID, written in the {@code kid} header of the tokens it signs, and a
+ * Base64 encoded HMAC secret of at least 256 bits. Tokens are signed with the active key
+ * and verified with the key named by their {@code kid}. To rotate, add the new key, make
+ * it active, and give the previous one a {@code retire-at} instant past the lifetime of
+ * the last token it signed; until then both keys are accepted.</p>
+ *
+ * <p>Example (the values can also come from the .env file or environment variables):</p>
+ * <pre>
+ * jwt.active-key-id=2025-02
+ * jwt.keys[0].id=2025-01
+ * jwt.keys[0].secret=...
+ * jwt.keys[0].retire-at=2025-02-01T05:00:00Z
+ * jwt.keys[1].id=2025-02
+ * jwt.keys[1].secret=...
+ * </pre>
+ */
+@Component
+@ConfigurationProperties(prefix = "jwt")
+public class JwtKeyProperties {
+    private String activeKeyId;
+    private List<SigningKey> keys = new ArrayList<>();
+
+    public String getActiveKeyId() {return activeKeyId;}
+    public void setActiveKeyId(String activeKeyId) {this.activeKeyId = activeKeyId;}
+
+    public List<SigningKey> getKeys() {return keys;}
+    public void setKeys(List<SigningKey> keys) {this.keys = keys;}
+
+    /**
+     * A signing key of the ring.
+     */
+    public static class SigningKey {
+        private String id;
+        private String secret;
+        private Instant retireAt;
+
+        public String getId() {return id;}
+        public void setId(String id) {this.id = id;}
+
+        public String getSecret() {return secret;}
+        public void setSecret(String secret) {this.secret = secret;}
+
+        public Instant getRetireAt() {return retireAt;}
+        public void setRetireAt(Instant retireAt) {this.retireAt = retireAt;}
+    }
+}
@@ -1,7 +1,8 @@
 package eci.edu.back.cvds_back.util;
 
+import eci.edu.back.cvds_back.service.interfaces.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -13,7 +14,6 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,9 +24,14 @@ import java.util.List;
  * <p>This filter performs the following tasks:
  * <ul>
  *   <li>Extracts the JWT token from the "Authorization" header of the HTTP request.</li>
- *   <li>Validates the extracted token using the JwtUtil utility class.</li>
- *   <li>If the token is valid, retrieves the user ID and sets the authentication in the 
- *       SecurityContext with appropriate authorities.</li>
+ *   <li>Verifies the extracted token, once, using the JwtUtil utility class.</li>
+ *   <li>Refresh tokens are ignored: they only authenticate the refresh endpoint.</li>
+ *   <li>Revoked tokens are ignored. The deny list is held in memory, so the check adds no
+ *       database round trip.</li>
+ *   <li>If the token is valid, stores a {@link JwtAuthentication} with the user ID and the
+ *       verified claims in the SecurityContext with appropriate authorities. Controllers take
+ *       a {@link JwtAuthentication} parameter and read the user ID from its principal instead
+ *       of parsing the header again.</li>
  *   <li>If the token is invalid or missing, the request proceeds without authentication.</li>
  * </ul>
  *
@@ -34,7 +39,7 @@ import java.util.List;
  * <ul>
  *   <li><b>JwtUtil:</b> A utility class used to extract and validate the JWT token.</li>
  *   <li><b>SecurityContextHolder:</b> Used to store the authentication details for the current request.</li>
- *   <li><b>UsernamePasswordAuthenticationToken:</b> Represents the authentication token for the user.</li>
+ *   <li><b>JwtAuthentication:</b> Represents the authenticated user and the verified claims.</li>
  * </ul>
  *
  * <p>Usage:
@@ -55,7 +60,7 @@ import java.util.List;
  * @see OncePerRequestFilter
  * @see JwtUtil
  * @see SecurityContextHolder
- * @see UsernamePasswordAuthenticationToken
+ * @see JwtAuthentication
  */
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
@@ -63,6 +68,9 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     /**
      * Filters incoming HTTP requests to validate and process JWT tokens for authentication.
      *
@@ -73,7 +81,8 @@ public class JwtRequestFilter extends OncePerRequestFilter {
      * @throws IOException      if an I/O error occurs during the filtering process
      *
      * This method extracts the JWT token from the "Authorization" header of the request,
-     * validates it, and sets the authentication in the SecurityContext if the token is valid.
+     * verifies its signature and expiration with a single parse, and sets the authentication
+     * in the SecurityContext if the token is valid.
      * If the token is invalid or missing, the request proceeds without authentication.
      */
     @Override
@@ -82,29 +91,25 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String userId = null;
-        String jwt = null;
+        Claims claims = null;
 
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                userId = jwtUtil.extractUserId(jwt);
+                // Verifica firma y expiración en un solo parseo
+                claims = jwtUtil.extractAllClaims(authorizationHeader.substring(7));
             } catch (Exception e) {
                 logger.error("Error validating JWT token", e);
             }
         }
 
-        if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(jwt, userId)) {
-                List<SimpleGrantedAuthority> authorities = new ArrayList<>();
-                authorities.add(new SimpleGrantedAuthority("USER"));
+        // Los refresh tokens solo sirven para renovar el access token
+        if (claims != null && claims.getSubject() != null && !JwtUtil.isRefreshToken(claims)
+                && !tokenRevocationService.isRevoked(claims.getId())) {
+            JwtAuthentication authToken = new JwtAuthentication(claims, List.of(new SimpleGrantedAuthority("USER")));
 
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userId, null, authorities);
-
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
         }
         chain.doFilter(request, response);
     }
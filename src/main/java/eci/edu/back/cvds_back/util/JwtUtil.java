@@ -1,21 +1,192 @@
 package eci.edu.back.cvds_back.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 
+/**
+ * Issues and verifies the JWT tokens of the application.
+ *
+ * <p>Verified tokens are kept in a bounded cache keyed by the SHA-256 hash of the token,
+ * so a client that sends the same token on every request pays the signature check and
+ * the decoding only once. The cache is a {@link StripedLruCache}: when it is full, the
+ * least recently used token of a segment is evicted in O(1). Expired entries are dropped
+ * when they are looked up, and purged by a sweep that runs at most once a minute. The
+ * cache holds an immutable copy of the claims and every hit returns a new {@link Claims}
+ * instance, so a request can never alter the claims seen by another. The raw token is
+ * never stored.</p>
+ *
+ * <p>Tokens are signed with the active key of the {@link JwtKeyProperties} ring and carry
+ * its ID in the {@code kid} header, so any replica sharing the ring verifies them with the
+ * same key, and tokens survive restarts. A key past its {@code retire-at} instant no longer
+ * verifies tokens. When no key is configured a random key is generated, which is only
+ * suitable for a single instance.</p>
+ *
+ * <p>Two kinds of token are issued, told apart by the {@code typ} claim: short-lived access
+ * tokens, sent on every request, and long-lived refresh tokens, only accepted by the refresh
+ * endpoint to mint new access tokens without checking the password again. Every token has
+ * a unique {@code jti} claim, so it can be revoked on its own.</p>
+ */
 @Component
 public class JwtUtil {
-    private final Key SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
-    private final long TOKEN_VALIDITY = 5 * 60 * 60 * 1000; // 5 horas en milisegundos
+    private static final Logger logger = LoggerFactory.getLogger(JwtUtil.class);
+    private static final String LOCAL_KEY_ID = "local";
+    public static final String TOKEN_TYPE_CLAIM = "typ";
+    public static final String ACCESS_TOKEN = "access";
+    public static final String REFRESH_TOKEN = "refresh";
+    private static final long SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Value("${jwt.access-token-validity:15m}")
+    private Duration accessTokenValidity = Duration.ofMinutes(15);
+
+    @Value("${jwt.refresh-token-validity:7d}")
+    private Duration refreshTokenValidity = Duration.ofDays(7);
+
+    @Autowired
+    private JwtKeyProperties keyProperties;
+
+    // Hasta cargar la configuración se firma con una clave aleatoria propia de esta instancia
+    private volatile KeyRing keyRing = KeyRing.random();
+
+    // El parser es inmutable y thread-safe: se construye una sola vez y elige la clave por el kid
+    private final JwtParser parser = Jwts.parserBuilder()
+            .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                // jjwt 0.11 declara el parámetro como tipo raw: la sobrescritura debe mantenerlo
+                @Override
+                @SuppressWarnings("rawtypes")
+                public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                    return keyRing.verificationKey(header.getKeyId(), Instant.now());
+                }
+            })
+            .build();
+
+    @Value("${jwt.cache.max-size:10000}")
+    private int cacheMaxSize = 10000;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private final StripedLruCache<Verified> verified = new StripedLruCache<>(() -> cacheMaxSize);
+    private final AtomicLong lastSweep = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Immutable copy of verified claims, kept in the cache until its deadline: the token
+     * expiration, or the retirement of the key that signed it if that comes first.
+     */
+    private record Verified(Map<String, Object> claims, long deadline) {}
+
+    /**
+     * Immutable set of verification keys plus the key used to sign new tokens.
+     */
+    private record KeyRing(String activeKeyId, Key activeKey, Map<String, Key> keys, Map<String, Instant> retireAt) {
+
+        static KeyRing random() {
+            Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+            return new KeyRing(LOCAL_KEY_ID, key, Map.of(LOCAL_KEY_ID, key), Map.of());
+        }
+
+        Key verificationKey(String keyId, Instant now) {
+            Key key = keyId == null ? null : keys.get(keyId);
+            if (key == null) {
+                throw new SignatureException("Unknown signing key: " + keyId);
+            }
+            Instant retired = retireAt.get(keyId);
+            if (retired != null && !now.isBefore(retired)) {
+                throw new SignatureException("Retired signing key: " + keyId);
+            }
+            return key;
+        }
+
+        long retireAtMillis(String keyId) {
+            Instant retired = keyId == null ? null : retireAt.get(keyId);
+            return retired == null ? Long.MAX_VALUE : retired.toEpochMilli();
+        }
+    }
+
+    /**
+     * Loads the signing key ring from the {@code jwt.*} properties. Without configured keys
+     * a random key is kept and a warning is logged, since tokens will then only be accepted
+     * by this instance and until it restarts.
+     *
+     * @throws IllegalStateException if a key has no ID or secret, an ID is repeated, a secret
+     *         is shorter than 256 bits, or the active key is unknown or already retired.
+     */
+    @PostConstruct
+    public void loadKeys() {
+        if (keyProperties == null || keyProperties.getKeys().isEmpty()) {
+            logger.warn("No JWT signing keys configured (jwt.keys), using a random key: tokens will not be accepted by other instances or after a restart");
+            return;
+        }
+
+        Map<String, Key> keys = new LinkedHashMap<>();
+        Map<String, Instant> retireAt = new HashMap<>();
+        for (JwtKeyProperties.SigningKey signingKey : keyProperties.getKeys()) {
+            String id = signingKey.getId();
+            if (id == null || id.isBlank() || signingKey.getSecret() == null) {
+                throw new IllegalStateException("Every JWT signing key needs an id and a secret");
+            }
+            if (keys.containsKey(id)) {
+                throw new IllegalStateException("Duplicated JWT signing key id: " + id);
+            }
+            try {
+                keys.put(id, Keys.hmacShaKeyFor(Decoders.BASE64.decode(signingKey.getSecret())));
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Invalid secret for JWT signing key " + id + ": it must be Base64 and at least 256 bits", e);
+            }
+            if (signingKey.getRetireAt() != null) {
+                retireAt.put(id, signingKey.getRetireAt());
+            }
+        }
+
+        String activeKeyId = keyProperties.getActiveKeyId() != null
+                ? keyProperties.getActiveKeyId()
+                : keys.keySet().iterator().next();
+        Key activeKey = keys.get(activeKeyId);
+        if (activeKey == null) {
+            throw new IllegalStateException("Active JWT signing key not found: " + activeKeyId);
+        }
+        if (retireAt.containsKey(activeKeyId) && !Instant.now().isBefore(retireAt.get(activeKeyId))) {
+            throw new IllegalStateException("Active JWT signing key is retired: " + activeKeyId);
+        }
+
+        keyRing = new KeyRing(activeKeyId, activeKey, Map.copyOf(keys), Map.copyOf(retireAt));
+        verified.clear();
+        logger.info("Loaded {} JWT signing keys, signing with {}", keys.size(), activeKeyId);
+    }
 
     /**
      * Extracts the user ID from the given JWT token.
@@ -52,59 +223,155 @@ public class JwtUtil {
     }
 
     /**
-     * Extracts all claims from the provided JWT token.
+     * Verifies the signature and expiration of the provided JWT token and returns its claims.
+     * This is the only place a token is parsed; callers that need several claims should
+     * parse once and read them from the result. A token already verified and not yet
+     * expired, whose signing key is not retired either, is answered from the cache
+     * without parsing it again. The returned claims belong to the caller.
      *
      * @param token the JWT token from which claims are to be extracted
      * @return the claims contained in the token
-     * @throws io.jsonwebtoken.security.SecurityException if the token signature is invalid
+     * @throws io.jsonwebtoken.security.SecurityException if the token signature is invalid,
+     *         or its signing key is unknown or retired
      * @throws io.jsonwebtoken.ExpiredJwtException if the token has expired
      * @throws io.jsonwebtoken.MalformedJwtException if the token is malformed
      * @throws io.jsonwebtoken.UnsupportedJwtException if the token is unsupported
      * @throws IllegalArgumentException if the token is null or empty
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public Claims extractAllClaims(String token) {
+        if (token == null || token.isEmpty() || cacheMaxSize <= 0) {
+            return parser.parseClaimsJws(token).getBody();
+        }
+
+        lookups.increment();
+        long now = clock.getAsLong();
+        String key = hash(token);
+        Verified cached = verified.get(key);
+        if (cached != null) {
+            if (!isExpired(cached, now)) {
+                hits.increment();
+                return Jwts.claims(cached.claims());
+            }
+            // El token o su clave expiró: se descarta y el parser lo rechaza
+            if (verified.remove(key, cached)) evictions.increment();
+        }
+
+        sweepIfDue(now);
+        Jws<Claims> jws = parser.parseClaimsJws(token);
+        Claims claims = jws.getBody();
+        if (claims.getExpiration() != null) {
+            long deadline = Math.min(claims.getExpiration().getTime(), keyRing.retireAtMillis(jws.getHeader().getKeyId()));
+            verified.put(key, new Verified(Collections.unmodifiableMap(new LinkedHashMap<>(claims)), deadline));
+        }
+        return claims;
+    }
+
+    /**
+     * Purges the expired entries once per sweep interval. Only one caller runs the sweep,
+     * and it locks one cache segment at a time.
+     */
+    private void sweepIfDue(long now) {
+        long last = lastSweep.get();
+        if (last == Long.MIN_VALUE) {
+            lastSweep.compareAndSet(last, now);
+        } else if (now - last >= SWEEP_INTERVAL_MILLIS && lastSweep.compareAndSet(last, now)) {
+            verified.removeIf(entry -> isExpired(entry, now));
+        }
+    }
+
+    private static boolean isExpired(Verified entry, long now) {
+        return entry.deadline() <= now;
+    }
+
+    /**
+     * Hashes a token with SHA-256 to build its cache key.
+     *
+     * @param token the JWT token
+     * @return the Base64 encoded hash of the token
+     */
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     /**
-     * Checks if the provided JWT token has expired.
+     * Returns the verified-token cache metrics.
      *
-     * @param token the JWT token to be checked
-     * @return true if the token has expired, false otherwise
+     * @return a map with the lookups, hits, misses, hit rate, evictions, size and maximum size of the cache.
      */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public Map<String, Object> getCacheStats() {
+        long lookupCount = lookups.sum();
+        long hitCount = hits.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lookups", lookupCount);
+        stats.put("hits", hitCount);
+        stats.put("misses", lookupCount - hitCount);
+        stats.put("hitRate", lookupCount == 0 ? 0.0 : (double) hitCount / lookupCount);
+        stats.put("evictions", evictions.sum() + verified.evictions());
+        stats.put("size", verified.size());
+        stats.put("maxSize", cacheMaxSize);
+        return stats;
     }
 
     /**
-     * Generates a JWT token for the specified user ID.
+     * Generates a short-lived access token for the specified user ID.
      *
      * @param userId The unique identifier of the user for whom the token is being generated.
      * @return A JWT token as a String.
      */
     public String generateToken(String userId) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userId);
+        claims.put(TOKEN_TYPE_CLAIM, ACCESS_TOKEN);
+        return createToken(claims, userId, accessTokenValidity);
     }
 
     /**
-     * Creates a JSON Web Token (JWT) with the specified claims and subject.
+     * Generates a long-lived refresh token for the specified user ID. It is only
+     * accepted to obtain new access tokens, never to authenticate a request.
+     *
+     * @param userId The unique identifier of the user for whom the token is being generated.
+     * @return A JWT refresh token as a String.
+     */
+    public String generateRefreshToken(String userId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(TOKEN_TYPE_CLAIM, REFRESH_TOKEN);
+        return createToken(claims, userId, refreshTokenValidity);
+    }
+
+    /**
+     * Checks whether verified claims belong to a refresh token.
+     *
+     * @param claims the verified claims of a token
+     * @return true for a refresh token, false for an access token
+     */
+    public static boolean isRefreshToken(Claims claims) {
+        return REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM, String.class));
+    }
+
+    /**
+     * Creates a JSON Web Token (JWT) with the specified claims and subject, signed with the
+     * active key of the ring and tagged with its ID in the {@code kid} header. A random
+     * {@code jti} identifies the token for revocation.
      *
      * @param claims  A map containing the claims to be included in the token payload.
      * @param subject The subject of the token, typically identifying the user or entity.
+     * @param validity How long the token is valid from now.
      * @return A compact string representation of the JWT.
      */
-    private String createToken(Map<String, Object> claims, String subject) {
+    private String createToken(Map<String, Object> claims, String subject, Duration validity) {
+        KeyRing ring = keyRing;
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, ring.activeKeyId())
                 .setClaims(claims)
                 .setSubject(subject)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + TOKEN_VALIDITY))
-                .signWith(SECRET_KEY)
+                .setExpiration(new Date(System.currentTimeMillis() + validity.toMillis()))
+                .signWith(ring.activeKey())
                 .compact();
     }
 
@@ -118,7 +385,7 @@ public class JwtUtil {
      *         false otherwise
      */
     public Boolean validateToken(String token, String userId) {
-        final String extractedUserId = extractUserId(token);
-        return (extractedUserId.equals(userId) && !isTokenExpired(token));
+        final Claims claims = extractAllClaims(token);
+        return (claims.getSubject().equals(userId) && !claims.getExpiration().before(new Date()));
     }
 }
\ No newline at end of file
@@ -1,13 +1,18 @@
 package eci.edu.back.cvds_back.util;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
@@ -34,11 +39,15 @@ public class SecurityConfig {
  *         <ul>
  *             <li><code>/user-service/login</code></li>
  *             <li><code>/user-service/register</code></li>
+ *             <li><code>/user-service/refresh</code></li>
  *             <li>All endpoints under <code>/generate-service/**</code></li>
- *             <li>All endpoints under <code>/booking-service/**</code></li>
+ *             <li>All endpoints under <code>/booking-service/**</code>, except the
+ *                 reservation endpoints below</li>
  *         </ul>
  *     </li>
- *     <li>All other requests require authentication.</li>
+ *     <li><code>/booking-service/my-reservations</code> and the make/cancel reservation
+ *         endpoints act on the caller, so they require a valid access token.</li>
+ *     <li>All other requests require authentication; unauthenticated requests get 401.</li>
  *     <li>Session management is configured to be stateless to support token-based authentication.</li>
  *     <li>A custom JWT filter is added to process JWT tokens before the standard authentication filter.</li>
  * </ul>
@@ -47,17 +56,38 @@ public class SecurityConfig {
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/user-service/login", "/user-service/register").permitAll()
+                        .requestMatchers("/user-service/login", "/user-service/register", "/user-service/refresh").permitAll()
                         .requestMatchers("/generate-service/**").permitAll()
+                        .requestMatchers("/booking-service/my-reservations",
+                                "/booking-service/bookings/make/**",
+                                "/booking-service/bookings/cancel/**").authenticated()
                         .requestMatchers("/booking-service/**").permitAll()
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                )
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
                 );
 
         http.addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
+
+    /**
+     * Password encoder used to store and check user passwords.
+     *
+     * <p>BCrypt salts every hash and its cost doubles with each strength step, so the
+     * strength can be raised as hardware gets faster. Hashes stored with a lower strength
+     * are re-hashed on the next successful login.</p>
+     *
+     * @param strength the BCrypt log rounds ({@code security.password.bcrypt-strength}, default 10)
+     * @return the BCrypt {@link PasswordEncoder}
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
+    }
 }
\ No newline at end of file
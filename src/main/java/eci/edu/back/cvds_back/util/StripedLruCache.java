@@ -0,0 +1,209 @@
+package eci.edu.back.cvds_back.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Bounded map of String keys split into independently locked segments, each kept in
+ * least-recently-used order.
+ *
+ * <p>A key always lands in the same segment, chosen by its hash, and only that segment is
+ * locked for a lookup or insertion, so callers working on different keys rarely wait on
+ * each other. When a segment is full, inserting a key evicts the entry of that segment
+ * used longest ago in O(1), without scanning.</p>
+ *
+ * <p>The segments are created on first use from the maximum size supplied, so the size may
+ * come from a configuration property injected after construction. Small caches use a
+ * single segment and are an exact LRU; larger ones use up to {@value #MAX_SEGMENTS}
+ * segments of at least {@value #MIN_SEGMENT_SIZE} entries each, and the total never
+ * exceeds the maximum size.</p>
+ *
+ * @param <V> the type of the cached values
+ */
+public class StripedLruCache<V> {
+    static final int MAX_SEGMENTS = 16;
+    static final int MIN_SEGMENT_SIZE = 1024;
+
+    private final IntSupplier maxSize;
+    private final LongAdder evictions = new LongAdder();
+    private volatile Segment<V>[] segments;
+
+    /**
+     * One lock-protected LRU map. The eldest entry is evicted as soon as an insertion
+     * makes the segment exceed its capacity.
+     */
+    private static final class Segment<V> extends LinkedHashMap<String, V> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            if (size() <= capacity) return false;
+            evictions.increment();
+            return true;
+        }
+    }
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxSize supplies the maximum number of entries, read when the cache is first used
+     */
+    public StripedLruCache(IntSupplier maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the value of a key and marks it as recently used.
+     *
+     * @param key the key
+     * @return the value, or null if the key is not cached
+     */
+    public V get(String key) {
+        Segment<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    /**
+     * Stores the value of a key, evicting the least recently used entry of its segment if full.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(String key, V value) {
+        Segment<V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /**
+     * Returns the value of a key, creating and storing it if the key is not cached.
+     *
+     * @param key     the key
+     * @param factory creates the value of a missing key; it runs under the segment lock
+     * @return the existing or new value
+     */
+    public V computeIfAbsent(String key, Function<String, ? extends V> factory) {
+        Segment<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.computeIfAbsent(key, factory);
+        }
+    }
+
+    /**
+     * Removes a key only if it still maps to the given value.
+     *
+     * @param key   the key
+     * @param value the expected value
+     * @return true if the entry was removed
+     */
+    public boolean remove(String key, V value) {
+        Segment<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key, value);
+        }
+    }
+
+    /**
+     * Removes the entries whose value matches the filter, one segment at a time, so a
+     * segment is only locked while it is scanned. Removed entries count as evictions.
+     *
+     * @param filter selects the values to remove
+     * @return the number of removed entries
+     */
+    public int removeIf(Predicate<? super V> filter) {
+        Segment<V>[] current = segments;
+        if (current == null) return 0;
+
+        int removed = 0;
+        for (Segment<V> segment : current) {
+            synchronized (segment) {
+                int before = segment.size();
+                segment.values().removeIf(filter);
+                removed += before - segment.size();
+            }
+        }
+        evictions.add(removed);
+        return removed;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        Segment<V>[] current = segments;
+        if (current == null) return;
+
+        for (Segment<V> segment : current) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return the sum of the segment sizes
+     */
+    public int size() {
+        Segment<V>[] current = segments;
+        if (current == null) return 0;
+
+        int size = 0;
+        for (Segment<V> segment : current) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of entries evicted because a segment was full or by {@link #removeIf}.
+     *
+     * @return the eviction count
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private Segment<V> segmentFor(String key) {
+        Segment<V>[] current = segments();
+        int hash = key.hashCode();
+        return current[(hash ^ (hash >>> 16)) & (current.length - 1)];
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Segment<V>[] segments() {
+        Segment<V>[] current = segments;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (segments == null) {
+                int max = Math.max(1, maxSize.getAsInt());
+                int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, max / MIN_SEGMENT_SIZE)));
+                Segment<V>[] created = new Segment[count];
+                for (int i = 0; i < count; i++) {
+                    created[i] = new Segment<>(max / count, evictions);
+                }
+                segments = created;
+            }
+            return segments;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package eci.edu.back.cvds_back;
+
+import eci.edu.back.cvds_back.dto.BookingDTO;
+import eci.edu.back.cvds_back.model.Booking;
+import eci.edu.back.cvds_back.service.impl.FreeSlotPool;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the cost of picking a random free slot in the booking generator:
+ * rebuilding a list of temporary bookings on every pick (previous approach)
+ * against taking from a {@link FreeSlotPool} of slot ordinals.
+ *
+ * Excluded from the default build; run it with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class BookingGeneratorBenchmarkTests {
+
+    private static final int[] VALID_HOURS = {7, 9, 11, 13, 15, 17, 19};
+    private static final int DAYS = 30;
+    private static final int PICKS = 50;
+    private static final int ROUNDS = 3;
+
+    @ParameterizedTest(name = "{0} classrooms")
+    @ValueSource(ints = {10, 100, 1000})
+    void compareSlotSampling(int classroomCount) {
+        String[] classrooms = new String[classroomCount];
+        for (int i = 0; i < classroomCount; i++) {
+            classrooms[i] = "R" + i;
+        }
+        LocalDate today = LocalDate.now();
+
+        // Calentamiento del JIT
+        listPicks(classrooms, today, new Random(1));
+        poolPicks(classrooms, today, new Random(1));
+
+        long listNanos = Long.MAX_VALUE;
+        long poolNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            assertEquals(PICKS, listPicks(classrooms, today, new Random(round)));
+            listNanos = Math.min(listNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            assertEquals(PICKS, poolPicks(classrooms, today, new Random(round)));
+            poolNanos = Math.min(poolNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("classrooms=%d slots=%d list=%.1f us/pick pool=%.3f us/pick speedup=%.0fx%n",
+                classroomCount, classroomCount * DAYS * VALID_HOURS.length,
+                listNanos / 1_000.0 / PICKS, poolNanos / 1_000.0 / PICKS, (double) listNanos / poolNanos);
+    }
+
+    private int listPicks(String[] classrooms, LocalDate today, Random random) {
+        Map<String, Map<LocalDate, Set<Integer>>> bookedSlots = new HashMap<>();
+        int picked = 0;
+
+        for (int i = 0; i < PICKS; i++) {
+            List<Booking> availableSlots = new ArrayList<>();
+            for (String classroom : classrooms) {
+                for (int day = 0; day < DAYS; day++) {
+                    LocalDate date = today.plusDays(day);
+                    for (int hour : VALID_HOURS) {
+                        Set<Integer> hours = bookedSlots.getOrDefault(classroom, Map.of()).get(date);
+                        if (hours == null || !hours.contains(hour)) {
+                            BookingDTO dto = new BookingDTO();
+                            dto.setBookingClassRoom(classroom);
+                            dto.setBookingDate(date);
+                            dto.setBookingTime(LocalTime.of(hour, 0));
+                            dto.setBookingId("temp");
+                            dto.setDisable(true);
+                            dto.setPriority(1);
+                            availableSlots.add(new Booking(dto));
+                        }
+                    }
+                }
+            }
+
+            Booking slot = availableSlots.get(random.nextInt(availableSlots.size()));
+            bookedSlots.computeIfAbsent(slot.getBookingClassRoom(), k -> new HashMap<>())
+                    .computeIfAbsent(slot.getBookingDate(), k -> new HashSet<>())
+                    .add(slot.getBookingTime().getHour());
+            picked++;
+        }
+        return picked;
+    }
+
+    private int poolPicks(String[] classrooms, LocalDate today, Random random) {
+        FreeSlotPool pool = new FreeSlotPool(classrooms.length * DAYS * VALID_HOURS.length);
+        for (int slot = 0; slot < classrooms.length * DAYS * VALID_HOURS.length; slot++) {
+            pool.add(slot);
+        }
+
+        int picked = 0;
+        for (int i = 0; i < PICKS; i++) {
+            int slot = pool.takeRandom(random);
+            String classroom = classrooms[slot / VALID_HOURS.length / DAYS];
+            LocalDate date = today.plusDays(slot / VALID_HOURS.length % DAYS);
+            if (classroom != null && date != null) picked++;
+        }
+        return picked;
+    }
+}
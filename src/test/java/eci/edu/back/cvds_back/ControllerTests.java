@@ -4,27 +4,52 @@ import eci.edu.back.cvds_back.config.UserServiceException;
 import eci.edu.back.cvds_back.controller.BookingController;
 import eci.edu.back.cvds_back.controller.BookingGeneratorController;
 import eci.edu.back.cvds_back.controller.UserController;
+import eci.edu.back.cvds_back.dto.AuthenticationResponseDTO;
 import eci.edu.back.cvds_back.dto.BookingDTO;
+import eci.edu.back.cvds_back.dto.BookingPageDTO;
+import eci.edu.back.cvds_back.dto.GenerationJobDTO;
+import eci.edu.back.cvds_back.dto.GenerationRequestDTO;
+import eci.edu.back.cvds_back.dto.GenerationSummaryDTO;
+import eci.edu.back.cvds_back.dto.RefreshTokenDTO;
+import eci.edu.back.cvds_back.dto.UserAuthenticationDTO;
 import eci.edu.back.cvds_back.dto.UserDTO;
+import eci.edu.back.cvds_back.dto.UserSummaryDTO;
 import eci.edu.back.cvds_back.model.Booking;
 import eci.edu.back.cvds_back.model.User;
 import eci.edu.back.cvds_back.service.impl.BookingGeneratorServiceImpl;
 import eci.edu.back.cvds_back.service.interfaces.BookingGeneratorService;
+import eci.edu.back.cvds_back.service.interfaces.GenerationJobService;
+import eci.edu.back.cvds_back.service.interfaces.GenerationProgress;
+import eci.edu.back.cvds_back.service.interfaces.LoginRateLimiter;
 import eci.edu.back.cvds_back.service.interfaces.BookingService;
 import eci.edu.back.cvds_back.service.interfaces.UserService;
+import eci.edu.back.cvds_back.util.JwtAuthentication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -48,6 +73,9 @@ public class ControllerTests {
     @Mock
     private UserService mockUserService;
 
+    @Mock
+    private LoginRateLimiter mockLoginRateLimiter;
+
     @InjectMocks
     private UserController userController;
 
@@ -59,6 +87,9 @@ public class ControllerTests {
     @Mock
     private BookingGeneratorService mockBookingGeneratorService;
 
+    @Mock
+    private GenerationJobService mockGenerationJobService;
+
     @InjectMocks
     private BookingGeneratorController bookingGeneratorController;
 
@@ -91,11 +122,15 @@ public class ControllerTests {
         ReflectionTestUtils.setField(bookingController, "bookingService", mockBookingService);
 
         // Configuración para BookingGeneratorService
+        GenerationSummaryDTO summary = new GenerationSummaryDTO();
+        summary.setGenerated(1);
         when(mockBookingGeneratorService.generateRandomBookings(anyInt(), anyInt()))
-                .thenReturn(bookingList);
+                .thenReturn(summary);
         when(mockBookingGeneratorService.generateExactBookings(anyInt()))
-                .thenReturn(bookingList);
-        when(mockBookingGeneratorService.clearAllBookings())
+                .thenReturn(summary);
+        when(mockBookingGeneratorService.generateBookings(any(GenerationRequestDTO.class)))
+                .thenReturn(summary);
+        when(mockBookingGeneratorService.clearBookings(any(), any(), any(), anyBoolean()))
                 .thenReturn(1);
 
         // Configuración inicial para pruebas de User
@@ -131,6 +166,34 @@ public class ControllerTests {
         verify(mockBookingService).getAllBookings();
     }
 
+    @Test
+    void testBookingsPage() throws BookingServiceException {
+        BookingPageDTO page = new BookingPageDTO(bookingList, "nextCursor");
+        when(mockBookingService.getBookingsPage("cursor", 50)).thenReturn(page);
+
+        BookingPageDTO result = bookingController.bookingsPage(50, "cursor");
+
+        assertEquals(1, result.getItems().size());
+        assertEquals("nextCursor", result.getNext());
+        verify(mockBookingService, never()).getAllBookings();
+    }
+
+    @Test
+    void testStreamBookings() throws IOException {
+        ReflectionTestUtils.setField(bookingController, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        when(mockBookingService.streamAllBookings()).thenReturn(Stream.of(booking, booking));
+
+        ResponseEntity<StreamingResponseBody> response = bookingController.streamBookings();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"bookingId\":\"test123\""));
+        verify(mockBookingService, never()).getAllBookings();
+    }
+
     @Test
     void testBookingById() throws BookingServiceException {
         Booking result = bookingController.booking("test123");
@@ -154,6 +217,47 @@ public class ControllerTests {
         verify(mockBookingService).getAllBookings();
     }
 
+    @Test
+    void testMyReservations_UsesAuthenticatedUser() throws BookingServiceException {
+        when(mockBookingService.getBookingsByReservedBy("user123", null, null, null, null)).thenReturn(List.of(booking));
+        // El userId llega desde el SecurityContext, sin volver a parsear el token
+        List<Booking> result = bookingController.myReservations(authentication("user123"), null, null, null, null);
+        assertEquals(1, result.size());
+        verify(mockBookingService).getBookingsByReservedBy("user123", null, null, null, null);
+    }
+
+    @Test
+    void testMyReservations_InvalidPagingIsBadRequest() {
+        ResponseEntity<Map<String, Object>> response = bookingController.handleInvalidRequest(
+                new IllegalArgumentException("Error: La página no puede ser negativa y el tamaño debe ser al menos 1."));
+
+        assertEquals(400, response.getStatusCode().value());
+        assertEquals("Error: La página no puede ser negativa y el tamaño debe ser al menos 1.", response.getBody().get("message"));
+    }
+
+    @Test
+    void testMakeAndCancelReservation_UseAuthenticatedUser() throws BookingServiceException {
+        when(mockBookingService.makeReservation("test123", "user123")).thenReturn(booking);
+        when(mockBookingService.cancelReservation("test123", "user123")).thenReturn(booking);
+        assertSame(booking, bookingController.makeBookingReservation("test123", authentication("user123")));
+        assertSame(booking, bookingController.cancelBookingReservation("test123", authentication("user123")));
+        verify(mockBookingService).makeReservation("test123", "user123");
+        verify(mockBookingService).cancelReservation("test123", "user123");
+    }
+
+    @Test
+    void testMakeReservation_Unauthenticated() throws BookingServiceException {
+        // Sin token no hay JwtAuthentication: nunca se reserva a nombre de "anonymousUser"
+        assertThrows(BookingServiceException.class, () -> bookingController.makeBookingReservation("test123", null));
+        assertThrows(BookingServiceException.class, () -> bookingController.cancelBookingReservation("test123", null));
+        assertThrows(BookingServiceException.class, () -> bookingController.myReservations(null, null, null, null, null));
+        verifyNoInteractions(mockBookingService);
+    }
+
+    private static JwtAuthentication authentication(String userId) {
+        return new JwtAuthentication(Jwts.claims().setSubject(userId), List.of());
+    }
+
 
 
 
@@ -170,6 +274,7 @@ public class ControllerTests {
         assertNotNull(body);
         assertEquals("Successfully generated 1 bookings", body.get("message"));
         assertEquals(1, body.get("totalGenerated"));
+        assertEquals(1, ((GenerationSummaryDTO) body.get("summary")).getGenerated());
 
         verify(mockBookingGeneratorService).generateRandomBookings(10, 20);
     }
@@ -185,42 +290,243 @@ public class ControllerTests {
 
     @Test
     void testGenerateExactBookingsWithDefaultValue() {
-        ResponseEntity<Map<String, Object>> response = bookingGeneratorController.generateExactBookings(100);
+        ResponseEntity<Map<String, Object>> response = bookingGeneratorController.generateExactBookings(100, 1, null, null, null, null, null, null);
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
-        verify(mockBookingGeneratorService).generateExactBookings(100);
+        verify(mockBookingGeneratorService).generateBookings(argThat(request -> request.getCount() == 100 && request.getParallelism() == 1));
+    }
+
+    @Test
+    void testStreamExactBookings() throws IOException {
+        ReflectionTestUtils.setField(bookingGeneratorController, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        GenerationSummaryDTO summary = new GenerationSummaryDTO();
+        summary.setGenerated(2);
+        when(mockBookingGeneratorService.generateBookings(any(GenerationRequestDTO.class), any(GenerationProgress.class)))
+                .thenAnswer(invocation -> {
+                    GenerationProgress progress = invocation.getArgument(1);
+                    progress.stored(List.of(booking), 0);
+                    progress.stored(List.of(new Booking("lab2", LocalDate.now(), LocalTime.of(9, 0), true, "A101", 1, null)), 1);
+                    return summary;
+                });
+
+        ResponseEntity<StreamingResponseBody> response = bookingGeneratorController.streamExactBookings(2, 1, null, null, null, null, null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("{\"bookingId\":\"test123\"}", lines[0]);
+        assertEquals("{\"bookingId\":\"lab2\"}", lines[1]);
+        assertTrue(lines[2].startsWith("{\"summary\":"));
+        assertTrue(lines[2].contains("\"generated\":2"));
+    }
+
+    @Test
+    void testStreamExactBookings_ClientGone() {
+        ReflectionTestUtils.setField(bookingGeneratorController, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        when(mockBookingGeneratorService.generateBookings(any(GenerationRequestDTO.class), any(GenerationProgress.class)))
+                .thenAnswer(invocation -> {
+                    GenerationProgress progress = invocation.getArgument(1);
+                    progress.stored(List.of(booking), 0);
+                    // Una escritura fallida cancela la generación
+                    assertTrue(progress.isCancelled());
+                    return new GenerationSummaryDTO();
+                });
+        ResponseEntity<StreamingResponseBody> response = bookingGeneratorController.streamExactBookings(2, 1, null, null, null, null, null, null);
+
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Conexión cerrada");
+            }
+        };
+        assertThrows(IOException.class, () -> response.getBody().writeTo(broken));
+    }
+
+    @Test
+    void testStreamExactBookings_InvalidParameterIsRejectedBeforeStreaming() {
+        doThrow(new IllegalArgumentException("Error: Las horas deben estar entre 0 y 23."))
+                .when(mockBookingGeneratorService).validate(any(GenerationRequestDTO.class));
+
+        // La validación falla antes de construir la respuesta, así que el handler responde 400
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> bookingGeneratorController.streamExactBookings(2, 1, null, List.of(25), null, null, null, null));
+        assertEquals(400, bookingGeneratorController.handleInvalidRequest(e).getStatusCode().value());
+        verify(mockBookingGeneratorService, never()).generateBookings(any(GenerationRequestDTO.class), any(GenerationProgress.class));
+    }
+
+    @Test
+    void testStartGenerationJob() {
+        GenerationJobDTO job = new GenerationJobDTO();
+        job.setJobId("job1");
+        job.setStatus("QUEUED");
+        when(mockGenerationJobService.startGeneration(any(GenerationRequestDTO.class))).thenReturn(job);
+
+        ResponseEntity<GenerationJobDTO> response = bookingGeneratorController.startGenerationJob(500, 4, 60, List.of(8, 10), 0.5, 42L, LocalDate.of(2025, 1, 6), "bench");
+
+        assertEquals(202, response.getStatusCode().value());
+        assertEquals("job1", response.getBody().getJobId());
+        verify(mockGenerationJobService).startGeneration(argThat(request -> request.getCount() == 500 && request.getParallelism() == 4
+                && request.getHorizonDays() == 60 && request.getHours().equals(List.of(8, 10)) && request.getOccupancy() == 0.5
+                && request.getSeed() == 42L && request.getBaseDate().equals(LocalDate.of(2025, 1, 6)) && "bench".equals(request.getDataset())));
+    }
+
+    @Test
+    void testLoadDataset() {
+        when(mockBookingGeneratorService.loadDataset("bench")).thenReturn(1000);
+
+        ResponseEntity<Map<String, Object>> response = bookingGeneratorController.loadDataset("bench");
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(1000, response.getBody().get("totalLoaded"));
+    }
+
+    @Test
+    void testStartClearJob() {
+        GenerationJobDTO job = new GenerationJobDTO();
+        job.setJobId("job2");
+        when(mockGenerationJobService.startClear("A101", null, null, true)).thenReturn(job);
+
+        ResponseEntity<GenerationJobDTO> response = bookingGeneratorController.startClearJob("A101", null, null, true);
+
+        assertEquals(202, response.getStatusCode().value());
+        assertEquals("job2", response.getBody().getJobId());
+    }
+
+    @Test
+    void testStartJob_FullQueueIsServiceUnavailable() {
+        RejectedExecutionException rejected = new RejectedExecutionException("Demasiados trabajos en cola, intente más tarde");
+
+        ResponseEntity<Map<String, Object>> response = bookingGeneratorController.handleRejectedJob(rejected);
+
+        assertEquals(503, response.getStatusCode().value());
+        assertEquals("Demasiados trabajos en cola, intente más tarde", response.getBody().get("message"));
+    }
+
+    @Test
+    void testGetAndCancelJob() {
+        GenerationJobDTO job = new GenerationJobDTO();
+        job.setJobId("job1");
+        when(mockGenerationJobService.getJob("job1")).thenReturn(job);
+        when(mockGenerationJobService.cancelJob("job1")).thenReturn(job);
+
+        assertEquals(200, bookingGeneratorController.getJob("job1").getStatusCode().value());
+        assertEquals(200, bookingGeneratorController.cancelJob("job1").getStatusCode().value());
+        assertEquals(404, bookingGeneratorController.getJob("unknown").getStatusCode().value());
+        assertEquals(404, bookingGeneratorController.cancelJob("unknown").getStatusCode().value());
     }
 
     // Tests para UserController
     @Test
     void testUsersController() {
-        List<User> result = userController.users();
-        assertNotNull(result);
+        when(mockUserService.getUsers(2, 50)).thenReturn(List.of(new UserSummaryDTO("user123", "testuser")));
+
+        List<UserSummaryDTO> result = userController.users(2, 50);
         assertEquals(1, result.size());
-        verify(mockUserService).getAllUsers();
+        assertEquals("user123", result.get(0).getUserId());
+        verify(mockUserService).getUsers(2, 50);
+        verify(mockUserService, never()).getAllUsers();
     }
 
     @Test
-    void testUserByIdController() throws UserServiceException {
-        User result = userController.user("user123");
+    void testUsersController_InvalidPagingIsBadRequest() {
+        ResponseEntity<Map<String, Object>> response = userController.handleInvalidRequest(
+                new IllegalArgumentException("Error: La página no puede ser negativa y el tamaño debe ser al menos 1."));
+
+        assertEquals(400, response.getStatusCode().value());
+        assertEquals("Error: La página no puede ser negativa y el tamaño debe ser al menos 1.", response.getBody().get("message"));
+    }
+
+    @Test
+    void testUserByIdController() throws Exception {
+        UserSummaryDTO result = userController.user("user123");
         assertNotNull(result);
         assertEquals("user123", result.getUserId());
         verify(mockUserService).getUser("user123");
+        // El hash de la contraseña nunca se serializa
+        assertFalse(new ObjectMapper().writeValueAsString(result).contains("password"));
     }
 
     @Test
-    void testCreateUserController() {
-        User result = userController.user(userDTO);
+    void testCreateUserController() throws Exception {
+        UserSummaryDTO result = userController.user(userDTO);
         assertNotNull(result);
         verify(mockUserService).saveUser(userDTO);
+        assertFalse(new ObjectMapper().writeValueAsString(result).contains("password"));
     }
 
     @Test
     void testDeleteUserController() throws UserServiceException {
-        List<User> result = userController.deleteUser("user123");
-        assertNotNull(result);
+        ResponseEntity<Void> result = userController.deleteUser("user123");
+        assertEquals(HttpStatus.NO_CONTENT, result.getStatusCode());
+        assertNull(result.getBody());
         verify(mockUserService).deleteUser("user123");
-        verify(mockUserService).getAllUsers();
+        // Ya no se vuelve a leer la lista de usuarios
+        verify(mockUserService, never()).getAllUsers();
+    }
+
+    @Test
+    void testLoginController() throws Exception {
+        UserAuthenticationDTO authDTO = new UserAuthenticationDTO();
+        authDTO.setUserId("user123");
+        authDTO.setPassword("123456789");
+        AuthenticationResponseDTO response = new AuthenticationResponseDTO(true, new UserSummaryDTO("user123", "testuser"), "mockToken", "Autenticación exitosa");
+        when(mockLoginRateLimiter.tryAcquire("user123", "10.0.0.1")).thenReturn(true);
+        when(mockUserService.authenticateAsync(authDTO)).thenReturn(CompletableFuture.completedFuture(response));
+
+        ResponseEntity<AuthenticationResponseDTO> result = userController.authenticate(authDTO, clientRequest("10.0.0.1")).get();
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertSame(response, result.getBody());
+        verify(mockUserService).authenticateAsync(authDTO);
+        verify(mockUserService, never()).authenticate(any());
+    }
+
+    @Test
+    void testLoginController_Throttled() throws Exception {
+        UserAuthenticationDTO authDTO = new UserAuthenticationDTO();
+        authDTO.setUserId("user123");
+        authDTO.setPassword("123456789");
+        when(mockLoginRateLimiter.tryAcquire("user123", "10.0.0.1")).thenReturn(false);
+        when(mockLoginRateLimiter.getRetryAfterSeconds("user123", "10.0.0.1")).thenReturn(12L);
+
+        ResponseEntity<AuthenticationResponseDTO> result = userController.authenticate(authDTO, clientRequest("10.0.0.1")).get();
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, result.getStatusCode());
+        assertEquals("12", result.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertFalse(result.getBody().isAuthenticated());
+        // El intento rechazado no llega al servicio ni a la base de datos
+        verifyNoInteractions(mockUserService);
+    }
+
+    @Test
+    void testRefreshController() {
+        RefreshTokenDTO refreshTokenDTO = new RefreshTokenDTO();
+        refreshTokenDTO.setRefreshToken("refreshToken");
+        AuthenticationResponseDTO response = new AuthenticationResponseDTO(true, null, "newToken", "refreshToken", "Token renovado");
+        when(mockUserService.refresh("refreshToken")).thenReturn(response);
+
+        assertSame(response, userController.refresh(refreshTokenDTO));
+        verify(mockUserService).refresh("refreshToken");
+        verifyNoInteractions(mockLoginRateLimiter);
+    }
+
+    @Test
+    void testLogoutController() {
+        Claims claims = Jwts.claims().setSubject("user123").setId("jti-1");
+        JwtAuthentication authentication = new JwtAuthentication(claims, List.of());
+        RefreshTokenDTO refreshTokenDTO = new RefreshTokenDTO();
+        refreshTokenDTO.setRefreshToken("refreshToken");
+
+        assertEquals("Sesión cerrada", userController.logout(authentication, refreshTokenDTO).get("message"));
+        userController.logout(authentication, null);
+        verify(mockUserService).logout(claims, "refreshToken");
+        verify(mockUserService).logout(claims, null);
+    }
+
+    private static MockHttpServletRequest clientRequest(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        return request;
     }
 }
\ No newline at end of file
@@ -3,7 +3,7 @@ package eci.edu.back.cvds_back;
 import eci.edu.back.cvds_back.dto.AuthenticationResponseDTO;
 import eci.edu.back.cvds_back.dto.BookingDTO;
 import eci.edu.back.cvds_back.dto.UserDTO;
-import eci.edu.back.cvds_back.model.User;
+import eci.edu.back.cvds_back.dto.UserSummaryDTO;
 
 import org.junit.jupiter.api.Test;
 
@@ -53,8 +53,7 @@ public class DtoTests {
     }
     @Test
     void testAuthenticationResponseDTOGettersAndSetters() {
-        User user = new User(null, null, null, null);
-        user.setUserId("testUser");
+        UserSummaryDTO user = new UserSummaryDTO("testUser", null);
         
         AuthenticationResponseDTO dto = new AuthenticationResponseDTO(true, user, "testToken", "Success");
 
@@ -64,8 +63,7 @@ public class DtoTests {
         assertEquals("Success", dto.getMessage());
 
         // Modificación y prueba de setters
-        User newUser = new User(null, null, null, null);
-        newUser.setUserId("newUser");
+        UserSummaryDTO newUser = new UserSummaryDTO("newUser", null);
         
         dto.setAuthenticated(false);
         dto.setUser(newUser);
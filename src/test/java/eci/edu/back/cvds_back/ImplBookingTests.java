@@ -4,26 +4,66 @@ import eci.edu.back.cvds_back.config.BookingServiceException;
 import eci.edu.back.cvds_back.controller.BookingController;
 import eci.edu.back.cvds_back.controller.BookingGeneratorController;
 import eci.edu.back.cvds_back.dto.BookingDTO;
+import eci.edu.back.cvds_back.dto.BookingPageDTO;
+import eci.edu.back.cvds_back.dto.GenerationJobDTO;
+import eci.edu.back.cvds_back.dto.GenerationRequestDTO;
+import eci.edu.back.cvds_back.dto.GenerationSummaryDTO;
 import eci.edu.back.cvds_back.model.Booking;
+import eci.edu.back.cvds_back.model.Counter;
 import eci.edu.back.cvds_back.service.impl.*;
 import eci.edu.back.cvds_back.service.interfaces.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.WriteConcernError;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import com.mongodb.client.result.DeleteResult;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class ImplBookingTests {
@@ -32,6 +72,9 @@ public class ImplBookingTests {
     @Mock
     private BookingMongoRepository bookingMongoRepository;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     @InjectMocks
     private BookingRepositoryImpl bookingRepository;
 
@@ -48,6 +91,8 @@ public class ImplBookingTests {
     @InjectMocks
     private BookingController bookingController;
 
+    private BookingSlotIndexImpl bookingSlotIndex;
+
     private BookingDTO bookingDTO;
     private Booking booking;
     private List<Booking> bookingList;
@@ -62,6 +107,14 @@ public class ImplBookingTests {
     @InjectMocks
     private BookingGeneratorServiceImpl bookingGeneratorService;
 
+    private InMemoryIdAllocator idAllocator;
+
+    @InjectMocks
+    private GenerationJobServiceImpl generationJobService;
+
+    @InjectMocks
+    private IdAllocatorImpl idAllocatorImpl;
+
     @BeforeEach
     void setUp() throws BookingServiceException {
         // Initialize Mockito annotations
@@ -94,22 +147,79 @@ public class ImplBookingTests {
         when(mockBookingService.getAllBookings()).thenReturn(bookingList);
         when(mockBookingService.getBooking("test123")).thenReturn(booking);
         when(mockBookingService.saveBooking(any(BookingDTO.class))).thenReturn(booking);
+        when(mockBookingService.saveBookings(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Inject mocks usando ReflectionTestUtils
         ReflectionTestUtils.setField(bookingService, "bookingRepository", mockBookingRepository);
+        bookingSlotIndex = new BookingSlotIndexImpl();
+        ReflectionTestUtils.setField(bookingSlotIndex, "bookingRepository", mockBookingRepository);
+        ReflectionTestUtils.setField(bookingService, "bookingSlotIndex", bookingSlotIndex);
         ReflectionTestUtils.setField(bookingController, "bookingService", mockBookingService);
 
         // Configuracion mocks para BookingGenerator tests
         when(mockBookingGeneratorService.generateRandomBookings(anyInt(), anyInt()))
-                .thenReturn(bookingList);
+                .thenReturn(new GenerationSummaryDTO());
         when(mockBookingGeneratorService.generateExactBookings(anyInt()))
-                .thenReturn(bookingList);
-        when(mockBookingGeneratorService.clearAllBookings())
+                .thenReturn(new GenerationSummaryDTO());
+        when(mockBookingGeneratorService.clearBookings(any(), any(), any(), anyBoolean()))
                 .thenReturn(1);
 
         // Inject mocks para BookingGenerator
         ReflectionTestUtils.setField(bookingGeneratorController, "bookingGeneratorService", mockBookingGeneratorService);
         ReflectionTestUtils.setField(bookingGeneratorService, "bookingService", mockBookingService);
+        ReflectionTestUtils.setField(bookingGeneratorService, "bookingSlotIndex", bookingSlotIndex);
+        idAllocator = new InMemoryIdAllocator();
+        ReflectionTestUtils.setField(bookingGeneratorService, "idAllocator", idAllocator);
+
+        // Los jobs se ejecutan en el hilo de la prueba
+        ReflectionTestUtils.setField(generationJobService, "executor", (Executor) Runnable::run);
+    }
+
+    /**
+     * IdAllocator en memoria con la misma semántica que el respaldado por Mongo.
+     */
+    private static class InMemoryIdAllocator implements IdAllocator {
+        private final Map<String, Long> counters = new HashMap<>();
+
+        @Override
+        public synchronized long next(String sequence) {
+            return counters.merge(sequence, 1L, Long::sum);
+        }
+
+        @Override
+        public synchronized boolean exists(String sequence) {
+            return counters.containsKey(sequence);
+        }
+
+        @Override
+        public synchronized void ensureAtLeast(String sequence, long value) {
+            counters.merge(sequence, value, Math::max);
+        }
+    }
+
+    /**
+     * Progreso que conserva las reservas almacenadas, para inspeccionarlas en las pruebas.
+     */
+    private static class StoredBookings implements GenerationProgress {
+        private final List<Booking> bookings = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void target(int target) {
+        }
+
+        @Override
+        public void attempted(int count) {
+        }
+
+        @Override
+        public void stored(List<Booking> stored, int rejected) {
+            bookings.addAll(stored);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
     }
 
     // Tests para BookingRepositoryImpl
@@ -142,15 +252,202 @@ public class ImplBookingTests {
     }
 
     @Test
-    void testSave() {
+    void testSave() throws BookingServiceException {
         bookingRepository.save(booking);
         verify(bookingMongoRepository).save(booking);
     }
 
+    @Test
+    void testSave_DuplicateSlotKey() {
+        when(bookingMongoRepository.save(booking)).thenThrow(new DuplicateKeyException("E11000 duplicate key error index: slot_key"));
+
+        BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
+            bookingRepository.save(booking);
+        });
+
+        assertEquals("Error: No se puede reservar en el mismo salón dentro de un intervalo de 2 horas.", exception.getMessage());
+    }
+
+    @Test
+    void testInsert() throws BookingServiceException {
+        bookingRepository.insert(booking);
+        verify(bookingMongoRepository).insert(booking);
+        verify(bookingMongoRepository, never()).save(any(Booking.class));
+    }
+
+    private static DuplicateKeyException duplicateKey(int code, BsonDocument details) {
+        MongoWriteException cause = new MongoWriteException(
+                new WriteError(code, "E11000 duplicate key error", details), new ServerAddress(), Set.of());
+        return new DuplicateKeyException(cause.getMessage(), cause);
+    }
+
+    @Test
+    void testInsert_DuplicateId() {
+        when(bookingMongoRepository.insert(booking)).thenThrow(
+                duplicateKey(11000, new BsonDocument("keyPattern", new BsonDocument("_id", new BsonInt32(1)))));
+
+        BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
+            bookingRepository.insert(booking);
+        });
+
+        assertEquals("Error: El bookingId 'test123' ya existe.", exception.getMessage());
+        verify(bookingMongoRepository, never()).existsById(any());
+    }
+
+    @Test
+    void testInsert_DuplicateIdWithoutKeyPattern() {
+        // Sin keyPattern en los detalles, se consulta si el ID ya existe
+        when(bookingMongoRepository.insert(booking)).thenThrow(duplicateKey(11000, new BsonDocument()));
+        when(bookingMongoRepository.existsById("test123")).thenReturn(true);
+
+        BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
+            bookingRepository.insert(booking);
+        });
+
+        assertEquals("Error: El bookingId 'test123' ya existe.", exception.getMessage());
+    }
+
+    @Test
+    void testInsert_DuplicateSlotKey() {
+        // El texto del mensaje no influye: solo el código y los detalles del WriteError
+        when(bookingMongoRepository.insert(booking)).thenThrow(new DuplicateKeyException("E11000 index: _id_",
+                new MongoWriteException(new WriteError(11000, "E11000 index: _id_",
+                        new BsonDocument("keyPattern", new BsonDocument("slotKey", new BsonInt32(1)))),
+                        new ServerAddress(), Set.of())));
+
+        BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
+            bookingRepository.insert(booking);
+        });
+
+        assertEquals("Error: No se puede reservar en el mismo salón dentro de un intervalo de 2 horas.", exception.getMessage());
+    }
+
+    @Test
+    void testInsertAll() {
+        BulkOperations bulkOps = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class)).thenReturn(bulkOps);
+        when(bulkOps.insert(anyList())).thenReturn(bulkOps);
+
+        List<Booking> inserted = bookingRepository.insertAll(bookingList);
+
+        assertEquals(bookingList, inserted);
+        verify(bulkOps).insert(bookingList);
+        verify(bulkOps).execute();
+    }
+
+    @Test
+    void testInsertAll_SkipsRejectedBookings() {
+        Booking second = new Booking("test456", LocalDate.now(), LocalTime.of(14, 0), true, "A101", 1, null);
+        Booking third = new Booking("test789", LocalDate.now(), LocalTime.of(16, 0), true, "A101", 1, null);
+        BulkOperations bulkOps = mock(BulkOperations.class);
+        BulkOperationException bulkException = mock(BulkOperationException.class);
+        when(bulkException.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 1)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class)).thenReturn(bulkOps);
+        when(bulkOps.insert(anyList())).thenReturn(bulkOps);
+        when(bulkOps.execute()).thenThrow(bulkException);
+
+        List<Booking> inserted = bookingRepository.insertAll(List.of(booking, second, third));
+
+        assertEquals(List.of(booking, third), inserted);
+    }
+
+    @Test
+    void testInsertAll_RethrowsNonDuplicateErrors() {
+        BulkOperations bulkOps = mock(BulkOperations.class);
+        BulkOperationException bulkException = mock(BulkOperationException.class);
+        // Un error de validación (121) no es un duplicado: no se descarta en silencio
+        when(bulkException.getErrors()).thenReturn(List.of(
+                new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 0),
+                new BulkWriteError(121, "Document failed validation", new BsonDocument(), 1)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class)).thenReturn(bulkOps);
+        when(bulkOps.insert(anyList())).thenReturn(bulkOps);
+        when(bulkOps.execute()).thenThrow(bulkException);
+
+        assertThrows(BulkOperationException.class, () -> bookingRepository.insertAll(bookingList));
+    }
+
+    @Test
+    void testInsertAll_RethrowsWriteConcernError() {
+        BulkOperations bulkOps = mock(BulkOperations.class);
+        MongoBulkWriteException cause = new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                List.of(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 0)),
+                new WriteConcernError(64, "WriteConcernFailed", "waiting for replication timed out", new BsonDocument()),
+                new ServerAddress(), Set.of());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class)).thenReturn(bulkOps);
+        when(bulkOps.insert(anyList())).thenReturn(bulkOps);
+        when(bulkOps.execute()).thenThrow(new BulkOperationException("Bulk write failed", cause));
+
+        assertThrows(BulkOperationException.class, () -> bookingRepository.insertAll(bookingList));
+    }
+
+    @Test
+    void testFindByClassRoomsAndDates() {
+        LocalDate from = LocalDate.of(2030, 1, 1);
+        LocalDate to = LocalDate.of(2030, 1, 30);
+        when(mongoTemplate.find(any(Query.class), eq(Booking.class))).thenReturn(List.of(booking));
+
+        assertEquals(List.of(booking), bookingRepository.findByClassRoomsAndDates(List.of("A101", "B201"), from, to));
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Booking.class));
+        Document criteria = queryCaptor.getValue().getQueryObject();
+        assertEquals(new Document("$in", List.of("A101", "B201")), criteria.get("bookingClassRoom"));
+        assertEquals(new Document("$gte", from).append("$lte", to), criteria.get("bookingDate"));
+        verify(bookingMongoRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindMaxGeneratedNumber() {
+        when(mongoTemplate.stream(any(Query.class), eq(Booking.class))).thenReturn(Stream.of(
+                new Booking("lab5", null, null, true, null, null, null),
+                new Booking("lab12", null, null, true, null, null, null),
+                new Booking("lab99999999999999999999", null, null, true, null, null, null)));
+
+        assertEquals(12, bookingRepository.findMaxGeneratedNumber());
+
+        // Solo se leen los IDs generados
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(queryCaptor.capture(), eq(Booking.class));
+        assertEquals("^lab\\d+$", queryCaptor.getValue().getQueryObject().get("bookingId").toString());
+        assertEquals(new Document("bookingId", 1), queryCaptor.getValue().getFieldsObject());
+    }
+
+    @Test
+    void testDeleteMatching_NoFilters() {
+        when(mongoTemplate.remove(any(Query.class), eq(Booking.class))).thenReturn(DeleteResult.acknowledged(42));
+
+        int deleted = bookingRepository.deleteMatching(null, null, null, false);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(queryCaptor.capture(), eq(Booking.class));
+        assertEquals(42, deleted);
+        assertTrue(queryCaptor.getValue().getQueryObject().isEmpty());
+    }
+
+    @Test
+    void testDeleteMatching_WithFilters() {
+        LocalDate from = LocalDate.of(2030, 1, 1);
+        LocalDate to = LocalDate.of(2030, 1, 31);
+        when(mongoTemplate.remove(any(Query.class), eq(Booking.class))).thenReturn(DeleteResult.acknowledged(3));
+
+        int deleted = bookingRepository.deleteMatching("A101", from, to, true);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(queryCaptor.capture(), eq(Booking.class));
+        Document criteria = queryCaptor.getValue().getQueryObject();
+        assertEquals(3, deleted);
+        assertEquals("A101", criteria.get("bookingClassRoom"));
+        assertEquals(new Document("$gte", from).append("$lte", to), criteria.get("bookingDate"));
+        assertEquals("^lab\\d+$", criteria.get("bookingId").toString());
+    }
+
     @Test
     void testDeleteById() throws BookingServiceException {
-        bookingRepository.deleteById("test123");
-        verify(bookingMongoRepository).deleteById("test123");
+        when(bookingMongoRepository.deleteByBookingId("test123")).thenReturn(booking);
+
+        Booking deleted = bookingRepository.deleteById("test123");
+        assertEquals(booking, deleted);
+        verify(bookingMongoRepository).deleteByBookingId("test123");
     }
 
     @Test
@@ -171,6 +468,48 @@ public class ImplBookingTests {
         assertEquals("Booking Not Found", exception.getMessage());
     }
 
+    @Test
+    void testFindByClassRoomAndDate() {
+        LocalDate today = LocalDate.now();
+        when(bookingMongoRepository.findByBookingClassRoomAndBookingDate("Sala A", today)).thenReturn(bookingList);
+
+        List<Booking> result = bookingRepository.findByClassRoomAndDate("Sala A", today);
+
+        assertEquals(1, result.size());
+        verify(bookingMongoRepository).findByBookingClassRoomAndBookingDate("Sala A", today);
+        verify(bookingMongoRepository, never()).findAll();
+    }
+
+    @Test
+    void testReserve() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Booking.class)))
+                .thenReturn(booking);
+
+        Booking result = bookingRepository.reserve("test123", "user1");
+
+        assertEquals(booking, result);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(queryCaptor.capture(), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(Booking.class));
+        assertEquals("test123", queryCaptor.getValue().getQueryObject().get("_id"));
+        assertEquals(true, queryCaptor.getValue().getQueryObject().get("disable"));
+        assertEquals("user1", updateCaptor.getValue().getUpdateObject().get("$set", Document.class).get("reservedBy"));
+        verify(bookingMongoRepository, never()).save(any(Booking.class));
+    }
+
+    @Test
+    void testRelease() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Booking.class)))
+                .thenReturn(null);
+
+        assertNull(bookingRepository.release("test123", "user1"));
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(queryCaptor.capture(), any(Update.class), any(FindAndModifyOptions.class), eq(Booking.class));
+        assertEquals(false, queryCaptor.getValue().getQueryObject().get("disable"));
+        assertNotNull(queryCaptor.getValue().getQueryObject().get("reservedBy"));
+    }
+
     @Test
     void testExistsById() {
         assertTrue(bookingRepository.existsById("test123"));
@@ -191,7 +530,6 @@ public class ImplBookingTests {
 
     @Test
     void testSaveBooking_Success() throws BookingServiceException {
-        when(mockBookingRepository.existsById("newBooking")).thenReturn(false);
 
         BookingDTO newBookingDTO = new BookingDTO();
         newBookingDTO.setBookingId("newBooking");
@@ -203,18 +541,22 @@ public class ImplBookingTests {
         Booking result = bookingService.saveBooking(newBookingDTO);
         assertNotNull(result);
         assertEquals("newBooking", result.getBookingId());
-        verify(mockBookingRepository).save(any(Booking.class));
+        verify(mockBookingRepository).insert(any(Booking.class));
     }
 
     @Test
-    void testSaveBooking_AlreadyExists() {
-        when(mockBookingRepository.existsById("test123")).thenReturn(true);
+    void testSaveBooking_AlreadyExists() throws BookingServiceException {
+        bookingDTO.setPriority(1);
+        doThrow(new BookingServiceException("Error: El bookingId 'test123' ya existe."))
+                .when(mockBookingRepository).insert(any(Booking.class));
 
         BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
             bookingService.saveBooking(bookingDTO);
         });
 
         assertTrue(exception.getMessage().contains("ya existe"));
+        verify(mockBookingRepository, never()).existsById(anyString());
+        assertFalse(bookingSlotIndex.hasConflict(bookingDTO.getBookingClassRoom(), bookingDTO.getBookingDate(), bookingDTO.getBookingTime()));
     }
 
     @Test
@@ -238,8 +580,7 @@ public class ImplBookingTests {
         newBookingDTO.setPriority(2);
 
         // Configurar comportamiento del mock
-        when(mockBookingRepository.existsById("new123")).thenReturn(false);
-        when(mockBookingRepository.findAll()).thenReturn(existingBookings);
+        when(mockBookingRepository.findByClassRoomAndDate(classRoom, today)).thenReturn(existingBookings);
 
         // Ejecutar método bajo prueba
         Booking result = bookingService.saveBooking(newBookingDTO);
@@ -252,11 +593,11 @@ public class ImplBookingTests {
         assertEquals(classRoom, result.getBookingClassRoom());
         assertTrue(result.isDisable()); // Por defecto es true según el constructor
         assertEquals(2,result.getPriority());
-        verify(mockBookingRepository).save(any(Booking.class));
+        verify(mockBookingRepository).insert(any(Booking.class));
     }
 
     @Test
-    void testSaveBooking_FailsWithTimeGapLessThan2Hours() {
+    void testSaveBooking_FailsWithTimeGapLessThan2Hours() throws BookingServiceException {
         // Configurar booking existente
         LocalDate today = LocalDate.now();
         LocalTime time1 = LocalTime.of(10, 0); // 10:00 AM
@@ -276,8 +617,7 @@ public class ImplBookingTests {
         newBookingDTO.setPriority(3);
 
         // Configurar comportamiento del mock
-        when(mockBookingRepository.existsById("new123")).thenReturn(false);
-        when(mockBookingRepository.findAll()).thenReturn(existingBookings);
+        when(mockBookingRepository.findByClassRoomAndDate(classRoom, today)).thenReturn(existingBookings);
 
         // Ejecutar método bajo prueba y verificar excepción
         BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
@@ -287,8 +627,9 @@ public class ImplBookingTests {
         // Verificar mensaje de error
         assertEquals("Error: No se puede reservar en el mismo salón dentro de un intervalo de 2 horas.", exception.getMessage());
 
-        // Verificar que nunca se llamó al método save
-        verify(mockBookingRepository, never()).save(any(Booking.class));
+        // Verificar que nunca se llamó al método save ni se recorrió toda la colección
+        verify(mockBookingRepository, never()).insert(any(Booking.class));
+        verify(mockBookingRepository, never()).findAll();
     }
 
     @Test
@@ -313,8 +654,7 @@ public class ImplBookingTests {
         newBookingDTO.setPriority(4);
 
         // Configurar comportamiento del mock
-        when(mockBookingRepository.existsById("new123")).thenReturn(false);
-        when(mockBookingRepository.findAll()).thenReturn(existingBookings);
+        when(mockBookingRepository.findByClassRoomAndDate(classRoomA, today)).thenReturn(existingBookings);
 
         // Ejecutar método bajo prueba
         Booking result = bookingService.saveBooking(newBookingDTO);
@@ -327,7 +667,7 @@ public class ImplBookingTests {
         assertEquals(classRoomB, result.getBookingClassRoom());
         assertTrue(result.isDisable()); // Por defecto es true según el constructor
         assertEquals(4,result.getPriority());
-        verify(mockBookingRepository).save(any(Booking.class));
+        verify(mockBookingRepository).insert(any(Booking.class));
     }
 
     @Test
@@ -352,8 +692,7 @@ public class ImplBookingTests {
         newBookingDTO.setPriority(5);
 
         // Configurar comportamiento del mock
-        when(mockBookingRepository.existsById("new123")).thenReturn(false);
-        when(mockBookingRepository.findAll()).thenReturn(existingBookings);
+        when(mockBookingRepository.findByClassRoomAndDate(classRoom, today)).thenReturn(existingBookings);
 
         // Ejecutar método bajo prueba
         Booking result = bookingService.saveBooking(newBookingDTO);
@@ -366,7 +705,7 @@ public class ImplBookingTests {
         assertEquals(classRoom, result.getBookingClassRoom());
         assertTrue(result.isDisable()); // Por defecto es true según el constructor
         assertEquals(5,result.getPriority());
-        verify(mockBookingRepository).save(any(Booking.class));
+        verify(mockBookingRepository).insert(any(Booking.class));
     }
 
     @Test
@@ -390,8 +729,7 @@ public class ImplBookingTests {
         newBookingDTO.setPriority(1);
 
         // Configurar comportamiento del mock
-        when(mockBookingRepository.existsById("new123")).thenReturn(false);
-        when(mockBookingRepository.findAll()).thenReturn(existingBookings);
+        when(mockBookingRepository.findByClassRoomAndDate(classRoom, today)).thenReturn(existingBookings);
 
         // Ejecutar método bajo prueba
         Booking result = bookingService.saveBooking(newBookingDTO);
@@ -399,11 +737,11 @@ public class ImplBookingTests {
         // Verificar
         assertNotNull(result);
         assertEquals("new123", result.getBookingId());
-        verify(mockBookingRepository).save(any(Booking.class));
+        verify(mockBookingRepository).insert(any(Booking.class));
     }
 
     @Test
-    void testSaveBooking_FailsWithPriorBookingLessThan2Hours() {
+    void testSaveBooking_FailsWithPriorBookingLessThan2Hours() throws BookingServiceException {
         // Configurar booking existente
         LocalDate today = LocalDate.now();
         LocalTime time1 = LocalTime.of(14, 0); // 2:00 PM
@@ -423,8 +761,7 @@ public class ImplBookingTests {
         newBookingDTO.setPriority(2);
 
         // Configurar comportamiento del mock
-        when(mockBookingRepository.existsById("new123")).thenReturn(false);
-        when(mockBookingRepository.findAll()).thenReturn(existingBookings);
+        when(mockBookingRepository.findByClassRoomAndDate(classRoom, today)).thenReturn(existingBookings);
 
         // Ejecutar método bajo prueba y verificar excepción
         BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
@@ -435,7 +772,7 @@ public class ImplBookingTests {
         assertEquals("Error: No se puede reservar en el mismo salón dentro de un intervalo de 2 horas.", exception.getMessage());
 
         // Verificar que nunca se llamó al método save
-        verify(mockBookingRepository, never()).save(any(Booking.class));
+        verify(mockBookingRepository, never()).insert(any(Booking.class));
     }
 
     @Test
@@ -471,9 +808,59 @@ public class ImplBookingTests {
         assertEquals("Error: La prioridad debe estar entre 1 y 5.", highPriorityException.getMessage());
 
         // Verificar que nunca se llamó a save debido a que la validación falló
-        verify(mockBookingRepository, never()).save(any(Booking.class));
+        verify(mockBookingRepository, never()).insert(any(Booking.class));
+    }
+
+    @Test
+    void testSaveBooking_ExistingIdIsReportedBeforeOtherErrors() throws BookingServiceException {
+        // test123 ya existe: se informa antes que la prioridad inválida
+        bookingDTO.setPriority(9);
+        BookingServiceException priorityException = assertThrows(BookingServiceException.class,
+                () -> bookingService.saveBooking(bookingDTO));
+        assertEquals("Error: El bookingId 'test123' ya existe.", priorityException.getMessage());
+
+        // ... y antes que el conflicto de 2 horas
+        bookingDTO.setPriority(1);
+        LocalDate date = bookingDTO.getBookingDate();
+        when(mockBookingRepository.findByClassRoomAndDate("Sala A", date))
+                .thenReturn(List.of(new Booking("other", date, LocalTime.of(14, 0), false, "Sala A", 1, null)));
+        BookingServiceException conflictException = assertThrows(BookingServiceException.class,
+                () -> bookingService.saveBooking(bookingDTO));
+        assertEquals("Error: El bookingId 'test123' ya existe.", conflictException.getMessage());
+        verify(mockBookingRepository, never()).insert(any(Booking.class));
+    }
+
+
+    @Test
+    void testSaveBookings_IndexesOnlyInsertedBookings() {
+        LocalDate date = LocalDate.of(2030, 1, 10);
+        Booking stored = new Booking("lab1", date, LocalTime.of(9, 0), true, "A101", 1, null);
+        Booking rejected = new Booking("lab2", date, LocalTime.of(15, 0), true, "A101", 1, null);
+        when(mockBookingRepository.findByClassRoomAndDate("A101", date)).thenReturn(new ArrayList<>());
+        when(mockBookingRepository.insertAll(anyList())).thenReturn(List.of(stored));
+
+        List<Booking> result = bookingService.saveBookings(List.of(stored, rejected));
+
+        assertEquals(List.of(stored), result);
+        assertTrue(bookingSlotIndex.hasConflict("A101", date, LocalTime.of(10, 0)));
+        assertFalse(bookingSlotIndex.hasConflict("A101", date, LocalTime.of(15, 0)));
     }
 
+    @Test
+    void testDeleteBookings_InvalidatesSlotIndex() {
+        LocalDate date = LocalDate.of(2030, 1, 10);
+        when(mockBookingRepository.findByClassRoomAndDate("A101", date))
+                .thenReturn(List.of(new Booking("lab1", date, LocalTime.of(9, 0), true, "A101", 1, null)))
+                .thenReturn(new ArrayList<>());
+        when(mockBookingRepository.deleteMatching("A101", null, null, true)).thenReturn(1);
+        assertTrue(bookingSlotIndex.hasConflict("A101", date, LocalTime.of(10, 0)));
+
+        int deleted = bookingService.deleteBookings("A101", null, null, true);
+
+        assertEquals(1, deleted);
+        assertFalse(bookingSlotIndex.hasConflict("A101", date, LocalTime.of(10, 0)));
+        verify(mockBookingRepository, times(2)).findByClassRoomAndDate("A101", date);
+    }
 
     @Test
     void testGetAllBookings() {
@@ -485,49 +872,290 @@ public class ImplBookingTests {
 
     @Test
     void testDeleteBooking() throws BookingServiceException {
-        doNothing().when(mockBookingRepository).deleteById(anyString());
+        when(mockBookingRepository.deleteById(anyString())).thenReturn(booking);
 
         bookingService.deleteBooking("test123");
         verify(mockBookingRepository).deleteById("test123");
     }
 
+    // Pruebas de concurrencia para BookingServiceImpl.saveBooking
+    private BookingServiceImpl concurrentBookingService(Map<String, Booking> store) throws BookingServiceException {
+        BookingRepository repository = mock(BookingRepository.class);
+        when(repository.findByClassRoomAndDate(anyString(), any(LocalDate.class))).thenAnswer(inv -> store.values().stream()
+                .filter(b -> b.getBookingClassRoom().equals(inv.getArgument(0)) && b.getBookingDate().equals(inv.getArgument(1)))
+                .collect(Collectors.toList()));
+        doAnswer(inv -> {
+            Booking saved = inv.getArgument(0);
+            Thread.yield(); // Amplía la ventana entre la verificación y la inserción
+            if (store.putIfAbsent(saved.getBookingId(), saved) != null) {
+                throw new BookingServiceException("Error: El bookingId '" + saved.getBookingId() + "' ya existe.");
+            }
+            return null;
+        }).when(repository).insert(any(Booking.class));
+
+        BookingSlotIndexImpl index = new BookingSlotIndexImpl();
+        ReflectionTestUtils.setField(index, "bookingRepository", repository);
+        BookingServiceImpl service = new BookingServiceImpl();
+        ReflectionTestUtils.setField(service, "bookingRepository", repository);
+        ReflectionTestUtils.setField(service, "bookingSlotIndex", index);
+        return service;
+    }
+
+    private int runConcurrently(BookingServiceImpl service, List<BookingDTO> requests) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger saved = new AtomicInteger();
+        for (BookingDTO request : requests) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    service.saveBooking(request);
+                    saved.incrementAndGet();
+                } catch (BookingServiceException e) {
+                    // Conflicto esperado
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        return saved.get();
+    }
+
+    private BookingDTO concurrentRequest(String id, String classRoom, LocalDate date, LocalTime time) {
+        BookingDTO dto = new BookingDTO();
+        dto.setBookingId(id);
+        dto.setBookingClassRoom(classRoom);
+        dto.setBookingDate(date);
+        dto.setBookingTime(time);
+        dto.setPriority(1);
+        return dto;
+    }
+
+    @Test
+    void testSaveBooking_ConcurrentSameSlotSavesOnlyOnce() throws InterruptedException, BookingServiceException {
+        Map<String, Booking> store = new ConcurrentHashMap<>();
+        BookingServiceImpl service = concurrentBookingService(store);
+        LocalDate today = LocalDate.now();
+
+        List<BookingDTO> requests = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            requests.add(concurrentRequest("same" + i, "A101", today, LocalTime.of(9, 0)));
+        }
+
+        assertEquals(1, runConcurrently(service, requests));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testSaveBooking_ConcurrentStressHasNoDoubleBookings() throws InterruptedException, BookingServiceException {
+        Map<String, Booking> store = new ConcurrentHashMap<>();
+        BookingServiceImpl service = concurrentBookingService(store);
+        LocalDate today = LocalDate.now();
+        String[] classRooms = {"A101", "A102", "B201", "B202", "C301", "C302", "D401", "D402"};
+        Random random = new Random(42);
+
+        List<BookingDTO> requests = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            LocalTime time = LocalTime.of(7 + random.nextInt(14), random.nextBoolean() ? 0 : 30);
+            requests.add(concurrentRequest("stress" + i, classRooms[i % classRooms.length], today.plusDays(random.nextInt(3)), time));
+        }
+
+        int saved = runConcurrently(service, requests);
+
+        assertEquals(saved, store.size());
+        Map<String, List<Booking>> bySlot = store.values().stream()
+                .collect(Collectors.groupingBy(b -> b.getBookingClassRoom() + "|" + b.getBookingDate()));
+        for (List<Booking> bookings : bySlot.values()) {
+            bookings.sort(Comparator.comparing(Booking::getBookingTime));
+            for (int i = 1; i < bookings.size(); i++) {
+                long gap = bookings.get(i - 1).getBookingTime().until(bookings.get(i).getBookingTime(), java.time.temporal.ChronoUnit.MINUTES);
+                assertTrue(gap >= 120, "Double booking en " + bookings.get(i).getBookingClassRoom());
+            }
+        }
+    }
+
+    // Tests para BookingSlotIndexImpl
+    @Test
+    void testSlotIndex_ConflictWithinTwoHours() {
+        LocalDate today = LocalDate.now();
+        when(mockBookingRepository.findByClassRoomAndDate("Sala A", today))
+                .thenReturn(List.of(new Booking("existing123", today, LocalTime.of(10, 0), true, "Sala A", 1, null)));
+
+        assertTrue(bookingSlotIndex.hasConflict("Sala A", today, LocalTime.of(8, 1)));
+        assertTrue(bookingSlotIndex.hasConflict("Sala A", today, LocalTime.of(11, 59)));
+        assertFalse(bookingSlotIndex.hasConflict("Sala A", today, LocalTime.of(8, 0)));
+        assertFalse(bookingSlotIndex.hasConflict("Sala A", today, LocalTime.of(12, 0)));
+        assertFalse(bookingSlotIndex.hasConflict("Sala B", today, LocalTime.of(10, 0)));
+    }
+
+    @Test
+    void testSlotIndex_LoadsBucketOnceAndCountsHitsAndMisses() {
+        LocalDate today = LocalDate.now();
+
+        bookingSlotIndex.hasConflict("Sala A", today, LocalTime.of(10, 0));
+        bookingSlotIndex.hasConflict("Sala A", today, LocalTime.of(14, 0));
+
+        verify(mockBookingRepository, times(1)).findByClassRoomAndDate("Sala A", today);
+        Map<String, Object> stats = bookingSlotIndex.getStats();
+        assertEquals(2L, stats.get("lookups"));
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+    }
+
+    @Test
+    void testSlotIndex_TracksSaveAndDelete() throws BookingServiceException {
+        LocalDate today = LocalDate.now();
+        BookingDTO newBookingDTO = new BookingDTO();
+        newBookingDTO.setBookingId("new123");
+        newBookingDTO.setBookingDate(today);
+        newBookingDTO.setBookingTime(LocalTime.of(10, 0));
+        newBookingDTO.setBookingClassRoom("Sala C");
+        newBookingDTO.setPriority(1);
+
+        Booking saved = bookingService.saveBooking(newBookingDTO);
+        assertTrue(bookingSlotIndex.hasConflict("Sala C", today, LocalTime.of(11, 0)));
+        assertEquals(1L, bookingSlotIndex.getStats().get("size"));
+
+        when(mockBookingRepository.deleteById("new123")).thenReturn(saved);
+        bookingService.deleteBooking("new123");
+
+        assertFalse(bookingSlotIndex.hasConflict("Sala C", today, LocalTime.of(11, 0)));
+        assertEquals(0L, bookingSlotIndex.getStats().get("size"));
+    }
+
+    @Test
+    void testSlotIndex_WarmUpLoadsAllBookings() {
+        LocalDate today = LocalDate.now();
+        when(mockBookingRepository.streamAll()).thenReturn(Stream.of(
+                new Booking("b1", today, LocalTime.of(7, 0), true, "A101", 1, null),
+                new Booking("b2", today, LocalTime.of(9, 0), true, "A101", 1, null),
+                new Booking("b3", today, LocalTime.of(9, 0), true, "B201", 1, null)));
+
+        bookingSlotIndex.warmUp();
+
+        assertTrue(bookingSlotIndex.hasConflict("A101", today, LocalTime.of(8, 0)));
+        assertTrue(bookingSlotIndex.hasConflict("B201", today, LocalTime.of(10, 0)));
+        verify(mockBookingRepository, never()).findByClassRoomAndDate(anyString(), any(LocalDate.class));
+        Map<String, Object> stats = bookingSlotIndex.getStats();
+        assertEquals(true, stats.get("warmedUp"));
+        assertEquals(3L, stats.get("size"));
+        assertEquals(2, stats.get("classrooms"));
+    }
+
+    @Test
+    void testSlotIndex_ReloadsExpiredBucket() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        ReflectionTestUtils.setField(bookingSlotIndex, "clock", (LongSupplier) now::get);
+        LocalDate today = LocalDate.now();
+        // Otra réplica reserva las 10:00 después de que el balde se cargó vacío
+        when(mockBookingRepository.findByClassRoomAndDate("A101", today))
+                .thenReturn(new ArrayList<>())
+                .thenReturn(List.of(new Booking("other", today, LocalTime.of(10, 0), true, "A101", 1, null)));
+
+        assertFalse(bookingSlotIndex.hasConflict("A101", today, LocalTime.of(11, 0)));
+        now.addAndGet(((Duration) ReflectionTestUtils.getField(bookingSlotIndex, "ttl")).toMillis() - 1);
+        assertFalse(bookingSlotIndex.hasConflict("A101", today, LocalTime.of(11, 0)));
+        now.addAndGet(1);
+        assertTrue(bookingSlotIndex.hasConflict("A101", today, LocalTime.of(11, 0)));
+
+        verify(mockBookingRepository, times(2)).findByClassRoomAndDate("A101", today);
+        Map<String, Object> stats = bookingSlotIndex.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(1L, stats.get("buckets"));
+    }
+
+    @Test
+    void testSlotIndex_SweepDropsExpiredAndPastBuckets() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        ReflectionTestUtils.setField(bookingSlotIndex, "clock", (LongSupplier) now::get);
+        ReflectionTestUtils.setField(bookingSlotIndex, "ttl", Duration.ofHours(1));
+        LocalDate today = LocalDate.now();
+
+        bookingSlotIndex.hasConflict("A101", today.minusDays(1), LocalTime.of(9, 0));
+        bookingSlotIndex.hasConflict("A101", today, LocalTime.of(9, 0));
+        now.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        bookingSlotIndex.hasConflict("B201", today, LocalTime.of(9, 0));
+
+        // El día pasado se descarta; los baldes vigentes se conservan
+        Map<String, Object> stats = bookingSlotIndex.getStats();
+        assertEquals(2L, stats.get("buckets"));
+        assertEquals(1L, stats.get("evictions"));
+
+        now.addAndGet(TimeUnit.HOURS.toMillis(1));
+        bookingSlotIndex.hasConflict("C301", today, LocalTime.of(9, 0));
+        stats = bookingSlotIndex.getStats();
+        assertEquals(1L, stats.get("buckets"));
+        assertEquals(1, stats.get("classrooms"));
+        assertEquals(3L, stats.get("evictions"));
+    }
+
+    @Test
+    void testSlotIndex_BoundedBuckets() {
+        ReflectionTestUtils.setField(bookingSlotIndex, "maxBuckets", 2);
+        LocalDate today = LocalDate.now();
+        when(mockBookingRepository.findByClassRoomAndDate("C301", today))
+                .thenReturn(List.of(new Booking("c1", today, LocalTime.of(9, 0), true, "C301", 1, null)));
+
+        bookingSlotIndex.hasConflict("A101", today, LocalTime.of(9, 0));
+        bookingSlotIndex.hasConflict("B201", today, LocalTime.of(9, 0));
+        // Con el índice lleno, la consulta se responde igual pero el balde no se guarda
+        assertTrue(bookingSlotIndex.hasConflict("C301", today, LocalTime.of(10, 0)));
+        assertTrue(bookingSlotIndex.hasConflict("C301", today, LocalTime.of(10, 0)));
+
+        assertEquals(2L, bookingSlotIndex.getStats().get("buckets"));
+        verify(mockBookingRepository, times(2)).findByClassRoomAndDate("C301", today);
+    }
+
+    @Test
+    void testSlotIndex_AddDoesNotCountAsLookup() {
+        LocalDate today = LocalDate.now();
+        bookingSlotIndex.hasConflict("A101", today, LocalTime.of(7, 0));
+
+        bookingSlotIndex.add(new Booking("b1", today, LocalTime.of(9, 0), true, "A101", 1, null));
+        bookingSlotIndex.add(new Booking("b2", today, LocalTime.of(15, 0), true, "A101", 1, null));
+
+        Map<String, Object> stats = bookingSlotIndex.getStats();
+        assertEquals(1L, stats.get("lookups"));
+        assertEquals(0L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(2L, stats.get("size"));
+    }
+
     // Tests for BookingGeneratorServiceImpl
     @Test
     void testGenerateExactBookings() throws BookingServiceException {
         // Crear una lista vacía de reservas existentes
-        when(mockBookingService.getAllBookings()).thenReturn(new ArrayList<>());
-
-        // Configurar la reserva que se devolverá cuando se llame a saveBooking
-        Booking mockSavedBooking = new Booking(
-                "lab1",
-                LocalDate.now(),
-                LocalTime.of(10, 0),
-                true,
-                "A101",
-                1, null
-        );
-        when(mockBookingService.saveBooking(any(BookingDTO.class))).thenReturn(mockSavedBooking);
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(new ArrayList<>());
 
         // Inyectar el servicio simulado en nuestra implementación del servicio
         ReflectionTestUtils.setField(bookingGeneratorService, "bookingService", mockBookingService);
 
         // Llamar al método en prueba
-        List<Booking> result = bookingGeneratorService.generateExactBookings(1);
+        GenerationSummaryDTO result = bookingGeneratorService.generateExactBookings(1);
 
         // Verificar los resultados
         assertNotNull(result);
-        assertEquals(1, result.size());
-        verify(mockBookingService, atLeastOnce()).getAllBookings();
-        verify(mockBookingService, atLeastOnce()).saveBooking(any(BookingDTO.class));
+        assertEquals(1, result.getGenerated());
+        assertEquals(1, result.getAttempted());
+        assertEquals(0, result.getConflicts());
+        // Solo se leen las reservas de las aulas y días del espacio de franjas
+        LocalDate today = LocalDate.now();
+        verify(mockBookingService).getBookingsInRange(Set.of(bookingGeneratorService.classrooms), today, today.plusDays(29));
+        verify(mockBookingService, never()).getAllBookings();
+        verify(mockBookingService, times(1)).saveBookings(anyList());
+        verify(mockBookingService, never()).saveBooking(any(BookingDTO.class));
     }
 
     @Test
     void testClearAllBookings() {
-        // Simular que el servicio devuelve un recuento específico cuando se llama a clearAllBookings
-        when(mockBookingGeneratorService.clearAllBookings()).thenReturn(5);
+        // Simular que el servicio devuelve un recuento específico cuando se llama a clearBookings
+        when(mockBookingGeneratorService.clearBookings(null, null, null, false)).thenReturn(5);
 
         // Llamar al método en prueba
-        ResponseEntity<Map<String, Object>> response = bookingGeneratorController.clearAllBookings();
+        ResponseEntity<Map<String, Object>> response = bookingGeneratorController.clearAllBookings(null, null, null, false);
 
         // Verificar la respuesta
         assertNotNull(response);
@@ -539,30 +1167,30 @@ public class ImplBookingTests {
         assertEquals(5, body.get("totalRemoved"));
 
         // Verificar que se llamó al método del servicio
-        verify(mockBookingGeneratorService, times(1)).clearAllBookings();
+        verify(mockBookingGeneratorService, times(1)).clearBookings(null, null, null, false);
     }
 
     @Test
-    void testClearAllBookingsWithException() throws BookingServiceException {
-        // Crear una lista de reservas con una que causará una excepción
-        List<Booking> bookingsToDelete = new ArrayList<>();
-        bookingsToDelete.add(new Booking("booking1", LocalDate.now(), LocalTime.of(10, 0), false, "A101", 1, null));
-        bookingsToDelete.add(new Booking("errorBooking", LocalDate.now(), LocalTime.of(14, 0), false, "B201", 2, null));
-
-        when(mockBookingService.getAllBookings()).thenReturn(bookingsToDelete);
-        doNothing().when(mockBookingService).deleteBooking("booking1");
-        doThrow(new BookingServiceException("Error eliminando la reserva")).when(mockBookingService).deleteBooking("errorBooking");
-
-        // Inyectar el servicio simulado en nuestra implementación del servicio
-        ReflectionTestUtils.setField(bookingGeneratorService, "bookingService", mockBookingService);
+    void testClearAllBookingsUsesSingleBulkDelete() throws BookingServiceException {
+        when(mockBookingService.deleteBookings(null, null, null, false)).thenReturn(2);
 
         // Llamar al método en prueba
         int result = bookingGeneratorService.clearAllBookings();
 
-        // Verificar los resultados
-        assertEquals(2, result); // Aún debería devolver el total de reservas
-        verify(mockBookingService).getAllBookings();
-        verify(mockBookingService, times(2)).deleteBooking(anyString());
+        // Se devuelve el conteo de Mongo sin cargar ni borrar reservas una por una
+        assertEquals(2, result);
+        verify(mockBookingService).deleteBookings(null, null, null, false);
+        verify(mockBookingService, never()).getAllBookings();
+        verify(mockBookingService, never()).deleteBooking(anyString());
+    }
+
+    @Test
+    void testClearBookingsWithFilters() {
+        LocalDate from = LocalDate.of(2030, 1, 1);
+        LocalDate to = LocalDate.of(2030, 1, 31);
+        when(mockBookingService.deleteBookings("A101", from, to, true)).thenReturn(7);
+
+        assertEquals(7, bookingGeneratorService.clearBookings("A101", from, to, true));
     }
 
     @Test
@@ -575,18 +1203,8 @@ public class ImplBookingTests {
         existingBookings.add(new Booking("test123", LocalDate.now(), LocalTime.of(13, 0), false, "C301", 3, null));
         existingBookings.add(new Booking("labXYZ", LocalDate.now(), LocalTime.of(15, 0), false, "D401", 4, null));
 
-        when(mockBookingService.getAllBookings()).thenReturn(existingBookings);
-
-        // Configurar la reserva que se devolverá cuando se llame a saveBooking
-        Booking mockSavedBooking = new Booking(
-                "lab6",
-                LocalDate.now(),
-                LocalTime.of(10, 0),
-                true,
-                "A101",
-                1, null
-        );
-        when(mockBookingService.saveBooking(any(BookingDTO.class))).thenReturn(mockSavedBooking);
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(existingBookings);
+        when(mockBookingService.getMaxGeneratedNumber()).thenReturn(5L);
 
         // Inyectar el servicio simulado en nuestra implementación del servicio
         ReflectionTestUtils.setField(bookingGeneratorService, "bookingService", mockBookingService);
@@ -594,13 +1212,135 @@ public class ImplBookingTests {
         // Generar una reserva para activar initializeLabCounter
         bookingGeneratorService.generateExactBookings(1);
 
-        // Verificar que el contador de laboratorios se inicializó correctamente capturando el BookingDTO
-        ArgumentCaptor<BookingDTO> bookingCaptor = ArgumentCaptor.forClass(BookingDTO.class);
-        verify(mockBookingService).saveBooking(bookingCaptor.capture());
+        // Verificar que el contador de laboratorios se inicializó correctamente capturando el lote
+        ArgumentCaptor<List<Booking>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockBookingService).saveBookings(batchCaptor.capture());
 
         // El contador de laboratorios debería comenzar en 6 (después de lab5)
-        BookingDTO capturedBooking = bookingCaptor.getValue();
-        assertTrue(capturedBooking.getBookingId().startsWith("lab6"));
+        Booking capturedBooking = batchCaptor.getValue().get(0);
+        assertEquals("lab6", capturedBooking.getBookingId());
+    }
+
+    @Test
+    void testBookingSequenceIsSeededOnlyOnce() {
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(new ArrayList<>(List.of(
+                new Booking("lab5", LocalDate.now(), LocalTime.of(11, 0), false, "B201", 2, null))));
+        when(mockBookingService.getMaxGeneratedNumber()).thenReturn(5L);
+        IdAllocator spyAllocator = spy(idAllocator);
+        ReflectionTestUtils.setField(bookingGeneratorService, "idAllocator", spyAllocator);
+
+        bookingGeneratorService.generateExactBookings(1);
+        bookingGeneratorService.generateExactBookings(1);
+
+        // La secuencia se siembra una vez y luego solo se incrementa
+        verify(spyAllocator, times(1)).exists("booking");
+        verify(spyAllocator, times(1)).ensureAtLeast("booking", 5);
+        verify(spyAllocator, times(2)).next("booking");
+        verify(mockBookingService, times(1)).getMaxGeneratedNumber();
+    }
+
+    @Test
+    void testBookingSequenceNotReseededWhenItExists() {
+        idAllocator.ensureAtLeast("booking", 100);
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(new ArrayList<>(List.of(
+                new Booking("lab5", LocalDate.now(), LocalTime.of(11, 0), false, "B201", 2, null))));
+
+        StoredBookings stored = new StoredBookings();
+        bookingGeneratorService.generateBookings(new GenerationRequestDTO(1, 1), stored);
+
+        assertEquals("lab101", stored.bookings.get(0).getBookingId());
+    }
+
+    // Tests para IdAllocatorImpl
+    @Test
+    void testIdAllocator_ReservesBlocks() {
+        ReflectionTestUtils.setField(idAllocatorImpl, "blockSize", 3);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Counter.class)))
+                .thenReturn(new Counter("booking", 3))
+                .thenReturn(new Counter("booking", 9));
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(idAllocatorImpl.next("booking"));
+        }
+
+        // Primer bloque 1..3; el segundo bloque (7..9) fue otorgado tras otro nodo que reservó 4..6
+        assertEquals(List.of(1L, 2L, 3L, 7L, 8L), ids);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<FindAndModifyOptions> optionsCaptor = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), updateCaptor.capture(), optionsCaptor.capture(), eq(Counter.class));
+        assertEquals(new Document("value", 3), updateCaptor.getValue().getUpdateObject().get("$inc"));
+        assertTrue(optionsCaptor.getValue().isUpsert());
+        assertTrue(optionsCaptor.getValue().isReturnNew());
+    }
+
+    @Test
+    void testIdAllocator_RetriesConcurrentUpsert() {
+        ReflectionTestUtils.setField(idAllocatorImpl, "blockSize", 10);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Counter.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error index: _id_"))
+                .thenReturn(new Counter("booking", 20));
+
+        assertEquals(11L, idAllocatorImpl.next("booking"));
+    }
+
+    @Test
+    void testIdAllocator_EnsureAtLeastUsesMax() {
+        idAllocatorImpl.ensureAtLeast("booking", 42);
+
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), updateCaptor.capture(), eq(Counter.class));
+        assertEquals(new Document("value", 42L), updateCaptor.getValue().getUpdateObject().get("$max"));
+    }
+
+    /**
+     * Simula el documento del contador: $inc en findAndModify y $max en upsert.
+     */
+    private AtomicLong simulateCounter() {
+        AtomicLong counter = new AtomicLong();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Counter.class)))
+                .thenAnswer(inv -> {
+                    Document inc = (Document) inv.<Update>getArgument(1).getUpdateObject().get("$inc");
+                    return new Counter("booking", counter.addAndGet(((Number) inc.get("value")).longValue()));
+                });
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(Counter.class))).thenAnswer(inv -> {
+            Document max = (Document) inv.<Update>getArgument(1).getUpdateObject().get("$max");
+            counter.accumulateAndGet(((Number) max.get("value")).longValue(), Math::max);
+            return null;
+        });
+        return counter;
+    }
+
+    @Test
+    void testIdAllocator_EnsureAtLeastSkipsUsedValuesOfLocalBlock() {
+        ReflectionTestUtils.setField(idAllocatorImpl, "blockSize", 10);
+        simulateCounter();
+
+        assertEquals(1L, idAllocatorImpl.next("booking"));
+        // Valores del bloque local ya usados por otros: se saltan sin pedir un bloque nuevo
+        idAllocatorImpl.ensureAtLeast("booking", 5);
+        assertEquals(6L, idAllocatorImpl.next("booking"));
+        // Por encima del bloque: se descarta y el siguiente bloque empieza tras el contador
+        idAllocatorImpl.ensureAtLeast("booking", 42);
+        assertEquals(43L, idAllocatorImpl.next("booking"));
+    }
+
+    @Test
+    void testLoadDataset_NextGeneratedIdFollowsLoadedIds(@TempDir Path datasetDir) {
+        ReflectionTestUtils.setField(idAllocatorImpl, "blockSize", 10);
+        simulateCounter();
+        ReflectionTestUtils.setField(bookingGeneratorService, "idAllocator", idAllocatorImpl);
+        ReflectionTestUtils.setField(bookingGeneratorService, "datasetDir", datasetDir.toString());
+        ReflectionTestUtils.setField(bookingGeneratorService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        assertEquals(1L, idAllocatorImpl.next(BookingGeneratorServiceImpl.BOOKING_SEQUENCE)); // Bloque local 1..10
+        bookingGeneratorService.generateBookings(seededRequest(120, 42, "bench"));
+
+        bookingGeneratorService.loadDataset("bench");
+
+        // Los IDs lab1..lab120 del dataset ya están en uso
+        StoredBookings stored = new StoredBookings();
+        bookingGeneratorService.generateBookings(new GenerationRequestDTO(1, 1), stored);
+        assertEquals("lab121", stored.bookings.get(0).getBookingId());
     }
     @Test
     void testGetBooking() throws BookingServiceException {
@@ -617,21 +1357,23 @@ public class ImplBookingTests {
 
     @Test
     void testMakeReservation() throws BookingServiceException {
-        Booking booking = new Booking("lab1", LocalDate.now(), LocalTime.of(9, 0), true, "A101", 1, null);
-        booking.setBookingId("test123");
-        when(mockBookingRepository.findById("test123")).thenReturn(booking);
+        Booking reserved = new Booking("test123", LocalDate.now(), LocalTime.of(9, 0), false, "A101", 1, "user1");
+        when(mockBookingRepository.reserve("test123", "user1")).thenReturn(reserved);
 
         Booking result = bookingService.makeReservation("test123", "user1");
 
         assertNotNull(result);
         assertFalse(result.isDisable());
         assertEquals("user1", result.getReservedBy());
-        verify(mockBookingRepository, times(1)).update(booking);
+        verify(mockBookingRepository, times(1)).reserve("test123", "user1");
+        verify(mockBookingRepository, never()).findById(anyString());
+        verify(mockBookingRepository, never()).update(any(Booking.class));
     }
     @Test
     void testMakeReservationAlreadyActive() throws BookingServiceException {
         Booking booking = new Booking("lab1", LocalDate.now(), LocalTime.of(9, 0), false, "A101", 1, "user1");
         booking.setBookingId("test123");
+        when(mockBookingRepository.reserve("test123", "user2")).thenReturn(null);
         when(mockBookingRepository.findById("test123")).thenReturn(booking);
 
         BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
@@ -642,34 +1384,45 @@ public class ImplBookingTests {
         verify(mockBookingRepository, never()).update(booking);
     }
     @Test
+    void testMakeReservationNotFound() throws BookingServiceException {
+        when(mockBookingRepository.reserve("nonExistingId", "user1")).thenReturn(null);
+        when(mockBookingRepository.findById("nonExistingId")).thenThrow(new BookingServiceException("Booking Not found"));
+
+        BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
+            bookingService.makeReservation("nonExistingId", "user1");
+        });
+
+        assertEquals("Booking Not found", exception.getMessage());
+    }
+    @Test
     void testCancelReservationWithNullReservedBy() throws BookingServiceException {
-        Booking booking = new Booking("lab1", LocalDate.now(), LocalTime.of(9, 0), false, "A101", 1, null);
-        booking.setBookingId("test123");
-        when(mockBookingRepository.findById("test123")).thenReturn(booking);
-    
-       
+        Booking released = new Booking("test123", LocalDate.now(), LocalTime.of(9, 0), true, "A101", 1, null);
+        when(mockBookingRepository.release("test123", "user2")).thenReturn(released);
+
         Booking result = bookingService.cancelReservation("test123", "user2");
-    
+
         assertNotNull(result);
         assertTrue(result.isDisable());
-        verify(mockBookingRepository, times(1)).update(booking);
+        verify(mockBookingRepository, times(1)).release("test123", "user2");
     }
     @Test
     void testCancelReservation() throws BookingServiceException {
-        Booking booking = new Booking("lab1", LocalDate.now(), LocalTime.of(9, 0), false, "A101", 1, "user1");
-        booking.setBookingId("test123");
-        when(mockBookingRepository.findById("test123")).thenReturn(booking);
+        Booking released = new Booking("test123", LocalDate.now(), LocalTime.of(9, 0), true, "A101", 1, null);
+        when(mockBookingRepository.release("test123", "user1")).thenReturn(released);
 
         Booking result = bookingService.cancelReservation("test123", "user1");
 
         assertNotNull(result);
         assertTrue(result.isDisable());
-        verify(mockBookingRepository, times(1)).update(booking);
+        assertNull(result.getReservedBy());
+        verify(mockBookingRepository, times(1)).release("test123", "user1");
+        verify(mockBookingRepository, never()).findById(anyString());
     }
     @Test
     void testCancelAlreadyCanceledReservation() throws BookingServiceException {
         Booking booking = new Booking("lab1", LocalDate.now(), LocalTime.of(9, 0), true, "A101", 1, "user1");
         booking.setBookingId("test123");
+        when(mockBookingRepository.release("test123", "user1")).thenReturn(null);
         when(mockBookingRepository.findById("test123")).thenReturn(booking);
 
         BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
@@ -685,6 +1438,7 @@ public class ImplBookingTests {
     void testCancelReservationByDifferentUser() throws BookingServiceException {
         Booking booking = new Booking("lab1", LocalDate.now(), LocalTime.of(9, 0), false, "A101", 1, "user1");
         booking.setBookingId("test123");
+        when(mockBookingRepository.release("test123", "user2")).thenReturn(null);
         when(mockBookingRepository.findById("test123")).thenReturn(booking);
 
         BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
@@ -695,13 +1449,74 @@ public class ImplBookingTests {
         verify(mockBookingRepository, never()).update(booking);
     }
 
+    @Test
+    void testGetBookingsPage_FirstPageWithNextCursor() throws BookingServiceException {
+        LocalDate today = LocalDate.now();
+        Booking first = new Booking("lab1", today, LocalTime.of(7, 0), true, "A101", 1, null);
+        Booking second = new Booking("lab2", today, LocalTime.of(9, 0), true, "A101", 1, null);
+        Booking third = new Booking("lab3", today, LocalTime.of(11, 0), true, "A101", 1, null);
+        when(mockBookingRepository.findPageAfter(null, null, null, 3)).thenReturn(List.of(first, second, third));
+
+        BookingPageDTO page = bookingService.getBookingsPage(null, 2);
+
+        assertEquals(List.of(first, second), page.getItems());
+        assertNotNull(page.getNext());
+
+        // El cursor apunta a la última reserva devuelta
+        when(mockBookingRepository.findPageAfter(today, LocalTime.of(9, 0), "lab2", 3)).thenReturn(List.of(third));
+        BookingPageDTO nextPage = bookingService.getBookingsPage(page.getNext(), 2);
+
+        assertEquals(List.of(third), nextPage.getItems());
+        assertNull(nextPage.getNext());
+        verify(mockBookingRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetBookingsPage_LimitIsCapped() throws BookingServiceException {
+        when(mockBookingRepository.findPageAfter(null, null, null, 501)).thenReturn(bookingList);
+
+        bookingService.getBookingsPage(null, 100000);
+
+        verify(mockBookingRepository).findPageAfter(null, null, null, 501);
+    }
+
+    @Test
+    void testGetBookingsPage_InvalidCursor() {
+        BookingServiceException exception = assertThrows(BookingServiceException.class, () -> {
+            bookingService.getBookingsPage("not-a-cursor", 10);
+        });
+
+        assertTrue(exception.getMessage().contains("no es válido"));
+    }
+
+    @Test
+    void testRepositoryFindPageAfter() {
+        when(mongoTemplate.find(any(Query.class), eq(Booking.class))).thenReturn(bookingList);
+
+        bookingRepository.findPageAfter(LocalDate.now(), LocalTime.of(9, 0), "lab1", 10);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Booking.class));
+        assertEquals(10, queryCaptor.getValue().getLimit());
+        assertNotNull(queryCaptor.getValue().getQueryObject().get("$or"));
+        assertEquals(3, queryCaptor.getValue().getSortObject().size());
+    }
+
+    @Test
+    void testStreamAllBookings() {
+        when(mockBookingRepository.streamAll()).thenReturn(Stream.of(booking));
+
+        try (Stream<Booking> bookings = bookingService.streamAllBookings()) {
+            assertEquals(1, bookings.count());
+        }
+    }
+
     @Test
     void testGetBookingsByReservedBy() {
         Booking booking1 = new Booking("lab1", LocalDate.now(), LocalTime.of(9, 0), false, "A101", 1, "user1");
         Booking booking2 = new Booking("lab2", LocalDate.now(), LocalTime.of(10, 0), false, "A102", 1, "user1");
-        Booking booking3 = new Booking("lab3", LocalDate.now(), LocalTime.of(11, 0), false, "A103", 1, "user2");
-        
-        when(mockBookingRepository.findAll()).thenReturn(Arrays.asList(booking1, booking2, booking3));
+
+        when(mockBookingRepository.findByReservedBy("user1", null, null, null, null)).thenReturn(Arrays.asList(booking1, booking2));
 
         List<Booking> result = bookingService.getBookingsByReservedBy("user1");
 
@@ -709,67 +1524,172 @@ public class ImplBookingTests {
         assertEquals(2, result.size());
         assertTrue(result.contains(booking1));
         assertTrue(result.contains(booking2));
-        verify(mockBookingRepository, times(1)).findAll();
+        verify(mockBookingRepository, times(1)).findByReservedBy("user1", null, null, null, null);
+        verify(mockBookingRepository, never()).findAll();
     }
     @Test
-    void testGetBookingsByReservedByWithNullValues() {
-        Booking booking1 = new Booking("lab1", LocalDate.now(), LocalTime.of(9, 0), false, "A101", 1, "user1");
-        Booking booking2 = new Booking("lab2", LocalDate.now(), LocalTime.of(10, 0), false, "A102", 1, null); // Sin usuario
-        Booking booking3 = new Booking("lab3", LocalDate.now(), LocalTime.of(11, 0), false, "A103", 1, "user2");
-    
-        when(mockBookingRepository.findAll()).thenReturn(Arrays.asList(booking1, booking2, booking3));
-    
-        List<Booking> result = bookingService.getBookingsByReservedBy("user1");
-    
+    void testGetBookingsByReservedByWithRangeAndPage() {
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusDays(7);
+        Booking booking1 = new Booking("lab1", from, LocalTime.of(9, 0), false, "A101", 1, "user1");
+
+        when(mockBookingRepository.findByReservedBy("user1", from, to, 0, 10)).thenReturn(List.of(booking1));
+
+        List<Booking> result = bookingService.getBookingsByReservedBy("user1", from, to, 0, 10);
+
+        assertEquals(1, result.size());
+        verify(mockBookingRepository).findByReservedBy("user1", from, to, 0, 10);
+    }
+    @Test
+    void testGetBookingsByReservedByWithNullUser() {
+        List<Booking> result = bookingService.getBookingsByReservedBy(null);
+
         assertNotNull(result);
-        assertEquals(1, result.size()); // Solo booking1 debe estar en la lista
-        assertTrue(result.contains(booking1));
-        assertFalse(result.contains(booking2)); // No tiene usuario
-        assertFalse(result.contains(booking3)); // Otro usuario
-        verify(mockBookingRepository, times(1)).findAll();
+        assertTrue(result.isEmpty());
+        verify(mockBookingRepository, never()).findByReservedBy(any(), any(), any(), any(), any());
+        verify(mockBookingRepository, never()).findAll();
+    }
+    @Test
+    void testRepositoryFindByReservedBy() {
+        when(bookingMongoRepository.findByReservedBy(eq("user1"), any(Pageable.class))).thenReturn(bookingList);
+
+        List<Booking> result = bookingRepository.findByReservedBy("user1", null, null, null, null);
+
+        assertEquals(1, result.size());
+        ArgumentCaptor<Pageable> pageCaptor = ArgumentCaptor.forClass(Pageable.class);
+        verify(bookingMongoRepository).findByReservedBy(eq("user1"), pageCaptor.capture());
+        assertTrue(pageCaptor.getValue().isUnpaged());
+        verify(bookingMongoRepository, never()).findAll();
+    }
+    @Test
+    void testRepositoryFindByReservedByWithRangeAndPage() {
+        LocalDate from = LocalDate.now();
+        when(bookingMongoRepository.findByReservedByAndBookingDateBetween(eq("user1"), any(), any(Pageable.class))).thenReturn(bookingList);
+
+        bookingRepository.findByReservedBy("user1", from, null, 2, 5);
+
+        ArgumentCaptor<Range<LocalDate>> rangeCaptor = ArgumentCaptor.forClass(Range.class);
+        ArgumentCaptor<Pageable> pageCaptor = ArgumentCaptor.forClass(Pageable.class);
+        verify(bookingMongoRepository).findByReservedByAndBookingDateBetween(eq("user1"), rangeCaptor.capture(), pageCaptor.capture());
+        assertEquals(from, rangeCaptor.getValue().getLowerBound().getValue().orElseThrow());
+        assertTrue(rangeCaptor.getValue().getLowerBound().isInclusive());
+        assertFalse(rangeCaptor.getValue().getUpperBound().isBounded());
+        assertEquals(2, pageCaptor.getValue().getPageNumber());
+        assertEquals(5, pageCaptor.getValue().getPageSize());
+    }
+
+    @Test
+    void testRepositoryFindByReservedBy_CapsPageSize() {
+        when(bookingMongoRepository.findByReservedBy(eq("user1"), any(Pageable.class))).thenReturn(bookingList);
+
+        bookingRepository.findByReservedBy("user1", null, null, 0, 100000);
+
+        ArgumentCaptor<Pageable> pageCaptor = ArgumentCaptor.forClass(Pageable.class);
+        verify(bookingMongoRepository).findByReservedBy(eq("user1"), pageCaptor.capture());
+        assertEquals(500, pageCaptor.getValue().getPageSize());
+    }
+
+    @Test
+    void testRepositoryFindByReservedBy_InvalidPaging() {
+        // Página negativa o tamaño menor que 1: se rechazan antes de consultar la base de datos
+        assertThrows(IllegalArgumentException.class, () -> bookingRepository.findByReservedBy("user1", null, null, -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> bookingRepository.findByReservedBy("user1", null, null, 0, -5));
+        assertThrows(IllegalArgumentException.class, () -> bookingRepository.findByReservedBy("user1", null, null, null, 0));
+        verify(bookingMongoRepository, never()).findByReservedBy(any(), any(Pageable.class));
     }
     
     @Test
     void testGenerateRandomBookings() {
-        List<Booking> bookings = bookingGeneratorService.generateRandomBookings(3, 5);
-        assertNotNull(bookings);
-        assertTrue(bookings.size() >= 3 && bookings.size() <= 5, "Generated bookings should be within range");
+        GenerationSummaryDTO summary = bookingGeneratorService.generateRandomBookings(3, 5);
+        assertNotNull(summary);
+        assertTrue(summary.getGenerated() >= 3 && summary.getGenerated() <= 5, "Generated bookings should be within range");
     }
 
     @Test
     void testGenerateBookings() {
-        List<Booking> bookings = bookingGeneratorService.generateExactBookings(5);
-        assertNotNull(bookings);
-        assertEquals(5, bookings.size(), "Should generate exactly 5 bookings");
+        GenerationSummaryDTO summary = bookingGeneratorService.generateExactBookings(5);
+        assertNotNull(summary);
+        assertEquals(5, summary.getGenerated(), "Should generate exactly 5 bookings");
+        assertEquals(5, summary.getTarget());
+        assertEquals(5, summary.getPerClassroom().values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(bookingGeneratorService.classrooms.length, summary.getPerClassroom().size());
     }
     @Test
     void testGenerateBookings_NoAvailableSlots() {
         // Mock para devolver que no hay slots disponibles
         BookingGeneratorServiceImpl spyService = spy(bookingGeneratorService);
-        doReturn(null).when(spyService).getRandomAvailableBooking(any(Map.class));
+        doReturn(new FreeSlotPool(0)).when(spyService).buildFreeSlotPool(any(SlotSpace.class), any(Map.class));
 
-        List<Booking> result = spyService.generateExactBookings(5);
+        GenerationSummaryDTO result = spyService.generateExactBookings(5);
 
-        assertEquals(0, result.size()); // No debe generar ninguna reserva
+        assertEquals(0, result.getGenerated()); // No debe generar ninguna reserva
     }
 
     @Test
-    void testGenerateBookings_BookingServiceException() throws BookingServiceException {
-        // Mock para generar una reserva disponible
-        Booking mockBooking = new Booking("lab1", LocalDate.now(), LocalTime.of(9, 0), false, "A101", 1, "user1");
-        BookingGeneratorServiceImpl spyService = spy(bookingGeneratorService);
-        doReturn(mockBooking).when(spyService).getRandomAvailableBooking(any(Map.class));
+    void testGenerateBookings_AllRejectedOnFlush() {
+        // La base de datos rechaza todo el lote (por ejemplo, claves de franja duplicadas)
+        when(mockBookingService.saveBookings(anyList())).thenReturn(new ArrayList<>());
 
-        // Mock para lanzar una excepción al guardar la reserva
-        when(mockBookingService.saveBooking(any(BookingDTO.class))).thenThrow(new BookingServiceException("Error al guardar"));
+        GenerationSummaryDTO result = bookingGeneratorService.generateExactBookings(3);
 
-        List<Booking> result = spyService.generateExactBookings(3);
+        assertEquals(0, result.getGenerated()); // No se deben agregar reservas rechazadas
+        assertEquals(result.getAttempted(), result.getConflicts());
+        assertTrue(result.getConflicts() > 0);
+    }
 
-        assertEquals(0, result.size()); // No se deben agregar reservas por la excepción
+    @Test
+    void testGenerateBookings_FlushesInBatches() throws BookingServiceException {
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(new ArrayList<>());
+        ReflectionTestUtils.setField(bookingGeneratorService, "batchSize", 2);
+
+        GenerationSummaryDTO result = bookingGeneratorService.generateExactBookings(5);
+
+        assertEquals(5, result.getGenerated());
+        ArgumentCaptor<List<Booking>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockBookingService, times(3)).saveBookings(batchCaptor.capture());
+        assertEquals(List.of(2, 2, 1), batchCaptor.getAllValues().stream().map(List::size).toList());
+        verify(mockBookingService, never()).saveBooking(any(BookingDTO.class));
+    }
+
+    @Test
+    void testGenerateBookings_RespectsTwoHourRule() {
+        // Solo queda libre el día de hoy, con una reserva existente a las 10:30
+        ReflectionTestUtils.setField(bookingGeneratorService, "classrooms", new String[]{"A101"});
+        LocalDate today = LocalDate.now();
+        List<Booking> existing = new ArrayList<>();
+        for (int day = 1; day < 30; day++) {
+            for (int hour : bookingGeneratorService.validHours) {
+                existing.add(new Booking("x" + day + "_" + hour, today.plusDays(day), LocalTime.of(hour, 0), true, "A101", 1, null));
+            }
+        }
+        existing.add(new Booking("x0", today, LocalTime.of(10, 30), true, "A101", 1, null));
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(existing);
+
+        StoredBookings stored = new StoredBookings();
+        bookingGeneratorService.generateBookings(new GenerationRequestDTO(10, 1), stored);
+        List<Booking> result = stored.bookings;
+
+        // 9:00 y 11:00 quedan a menos de 2 horas de las 10:30
+        List<Integer> hours = result.stream().map(b -> b.getBookingTime().getHour()).sorted().toList();
+        assertEquals(List.of(7, 13, 15, 17, 19), hours);
+        result.forEach(b -> assertEquals(today, b.getBookingDate()));
+    }
+
+    @Test
+    void testIsSlotBooked_WithinTwoHours() {
+        Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots = new HashMap<>();
+        LocalDate today = LocalDate.now();
+        bookedSlots.put("A101", new HashMap<>());
+        bookedSlots.get("A101").put(today, new TreeSet<>(List.of(10 * 60 + 30)));
+
+        assertTrue(bookingGeneratorService.isSlotBooked(bookedSlots, "A101", today, 9));
+        assertTrue(bookingGeneratorService.isSlotBooked(bookedSlots, "A101", today, 11));
+        assertFalse(bookingGeneratorService.isSlotBooked(bookedSlots, "A101", today, 7));
+        assertFalse(bookingGeneratorService.isSlotBooked(bookedSlots, "A101", today, 13));
     }
     @Test
-    void testGetRandomAvailableBooking_NoAvailableSlots() {
-        Map<String, Map<LocalDate, Set<Integer>>> bookedSlots = new HashMap<>();
+    void testBuildFreeSlotPool_NoAvailableSlots() {
+        Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots = new HashMap<>();
         LocalDate today = LocalDate.now();
     
         // Llenamos todas las aulas con todas las horas ocupadas en los próximos 30 días
@@ -777,45 +1697,531 @@ public class ImplBookingTests {
             bookedSlots.put(classroom, new HashMap<>());
             for (int day = 0; day < 30; day++) {
                 LocalDate date = today.plusDays(day);
-                bookedSlots.get(classroom).put(date, new HashSet<>());
+                bookedSlots.get(classroom).put(date, new TreeSet<>());
     
-                // Marcar todas las horas como reservadas
+                // Marcar todas las horas como reservadas (minutos del día)
                 for (int hour : bookingGeneratorService.validHours) {
-                    bookedSlots.get(classroom).get(date).add(hour);
+                    bookedSlots.get(classroom).get(date).add(hour * 60);
                 }
             }
         }
     
         // Llamar al método cuando no hay espacios disponibles
-        Booking result = bookingGeneratorService.getRandomAvailableBooking(bookedSlots);
+        FreeSlotPool result = bookingGeneratorService.buildFreeSlotPool(bookingGeneratorService.classrooms, bookedSlots, today);
     
-        // Verificar que el resultado es null
-        assertNull(result, "El método debe devolver null cuando no hay espacios disponibles");
+        // Verificar que el pool está vacío
+        assertTrue(result.isEmpty(), "El pool debe estar vacío cuando no hay espacios disponibles");
+        assertEquals(-1, result.takeRandom(new Random()));
     }
 
     @Test
-    void testGenerateBookings_AddNewDateToBookedSlots() throws BookingServiceException {
+    void testGenerateBookings_DecodesSlotOrdinal() {
         BookingGeneratorServiceImpl spyService = spy(bookingGeneratorService);
     
-        // Simular bookedSlots con un aula pero sin reservas en cierta fecha
-        Map<String, Map<LocalDate, Set<Integer>>> bookedSlots = new HashMap<>();
-        bookedSlots.put("A101", new HashMap<>()); // Aula con mapa vacío (sin fechas)
-    
-        // Mock para devolver una reserva en una nueva fecha
-        Booking mockBooking = new Booking("lab1", LocalDate.now().plusDays(2), LocalTime.of(9, 0), false, "A101", 1, "user1");
-        doReturn(mockBooking).when(spyService).getRandomAvailableBooking(any(Map.class));
+        // Único slot libre: aula A101 (índice 0), dentro de 2 días, a las 9:00 (índice 1)
+        int hours = bookingGeneratorService.validHours.length;
+        FreeSlotPool pool = new FreeSlotPool(bookingGeneratorService.classrooms.length * BookingGeneratorServiceImpl.HORIZON_DAYS * hours);
+        pool.add(2 * hours + 1);
+        doReturn(pool).when(spyService).buildFreeSlotPool(any(SlotSpace.class), any(Map.class));
     
-        // Simular que la reserva se guarda correctamente
-        when(mockBookingService.saveBooking(any(BookingDTO.class))).thenReturn(mockBooking);
-    
-        List<Booking> result = spyService.generateExactBookings(1);
+        StoredBookings stored = new StoredBookings();
+        spyService.generateBookings(new GenerationRequestDTO(3, 1), stored);
+        List<Booking> result = stored.bookings;
     
         assertEquals(1, result.size(), "Debe haberse generado una reserva");
+        assertEquals("A101", result.get(0).getBookingClassRoom());
+        assertEquals(LocalDate.now().plusDays(2), result.get(0).getBookingDate());
+        assertEquals(LocalTime.of(9, 0), result.get(0).getBookingTime());
+    }
+
+    @Test
+    void testBuildFreeSlotPool_SkipsSlotsWithinTwoHours() {
+        Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots = new HashMap<>();
+        LocalDate today = LocalDate.now();
+        bookedSlots.put("A101", new HashMap<>());
+        bookedSlots.get("A101").put(today, new TreeSet<>(List.of(10 * 60 + 30)));
+
+        FreeSlotPool pool = bookingGeneratorService.buildFreeSlotPool(bookingGeneratorService.classrooms, bookedSlots, today);
+
+        int total = bookingGeneratorService.classrooms.length * BookingGeneratorServiceImpl.HORIZON_DAYS
+                * bookingGeneratorService.validHours.length;
+        assertEquals(total - 2, pool.size()); // 9:00 y 11:00 de hoy en A101
+        assertFalse(pool.contains(1));
+        assertFalse(pool.contains(2));
+        assertTrue(pool.contains(0));
+    }
+
+    @Test
+    void testGenerateBookings_UsesRequestHoursAndHorizon() {
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(new ArrayList<>());
+        GenerationRequestDTO request = new GenerationRequestDTO(100, 1);
+        request.setHorizonDays(2);
+        request.setHours(List.of(10, 8));
+
+        StoredBookings stored = new StoredBookings();
+        bookingGeneratorService.generateBookings(request, stored);
+        List<Booking> result = stored.bookings;
+
+        // 10 aulas x 2 días x 2 horas
+        assertEquals(40, result.size());
+        LocalDate today = LocalDate.now();
+        result.forEach(b -> {
+            assertTrue(b.getBookingTime().getHour() == 8 || b.getBookingTime().getHour() == 10);
+            assertFalse(b.getBookingDate().isAfter(today.plusDays(1)));
+        });
+    }
+
+    @Test
+    void testGenerateBookings_TargetOccupancy() {
+        LocalDate today = LocalDate.now();
+        List<Booking> existing = new ArrayList<>();
+        for (String classroom : bookingGeneratorService.classrooms) {
+            existing.add(new Booking("x" + classroom, today, LocalTime.of(7, 0), true, classroom, 1, null));
+        }
+        // Fuera del espacio de franjas: no cuentan para la ocupación
+        existing.add(new Booking("z1", today, LocalTime.of(7, 0), true, "Z999", 1, null));
+        existing.add(new Booking("z2", today.minusDays(1), LocalTime.of(7, 0), true, "A101", 1, null));
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(existing);
+        GenerationJob job = new GenerationJob("job1", "generate", 0);
+        GenerationRequestDTO request = new GenerationRequestDTO(0, 1);
+        request.setOccupancy(0.5);
+
+        GenerationSummaryDTO result = bookingGeneratorService.generateBookings(request, job);
+
+        // 10 aulas x 30 días x 7 horas = 2100 franjas; la mitad son 1050, menos las 10 existentes
+        assertEquals(1040, result.getGenerated());
+        assertEquals(1040, result.getTarget());
+        assertEquals(1040, job.toDTO().getTarget());
+    }
+
+    @Test
+    void testGenerateBookings_InvalidSlotSpace() {
+        GenerationRequestDTO badHours = new GenerationRequestDTO(1, 1);
+        badHours.setHours(List.of(7, 24));
+        GenerationRequestDTO badHorizon = new GenerationRequestDTO(1, 1);
+        badHorizon.setHorizonDays(0);
+        GenerationRequestDTO badOccupancy = new GenerationRequestDTO(1, 1);
+        badOccupancy.setOccupancy(1.5);
+
+        assertThrows(IllegalArgumentException.class, () -> bookingGeneratorService.generateBookings(badHours));
+        assertThrows(IllegalArgumentException.class, () -> bookingGeneratorService.generateBookings(badHorizon));
+        assertThrows(IllegalArgumentException.class, () -> bookingGeneratorService.generateBookings(badOccupancy));
+        verify(mockBookingService, never()).saveBookings(anyList());
+    }
+
+    @Test
+    void testGenerateBookings_SlotSpaceOverLimits() {
+        GenerationRequestDTO longHorizon = new GenerationRequestDTO(1, 1);
+        longHorizon.setHorizonDays(BookingGeneratorServiceImpl.MAX_HORIZON_DAYS + 1);
+        String[] rooms = new String[300];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = "R" + i;
+        }
+        ReflectionTestUtils.setField(bookingGeneratorService, "classrooms", rooms);
+        GenerationRequestDTO hugeSpace = new GenerationRequestDTO(1, 1);
+        hugeSpace.setHorizonDays(BookingGeneratorServiceImpl.MAX_HORIZON_DAYS);
+        hugeSpace.setHours(IntStream.range(0, 24).boxed().toList());
+
+        // 300 aulas x 366 días x 24 horas supera el límite: se rechaza antes de reservar memoria
+        assertThrows(IllegalArgumentException.class, () -> bookingGeneratorService.generateBookings(longHorizon));
+        assertThrows(IllegalArgumentException.class, () -> bookingGeneratorService.generateBookings(hugeSpace));
+        verifyNoInteractions(mockBookingService);
+    }
+
+    @Test
+    void testValidateGenerationRequest() {
+        GenerationRequestDTO badHorizon = new GenerationRequestDTO(1, 1);
+        badHorizon.setHorizonDays(0);
+        GenerationRequestDTO badDataset = new GenerationRequestDTO(1, 1);
+        badDataset.setDataset("../fuera");
+
+        // Valida sin generar ni consultar la base de datos
+        bookingGeneratorService.validate(new GenerationRequestDTO(10, 1));
+        assertThrows(IllegalArgumentException.class, () -> bookingGeneratorService.validate(badHorizon));
+        assertThrows(IllegalArgumentException.class, () -> bookingGeneratorService.validate(badDataset));
+        verifyNoInteractions(mockBookingService);
+    }
+
+    @Test
+    void testGenerateBookings_ParallelismIsCapped() {
+        String[] rooms = new String[40];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = "R" + i;
+        }
+        ReflectionTestUtils.setField(bookingGeneratorService, "classrooms", rooms);
+        Set<String> workerThreads = ConcurrentHashMap.newKeySet();
+        when(mockBookingService.saveBookings(anyList())).thenAnswer(invocation -> {
+            workerThreads.add(Thread.currentThread().getName());
+            return invocation.getArgument(0);
+        });
+
+        GenerationSummaryDTO summary = bookingGeneratorService.generateBookings(new GenerationRequestDTO(400, 10_000));
+
+        assertEquals(400, summary.getGenerated());
+        assertTrue(workerThreads.size() <= BookingGeneratorServiceImpl.MAX_PARALLELISM);
+    }
+
+    @Test
+    void testGeneratorController_InvalidRequestIsBadRequest() {
+        ResponseEntity<Map<String, Object>> response = bookingGeneratorController.handleInvalidRequest(
+                new IllegalArgumentException("Error: El horizonte debe estar entre 1 y 366 días."));
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals("Error: El horizonte debe estar entre 1 y 366 días.", response.getBody().get("message"));
+    }
+
+    @Test
+    void testBuildFreeSlotPool_CampusSizedSlotSpace() {
+        // 500 aulas x 120 días x 14 horas (7:00 a 20:00)
+        String[] rooms = new String[500];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = "R" + i;
+        }
+        int[] hours = new int[14];
+        for (int h = 0; h < hours.length; h++) {
+            hours[h] = 7 + h;
+        }
+        LocalDate today = LocalDate.now();
+        SlotSpace space = new SlotSpace(rooms, today, 120, hours);
+        Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots = new HashMap<>();
+        bookedSlots.put("R499", new HashMap<>());
+        bookedSlots.get("R499").put(today.plusDays(119), new TreeSet<>(List.of(10 * 60)));
+
+        FreeSlotPool pool = bookingGeneratorService.buildFreeSlotPool(space, bookedSlots);
+
+        assertEquals(840_000, space.capacity());
+        assertEquals(840_000 - 3, pool.size()); // 9:00, 10:00 y 11:00 del último día de R499
+        int blocked = space.ordinal(499, 119, 3);
+        assertFalse(pool.contains(blocked));
+        assertEquals("R499", space.classroom(blocked));
+        assertEquals(today.plusDays(119), space.date(blocked));
+        assertEquals(10, space.hour(blocked));
+    }
+
+    private GenerationRequestDTO seededRequest(int count, long seed, String dataset) {
+        GenerationRequestDTO request = new GenerationRequestDTO(count, 3);
+        request.setSeed(seed);
+        request.setBaseDate(LocalDate.of(2025, 1, 6));
+        request.setDataset(dataset);
+        return request;
+    }
+
+    @Test
+    void testGenerateBookings_SeededDatasetIsByteIdentical(@TempDir Path datasetDir) throws Exception {
+        ReflectionTestUtils.setField(bookingGeneratorService, "datasetDir", datasetDir.toString());
+        ReflectionTestUtils.setField(bookingGeneratorService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+
+        StoredBookings stored = new StoredBookings();
+        bookingGeneratorService.generateBookings(seededRequest(500, 42, "bench-a"), stored);
+        List<Booking> first = stored.bookings;
+        bookingGeneratorService.generateBookings(seededRequest(500, 42, "bench-b"));
+        bookingGeneratorService.generateBookings(seededRequest(500, 43, "bench-c"));
+
+        byte[] a = Files.readAllBytes(datasetDir.resolve("bench-a.ndjson"));
+        assertArrayEquals(a, Files.readAllBytes(datasetDir.resolve("bench-b.ndjson")));
+        assertFalse(Arrays.equals(a, Files.readAllBytes(datasetDir.resolve("bench-c.ndjson"))));
+        assertEquals(500, Files.readAllLines(datasetDir.resolve("bench-a.ndjson")).size());
+        assertEquals(500, first.stream().map(Booking::getBookingId).distinct().count());
+        first.forEach(b -> assertFalse(b.getBookingDate().isBefore(LocalDate.of(2025, 1, 6))));
+
+        // El dataset no lee ni escribe en la base de datos, ni consume la secuencia de IDs
+        verify(mockBookingService, never()).getAllBookings();
+        verify(mockBookingService, never()).saveBookings(anyList());
+        assertFalse(idAllocator.exists(BookingGeneratorServiceImpl.BOOKING_SEQUENCE));
+        try (Stream<Path> files = Files.list(datasetDir)) {
+            assertEquals(3, files.count()); // Sin archivos parciales
+        }
+    }
+
+    @Test
+    void testGenerateBookings_SeededDatabaseRunsPickSameSlots() {
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(new ArrayList<>());
+
+        StoredBookings firstRun = new StoredBookings();
+        StoredBookings secondRun = new StoredBookings();
+        bookingGeneratorService.generateBookings(seededRequest(200, 7, null), firstRun);
+        bookingGeneratorService.generateBookings(seededRequest(200, 7, null), secondRun);
+        List<Booking> first = firstRun.bookings;
+        List<Booking> second = secondRun.bookings;
+
+        // Los IDs vienen de la secuencia, pero las franjas y prioridades se repiten
+        // (las particiones terminan en cualquier orden, así que se comparan ordenadas)
+        assertEquals(first.stream().map(b -> b.getSlotKey() + b.getBookingTime() + b.getPriority()).sorted().toList(),
+                second.stream().map(b -> b.getSlotKey() + b.getBookingTime() + b.getPriority()).sorted().toList());
+        assertNotEquals(first.get(0).getBookingId(), second.get(0).getBookingId());
+    }
+
+    @Test
+    void testGenerateBookings_InvalidDatasetName() {
+        assertThrows(IllegalArgumentException.class,
+                () -> bookingGeneratorService.generateBookings(seededRequest(1, 1, "../fuera")));
+        assertThrows(IllegalArgumentException.class, () -> bookingGeneratorService.loadDataset("/tmp/x"));
+    }
+
+    @Test
+    void testLoadDataset(@TempDir Path datasetDir) {
+        ReflectionTestUtils.setField(bookingGeneratorService, "datasetDir", datasetDir.toString());
+        ReflectionTestUtils.setField(bookingGeneratorService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(bookingGeneratorService, "batchSize", 50);
+        StoredBookings dataset = new StoredBookings();
+        bookingGeneratorService.generateBookings(seededRequest(120, 42, "bench"), dataset);
+        List<Booking> written = dataset.bookings;
+
+        int loaded = bookingGeneratorService.loadDataset("bench");
+
+        assertEquals(120, loaded);
+        ArgumentCaptor<List<Booking>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockBookingService, times(3)).saveBookings(batchCaptor.capture());
+        assertEquals(List.of(50, 50, 20), batchCaptor.getAllValues().stream().map(List::size).toList());
+        List<Booking> stored = batchCaptor.getAllValues().stream().flatMap(List::stream).toList();
+        assertEquals(written.stream().map(Booking::getSlotKey).toList(), stored.stream().map(Booking::getSlotKey).toList());
+        assertEquals(written.get(0).getBookingTime(), stored.get(0).getBookingTime());
+        assertEquals(written.get(0).getPriority(), stored.get(0).getPriority());
+        // La secuencia queda por encima de los IDs cargados
+        assertEquals(121, idAllocator.next(BookingGeneratorServiceImpl.BOOKING_SEQUENCE));
+    }
+
+    @Test
+    void testLoadDataset_SkipsConflictingBookings(@TempDir Path datasetDir) throws IOException {
+        ReflectionTestUtils.setField(bookingGeneratorService, "datasetDir", datasetDir.toString());
+        ReflectionTestUtils.setField(bookingGeneratorService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        LocalDate date = LocalDate.of(2030, 1, 7);
+        when(mockBookingRepository.findByClassRoomAndDate("A101", date))
+                .thenReturn(List.of(new Booking("old1", date, LocalTime.of(9, 0), false, "A101", 1, null)));
+        Files.write(datasetDir.resolve("bench.ndjson"), List.of(
+                "{\"bookingId\":\"lab1\",\"bookingDate\":\"2030-01-07\",\"bookingTime\":\"10:30:00\",\"bookingClassRoom\":\"A101\",\"priority\":1}",
+                "{\"bookingId\":\"lab2\",\"bookingDate\":\"2030-01-07\",\"bookingTime\":\"11:00:00\",\"bookingClassRoom\":\"A101\",\"priority\":1}",
+                "{\"bookingId\":\"lab3\",\"bookingDate\":\"2030-01-07\",\"bookingTime\":\"12:00:00\",\"bookingClassRoom\":\"A101\",\"priority\":1}",
+                "{\"bookingId\":\"lab4\",\"bookingDate\":\"2030-01-07\",\"bookingTime\":\"10:30:00\",\"bookingClassRoom\":\"B201\",\"priority\":1}"));
+
+        int loaded = bookingGeneratorService.loadDataset("bench");
+
+        // lab1 choca con la reserva existente de las 9:00 y lab3 con lab2, del mismo lote
+        assertEquals(2, loaded);
+        ArgumentCaptor<List<Booking>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockBookingService).saveBookings(batchCaptor.capture());
+        assertEquals(List.of("lab2", "lab4"), batchCaptor.getValue().stream().map(Booking::getBookingId).toList());
+    }
+
+    @Test
+    void testGenerateBookings_ParallelPartitionsAreDisjointAndComplete() {
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(new ArrayList<>());
+        ReflectionTestUtils.setField(bookingGeneratorService, "batchSize", 50);
+        Set<String> workerThreads = ConcurrentHashMap.newKeySet();
+        when(mockBookingService.saveBookings(anyList())).thenAnswer(invocation -> {
+            workerThreads.add(Thread.currentThread().getName());
+            return invocation.getArgument(0);
+        });
+
+        StoredBookings stored = new StoredBookings();
+        GenerationSummaryDTO summary = bookingGeneratorService.generateBookings(new GenerationRequestDTO(1000, 4), stored);
+        List<Booking> result = stored.bookings;
+
+        assertEquals(1000, result.size());
+        assertEquals(1000, result.stream().map(Booking::getBookingId).distinct().count());
+        assertEquals(1000, result.stream().map(Booking::getSlotKey).distinct().count());
+        assertEquals(1000, summary.getGenerated());
+        // La distribución por aula coincide con las reservas almacenadas
+        Map<String, Integer> perClassroom = new HashMap<>();
+        result.forEach(b -> perClassroom.merge(b.getBookingClassRoom(), 1, Integer::sum));
+        assertEquals(perClassroom, summary.getPerClassroom());
+        assertTrue(workerThreads.size() > 1, "La generación debe repartirse entre varios hilos");
+        assertFalse(workerThreads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    void testGenerateBookings_ParallelFillsWholeSlotSpace() {
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(new ArrayList<>());
+        int capacity = bookingGeneratorService.classrooms.length * BookingGeneratorServiceImpl.HORIZON_DAYS
+                * bookingGeneratorService.validHours.length;
+
+        // Más workers que aulas y más reservas que espacios libres
+        StoredBookings stored = new StoredBookings();
+        bookingGeneratorService.generateBookings(new GenerationRequestDTO(capacity + 100, 64), stored);
+        List<Booking> result = stored.bookings;
+
+        assertEquals(capacity, result.size());
+        assertEquals(capacity, result.stream().map(Booking::getSlotKey).distinct().count());
+    }
+
+    @Test
+    void testGenerateBookings_StopsWhenCancelled() {
+        when(mockBookingService.getBookingsInRange(any(), any(), any())).thenReturn(new ArrayList<>());
+        ReflectionTestUtils.setField(bookingGeneratorService, "batchSize", 10);
+        GenerationJob job = new GenerationJob("job1", "generate", 100);
+        when(mockBookingService.saveBookings(anyList())).thenAnswer(invocation -> {
+            job.cancel(); // Se cancela mientras se escribe el primer lote
+            return invocation.getArgument(0);
+        });
+
+        GenerationSummaryDTO result = bookingGeneratorService.generateBookings(new GenerationRequestDTO(100, 1), job);
+
+        assertEquals(10, result.getGenerated());
+        verify(mockBookingService, times(1)).saveBookings(anyList());
+        assertEquals(10, job.toDTO().getAttempted());
+        assertEquals(10, job.toDTO().getGenerated());
+    }
+
+    // Tests para GenerationJobServiceImpl
+    @Test
+    void testGenerationJob_CompletesWithProgress() {
+        when(mockBookingGeneratorService.generateBookings(any(GenerationRequestDTO.class), any(GenerationProgress.class)))
+                .thenAnswer(invocation -> {
+                    GenerationProgress progress = invocation.getArgument(1);
+                    progress.attempted(10);
+                    progress.stored(Collections.nCopies(8, booking), 2);
+                    return new GenerationSummaryDTO();
+                });
+
+        GenerationJobDTO started = generationJobService.startGeneration(new GenerationRequestDTO(10, 2));
+        GenerationJobDTO job = generationJobService.getJob(started.getJobId());
+
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals("generate", job.getType());
+        assertEquals(10, job.getTarget());
+        assertEquals(10, job.getAttempted());
+        assertEquals(8, job.getGenerated());
+        assertEquals(2, job.getConflicts());
+        assertTrue(job.getThroughput() > 0);
+    }
+
+    @Test
+    void testGenerationJob_Clear() {
+        when(mockBookingGeneratorService.clearBookings(null, null, null, true)).thenReturn(5);
+
+        GenerationJobDTO started = generationJobService.startClear(null, null, null, true);
+        GenerationJobDTO job = generationJobService.getJob(started.getJobId());
+
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals("clear", job.getType());
+        assertEquals(5, job.getRemoved());
+    }
+
+    @Test
+    void testGenerationJob_Failed() {
+        when(mockBookingGeneratorService.generateBookings(any(GenerationRequestDTO.class), any(GenerationProgress.class)))
+                .thenThrow(new IllegalStateException("Mongo no disponible"));
+
+        GenerationJobDTO started = generationJobService.startGeneration(new GenerationRequestDTO(10, 1));
+        GenerationJobDTO job = generationJobService.getJob(started.getJobId());
+
+        assertEquals("FAILED", job.getStatus());
+        assertEquals("Mongo no disponible", job.getError());
+    }
+
+    @Test
+    void testGenerationJob_CancelQueuedJobSkipsWork() {
+        List<Runnable> queue = new ArrayList<>();
+        ReflectionTestUtils.setField(generationJobService, "executor", (Executor) queue::add);
+
+        GenerationJobDTO started = generationJobService.startGeneration(new GenerationRequestDTO(10, 1));
+        assertEquals("QUEUED", started.getStatus());
+        generationJobService.cancelJob(started.getJobId());
+        queue.forEach(Runnable::run);
+
+        assertEquals("CANCELLED", generationJobService.getJob(started.getJobId()).getStatus());
+        verify(mockBookingGeneratorService, never()).generateBookings(any(GenerationRequestDTO.class), any(GenerationProgress.class));
+    }
+
+    @Test
+    void testGenerationJob_FullQueueRejectsJob() throws Exception {
+        ReflectionTestUtils.setField(generationJobService, "threads", 1);
+        ReflectionTestUtils.setField(generationJobService, "queueCapacity", 1);
+        generationJobService.init();
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockBookingGeneratorService.clearBookings(null, null, null, false)).thenAnswer(invocation -> {
+            release.await();
+            return 0;
+        });
+
+        try {
+            // Uno corre, otro espera en la cola y el tercero se rechaza sin quedar retenido
+            generationJobService.startClear(null, null, null, false);
+            generationJobService.startClear(null, null, null, false);
+            RejectedExecutionException e = assertThrows(RejectedExecutionException.class,
+                    () -> generationJobService.startClear(null, null, null, false));
+
+            assertEquals("Demasiados trabajos en cola, intente más tarde", e.getMessage());
+            assertEquals(2, ((Map<?, ?>) ReflectionTestUtils.getField(generationJobService, "jobs")).size());
+        } finally {
+            release.countDown();
+            generationJobService.shutdown();
+        }
+    }
+
+    @Test
+    void testGenerationJob_RetainedLimitRejectsJob() {
+        List<Runnable> queue = new ArrayList<>();
+        ReflectionTestUtils.setField(generationJobService, "executor", (Executor) queue::add);
+
+        // Ningún trabajo termina, así que no hay trabajos terminados que descartar
+        for (int i = 0; i < GenerationJobServiceImpl.MAX_RETAINED_JOBS; i++) {
+            generationJobService.startClear(null, null, null, false);
+        }
+
+        assertThrows(RejectedExecutionException.class, () -> generationJobService.startClear(null, null, null, false));
+        assertEquals(GenerationJobServiceImpl.MAX_RETAINED_JOBS, queue.size());
+
+        // Al terminar los trabajos, se descartan y se aceptan nuevos
+        queue.forEach(Runnable::run);
+        assertEquals("QUEUED", generationJobService.startGeneration(new GenerationRequestDTO(10, 1)).getStatus());
+    }
+
+    @Test
+    void testGenerationJob_UnknownJob() {
+        assertNull(generationJobService.getJob("unknown"));
+        assertNull(generationJobService.cancelJob("unknown"));
+    }
+
+    @Test
+    void testGenerationJob_EvictsOldFinishedJobs() {
+        GenerationJobDTO first = generationJobService.startClear(null, null, null, false);
+        for (int i = 0; i < 150; i++) {
+            generationJobService.startClear(null, null, null, false);
+        }
+
+        assertNull(generationJobService.getJob(first.getJobId()));
+        Map<?, ?> jobs = (Map<?, ?>) ReflectionTestUtils.getField(generationJobService, "jobs");
+        assertTrue(jobs.size() <= 100);
+    }
+
+    @Test
+    void testFreeSlotPool_AddRemoveAndContains() {
+        FreeSlotPool pool = new FreeSlotPool(10);
+
+        assertTrue(pool.add(3));
+        assertTrue(pool.add(7));
+        assertFalse(pool.add(3));
+        assertEquals(2, pool.size());
+
+        assertTrue(pool.remove(3));
+        assertFalse(pool.remove(3));
+        assertFalse(pool.contains(3));
+        assertTrue(pool.contains(7));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void testFreeSlotPool_TakeRandomReturnsEachSlotOnce() {
+        FreeSlotPool pool = new FreeSlotPool(100);
+        for (int slot = 0; slot < 100; slot++) {
+            pool.add(slot);
+        }
+
+        Set<Integer> taken = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(taken.add(pool.takeRandom(random)));
+        }
+
+        assertTrue(pool.isEmpty());
+        assertEquals(-1, pool.takeRandom(random));
+        assertEquals(100, taken.size());
     }
 
     @Test
     void testIsSlotBooked_NoReservationsForClassroom() {
-        Map<String, Map<LocalDate, Set<Integer>>> bookedSlots = new HashMap<>();
+        Map<String, Map<LocalDate, NavigableSet<Integer>>> bookedSlots = new HashMap<>();
         
         // No se agrega "A101" a bookedSlots
         boolean result = bookingGeneratorService.isSlotBooked(bookedSlots, "A101", LocalDate.now(), 9);
@@ -6,23 +6,61 @@ import eci.edu.back.cvds_back.controller.UserController;
 import eci.edu.back.cvds_back.dto.AuthenticationResponseDTO;
 import eci.edu.back.cvds_back.dto.UserAuthenticationDTO;
 import eci.edu.back.cvds_back.dto.UserDTO;
+import eci.edu.back.cvds_back.dto.UserSummaryDTO;
 import eci.edu.back.cvds_back.model.User;
+import eci.edu.back.cvds_back.model.RevokedToken;
+import eci.edu.back.cvds_back.service.impl.LoginRateLimiterImpl;
+import eci.edu.back.cvds_back.service.impl.TokenRevocationServiceImpl;
 import eci.edu.back.cvds_back.service.impl.UserRepositoryImpl;
 import eci.edu.back.cvds_back.service.impl.UserServiceImpl;
+import eci.edu.back.cvds_back.service.interfaces.RevokedTokenMongoRepository;
+import eci.edu.back.cvds_back.service.interfaces.TokenRevocationService;
 import eci.edu.back.cvds_back.service.interfaces.UserMongoRepository;
 import eci.edu.back.cvds_back.service.interfaces.UserRepository;
 import eci.edu.back.cvds_back.service.interfaces.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.util.ReflectionTestUtils;
+import eci.edu.back.cvds_back.util.JwtAuthentication;
+import eci.edu.back.cvds_back.util.JwtKeyProperties;
+import eci.edu.back.cvds_back.util.JwtRequestFilter;
 import eci.edu.back.cvds_back.util.JwtUtil;
-
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -52,6 +90,15 @@ public class ImplUserTests {
     @Mock
     private JwtUtil mockJwtUtil;
 
+    @Mock
+    private TokenRevocationService mockTokenRevocationService;
+
+    @Mock
+    private RevokedTokenMongoRepository revokedTokenRepository;
+
+    // Fuerza mínima de BCrypt para que las pruebas sean rápidas
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+
     private UserDTO userDTO;
     private User user;
     private List<User> userList;
@@ -82,12 +129,20 @@ public class ImplUserTests {
         when(mockUserService.getUser("user123")).thenReturn(user);
         ReflectionTestUtils.setField(userController, "userService", mockUserService);
         ReflectionTestUtils.setField(userService, "jwtUtil", mockJwtUtil);
+        ReflectionTestUtils.setField(userService, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(userService, "tokenRevocationService", mockTokenRevocationService);
+        ReflectionTestUtils.setField(userService, "loginExecutor", (Executor) Runnable::run);
 
         // Configure with ReflectionTestUtils
         ReflectionTestUtils.setField(userService, "userRepository", mockUserRepository);
         ReflectionTestUtils.setField(userController, "userService", mockUserService);
     }
 
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
     // Tests para UserRepositoryImpl
     @Test
     void testUserRepositoryFindAll() {
@@ -117,6 +172,45 @@ public class ImplUserTests {
         verify(userMongoRepository).findById("nonExistingId");
     }
 
+    @Test
+    void testUserRepositoryFindSummaries() {
+        List<UserSummaryDTO> summaries = List.of(new UserSummaryDTO("user123", "testuser"));
+        when(userMongoRepository.findSummariesBy(any(Pageable.class))).thenReturn(summaries);
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+
+        assertSame(summaries, userRepository.findSummaries(3, 50));
+        assertSame(summaries, userRepository.findSummaries(null, 10_000));
+        assertSame(summaries, userRepository.findSummaries(null, null));
+        verify(userMongoRepository, times(3)).findSummariesBy(pageable.capture());
+        // Nunca se leen los documentos completos
+        verify(userMongoRepository, never()).findAll();
+
+        Pageable requested = pageable.getAllValues().get(0);
+        assertEquals(3, requested.getPageNumber());
+        assertEquals(50, requested.getPageSize());
+        assertEquals(Sort.by("userId"), requested.getSort());
+        // El tamaño de página está acotado
+        assertEquals(500, pageable.getAllValues().get(1).getPageSize());
+        assertTrue(pageable.getAllValues().get(2).isUnpaged());
+    }
+
+    @Test
+    void testUserRepositoryFindSummaries_InvalidPaging() {
+        // Igual que en my-reservations: se rechazan en vez de corregirse en silencio
+        assertThrows(IllegalArgumentException.class, () -> userRepository.findSummaries(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> userRepository.findSummaries(0, 0));
+        verify(userMongoRepository, never()).findSummariesBy(any(Pageable.class));
+    }
+
+    @Test
+    void testGetUsers() {
+        List<UserSummaryDTO> summaries = List.of(new UserSummaryDTO("user123", "testuser"));
+        when(mockUserRepository.findSummaries(0, 20)).thenReturn(summaries);
+
+        assertSame(summaries, userService.getUsers(0, 20));
+        verify(mockUserRepository).findSummaries(0, 20);
+    }
+
     @Test
     void testUserRepositorySave() {
         userRepository.save(user);
@@ -157,12 +251,16 @@ public class ImplUserTests {
         newUserDTO.setUserId("newUser");
         newUserDTO.setEmail("newUsername");
         newUserDTO.setPassword("987654321");
+        newUserDTO.setPasswordConfirmation("987654321");
 
         User result = userService.saveUser(newUserDTO);
         assertNotNull(result);
         assertEquals("newUser", result.getUserId());
         assertEquals("newUsername", result.getEmail());
-        assertEquals("987654321", result.getPassword());
+        // Se guarda el hash, nunca la contraseña ni su confirmación en claro
+        assertNotEquals("987654321", result.getPassword());
+        assertTrue(passwordEncoder.matches("987654321", result.getPassword()));
+        assertNull(result.getPasswordConfirmation());
         verify(mockUserRepository).save(any(User.class));
     }
 
@@ -212,7 +310,22 @@ public class ImplUserTests {
         assertTrue(response.isAuthenticated());
         assertNotNull(response.getToken());
         assertEquals("Autenticación exitosa", response.getMessage());
+        // La respuesta solo lleva el ID y el email del usuario, no el hash de la contraseña
+        assertEquals("user123", response.getUser().getUserId());
+        assertEquals(user.getEmail(), response.getUser().getEmail());
+    }
+    @Test
+    void testAuthenticate_ReturnsRefreshToken() {
+        when(mockUserRepository.findById("user123")).thenReturn(user);
+        when(mockJwtUtil.generateToken("user123")).thenReturn("mockToken");
+        when(mockJwtUtil.generateRefreshToken("user123")).thenReturn("mockRefreshToken");
+
+        AuthenticationResponseDTO response = userService.authenticate(credentials("user123", "123456789"));
+        assertTrue(response.isAuthenticated());
+        assertEquals("mockToken", response.getToken());
+        assertEquals("mockRefreshToken", response.getRefreshToken());
     }
+
     @Test
     void testAuthenticate_UserNotFound() {
         when(mockUserRepository.findById("user123")).thenThrow(new UserServiceException("Usuario no encontrado"));
@@ -249,4 +362,622 @@ public class ImplUserTests {
             userService.saveUser(nullUserDTO);
         });
     }
+
+    // Tests para JwtUtil y JwtRequestFilter
+    @Test
+    void testJwtUtil_ParsesOnceAndValidates() {
+        JwtUtil jwtUtil = new JwtUtil();
+        String token = jwtUtil.generateToken("user123");
+
+        Claims claims = jwtUtil.extractAllClaims(token);
+        assertEquals("user123", claims.getSubject());
+        assertTrue(claims.getExpiration().after(claims.getIssuedAt()));
+        assertTrue(jwtUtil.validateToken(token, "user123"));
+        assertFalse(jwtUtil.validateToken(token, "otherUser"));
+        // Un token firmado con otra clave no se acepta
+        assertThrows(JwtException.class, () -> jwtUtil.extractAllClaims(new JwtUtil().generateToken("user123")));
+    }
+
+    @Test
+    void testJwtRequestFilter_StoresClaimsInSecurityContext() throws Exception {
+        JwtUtil jwtUtil = spy(new JwtUtil());
+        JwtRequestFilter filter = new JwtRequestFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "tokenRevocationService", revocationService());
+        String token = jwtUtil.generateToken("user123");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertInstanceOf(JwtAuthentication.class, authentication);
+        assertEquals("user123", authentication.getPrincipal());
+        assertTrue(authentication.isAuthenticated());
+        assertEquals("user123", ((JwtAuthentication) authentication).getClaims().getSubject());
+        // El token se verifica una sola vez por petición
+        verify(jwtUtil, times(1)).extractAllClaims(token);
+        verify(chain).doFilter(any(), any());
+    }
+
+    @Test
+    void testJwtRequestFilter_InvalidTokenLeavesRequestUnauthenticated() throws Exception {
+        JwtRequestFilter filter = new JwtRequestFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", new JwtUtil());
+        ReflectionTestUtils.setField(filter, "tokenRevocationService", revocationService());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer token.invalido.x");
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(chain).doFilter(any(), any());
+    }
+
+    @Test
+    void testJwtUtil_CachesVerifiedTokens() {
+        JwtUtil jwtUtil = new JwtUtil();
+        String token = jwtUtil.generateToken("user123");
+
+        Claims first = jwtUtil.extractAllClaims(token);
+        Claims second = jwtUtil.extractAllClaims(token);
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals("user123", jwtUtil.extractUserId(token));
+
+        // Un token alterado no coincide con la entrada en caché y se verifica de nuevo
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertThrows(JwtException.class, () -> jwtUtil.extractAllClaims(tampered));
+
+        Map<String, Object> stats = jwtUtil.getCacheStats();
+        assertEquals(4L, stats.get("lookups"));
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(0.5, stats.get("hitRate"));
+        assertEquals(1, stats.get("size"));
+    }
+
+    @Test
+    void testJwtUtil_CachedClaimsCannotBeAltered() {
+        JwtUtil jwtUtil = new JwtUtil();
+        String token = jwtUtil.generateToken("user123");
+        jwtUtil.extractAllClaims(token);
+
+        // Modificar los claims devueltos no altera los que ve la siguiente petición
+        jwtUtil.extractAllClaims(token).setSubject("admin");
+
+        assertEquals("user123", jwtUtil.extractAllClaims(token).getSubject());
+    }
+
+    @Test
+    void testJwtUtil_CacheIsBounded() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 2);
+
+        for (int i = 0; i < 5; i++) {
+            jwtUtil.extractAllClaims(jwtUtil.generateToken("user" + i));
+        }
+
+        Map<String, Object> stats = jwtUtil.getCacheStats();
+        assertEquals(2, stats.get("size"));
+        assertEquals(3L, stats.get("evictions"));
+    }
+
+    @Test
+    void testJwtUtil_CacheEvictsLeastRecentlyUsedToken() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 2);
+        String first = jwtUtil.generateToken("user1");
+        String second = jwtUtil.generateToken("user2");
+        jwtUtil.extractAllClaims(first);
+        jwtUtil.extractAllClaims(second);
+
+        // Al usar de nuevo el primero, el que se descarta es el segundo
+        jwtUtil.extractAllClaims(first);
+        jwtUtil.extractAllClaims(jwtUtil.generateToken("user3"));
+        jwtUtil.extractAllClaims(first);
+        jwtUtil.extractAllClaims(second);
+
+        assertEquals(2L, jwtUtil.getCacheStats().get("hits"));
+    }
+
+    @Test
+    void testJwtUtil_SweepPurgesExpiredTokens() {
+        JwtUtil jwtUtil = new JwtUtil();
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        ReflectionTestUtils.setField(jwtUtil, "clock", (LongSupplier) now::get);
+        jwtUtil.extractAllClaims(jwtUtil.generateToken("user1"));
+        jwtUtil.extractAllClaims(jwtUtil.generateToken("user2"));
+
+        // Pasada la validez del token de acceso, el barrido de un fallo descarta las entradas vencidas
+        Duration validity = (Duration) ReflectionTestUtils.getField(jwtUtil, "accessTokenValidity");
+        now.addAndGet(validity.toMillis() + 1);
+        assertThrows(JwtException.class, () -> jwtUtil.extractAllClaims("token.invalido.x"));
+
+        assertEquals(0, jwtUtil.getCacheStats().get("size"));
+        assertEquals(2L, jwtUtil.getCacheStats().get("evictions"));
+    }
+
+    @Test
+    void testJwtUtil_CacheEvictsExpiredTokens() throws InterruptedException {
+        JwtUtil jwtUtil = jwtUtil("k1", signingKey("k1", SECRET_1, null));
+        // La expiración del JWT se guarda en segundos, por eso el margen de 2 segundos
+        String shortLived = Jwts.builder()
+                .setHeaderParam("kid", "k1")
+                .setSubject("user123")
+                .setExpiration(new Date(System.currentTimeMillis() + 2000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_1)))
+                .compact();
+
+        assertEquals("user123", jwtUtil.extractAllClaims(shortLived).getSubject());
+        assertEquals(1, jwtUtil.getCacheStats().get("size"));
+
+        Thread.sleep(2100);
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.extractAllClaims(shortLived));
+        assertEquals(0, jwtUtil.getCacheStats().get("size"));
+        assertEquals(1L, jwtUtil.getCacheStats().get("evictions"));
+    }
+
+    // Secretos de prueba de 256 bits en Base64
+    private static final String SECRET_1 = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String SECRET_2 = "ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=";
+
+    private static JwtKeyProperties.SigningKey signingKey(String id, String secret, Instant retireAt) {
+        JwtKeyProperties.SigningKey key = new JwtKeyProperties.SigningKey();
+        key.setId(id);
+        key.setSecret(secret);
+        key.setRetireAt(retireAt);
+        return key;
+    }
+
+    private static JwtUtil jwtUtil(String activeKeyId, JwtKeyProperties.SigningKey... keys) {
+        JwtKeyProperties properties = new JwtKeyProperties();
+        properties.setActiveKeyId(activeKeyId);
+        properties.setKeys(List.of(keys));
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "keyProperties", properties);
+        jwtUtil.loadKeys();
+        return jwtUtil;
+    }
+
+    @Test
+    void testJwtUtil_ReplicasShareKeyRing() {
+        JwtUtil replicaA = jwtUtil("k1", signingKey("k1", SECRET_1, null));
+        JwtUtil replicaB = jwtUtil("k1", signingKey("k1", SECRET_1, null));
+
+        String token = replicaA.generateToken("user123");
+        assertEquals("k1", Jwts.parserBuilder().build().parseClaimsJwt(token.substring(0, token.lastIndexOf('.') + 1)).getHeader().get("kid"));
+        // Otra réplica, o la misma tras reiniciar, acepta el token
+        assertEquals("user123", replicaB.extractUserId(token));
+        // Una instancia sin claves configuradas no lo acepta
+        assertThrows(JwtException.class, () -> new JwtUtil().extractAllClaims(token));
+    }
+
+    @Test
+    void testJwtUtil_RotationOverlapWindow() {
+        JwtUtil beforeRotation = jwtUtil("k1", signingKey("k1", SECRET_1, null));
+        String oldToken = beforeRotation.generateToken("user123");
+
+        // k2 pasa a ser la activa y k1 se sigue aceptando hasta su retiro
+        JwtUtil duringOverlap = jwtUtil("k2",
+                signingKey("k1", SECRET_1, Instant.now().plusSeconds(3600)),
+                signingKey("k2", SECRET_2, null));
+        String newToken = duringOverlap.generateToken("user456");
+        assertEquals("user123", duringOverlap.extractUserId(oldToken));
+        assertEquals("user456", duringOverlap.extractUserId(newToken));
+        assertThrows(JwtException.class, () -> beforeRotation.extractAllClaims(newToken));
+
+        // Una vez retirada, k1 ya no verifica tokens
+        JwtUtil afterRetire = jwtUtil("k2",
+                signingKey("k1", SECRET_1, Instant.now().minusSeconds(1)),
+                signingKey("k2", SECRET_2, null));
+        assertThrows(JwtException.class, () -> afterRetire.extractAllClaims(oldToken));
+        assertEquals("user456", afterRetire.extractUserId(newToken));
+    }
+
+    @Test
+    void testJwtUtil_InvalidKeyRing() {
+        assertThrows(IllegalStateException.class, () -> jwtUtil("k3", signingKey("k1", SECRET_1, null)));
+        assertThrows(IllegalStateException.class, () -> jwtUtil(null, signingKey("k1", "c2hvcnQ=", null)));
+        assertThrows(IllegalStateException.class, () -> jwtUtil(null, signingKey("k1", SECRET_1, null), signingKey("k1", SECRET_2, null)));
+        assertThrows(IllegalStateException.class, () -> jwtUtil("k1", signingKey("k1", SECRET_1, Instant.now().minusSeconds(1))));
+    }
+
+    private UserAuthenticationDTO credentials(String userId, String password) {
+        UserAuthenticationDTO authDTO = new UserAuthenticationDTO();
+        authDTO.setUserId(userId);
+        authDTO.setPassword(password);
+        return authDTO;
+    }
+
+    @Test
+    void testAuthenticate_HashedPassword() {
+        User hashed = new User("user123", "testuser", passwordEncoder.encode("123456789"), null);
+        when(mockUserRepository.findById("user123")).thenReturn(hashed);
+        when(mockJwtUtil.generateToken("user123")).thenReturn("mockToken");
+
+        assertTrue(userService.authenticate(credentials("user123", "123456789")).isAuthenticated());
+        assertFalse(userService.authenticate(credentials("user123", "wrongPassword")).isAuthenticated());
+        // Un hash con la fuerza configurada no se vuelve a guardar
+        verify(mockUserRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testAuthenticate_UpgradesLegacyPlaintextPassword() {
+        when(mockUserRepository.findById("user123")).thenReturn(user);
+        when(mockJwtUtil.generateToken("user123")).thenReturn("mockToken");
+
+        assertFalse(userService.authenticate(credentials("user123", "wrongPassword")).isAuthenticated());
+        verify(mockUserRepository, never()).save(any(User.class));
+
+        assertTrue(userService.authenticate(credentials("user123", "123456789")).isAuthenticated());
+        verify(mockUserRepository).save(user);
+        assertTrue(passwordEncoder.matches("123456789", user.getPassword()));
+        assertNull(user.getPasswordConfirmation());
+
+        // El siguiente login usa el hash
+        assertTrue(userService.authenticate(credentials("user123", "123456789")).isAuthenticated());
+        verify(mockUserRepository, times(1)).save(any(User.class));
+    }
+
+    @Test
+    void testAuthenticate_UpgradesWeakerHash() {
+        User weak = new User("user123", "testuser", new BCryptPasswordEncoder(4).encode("123456789"), null);
+        ReflectionTestUtils.setField(userService, "passwordEncoder", new BCryptPasswordEncoder(5));
+        when(mockUserRepository.findById("user123")).thenReturn(weak);
+        when(mockJwtUtil.generateToken("user123")).thenReturn("mockToken");
+
+        assertTrue(userService.authenticate(credentials("user123", "123456789")).isAuthenticated());
+        verify(mockUserRepository).save(weak);
+        assertTrue(weak.getPassword().startsWith("$2a$05$"));
+    }
+
+    @Test
+    void testAuthenticateAsync_RunsOnLoginExecutor() throws Exception {
+        when(mockUserRepository.findById("user123")).thenReturn(user);
+        when(mockJwtUtil.generateToken("user123")).thenReturn("mockToken");
+        List<Runnable> submitted = new ArrayList<>();
+        ReflectionTestUtils.setField(userService, "loginExecutor", (Executor) submitted::add);
+
+        CompletableFuture<AuthenticationResponseDTO> future = userService.authenticateAsync(credentials("user123", "123456789"));
+        assertFalse(future.isDone());
+        assertEquals(1, submitted.size());
+
+        submitted.get(0).run();
+        assertTrue(future.get().isAuthenticated());
+        assertEquals("mockToken", future.get().getToken());
+    }
+
+    @Test
+    void testAuthenticateAsync_SaturatedExecutor() throws Exception {
+        ReflectionTestUtils.setField(userService, "loginExecutor", (Executor) task -> {
+            throw new RejectedExecutionException("lleno");
+        });
+
+        AuthenticationResponseDTO response = userService.authenticateAsync(credentials("user123", "123456789")).get();
+        assertFalse(response.isAuthenticated());
+        assertEquals("Servidor ocupado, intente de nuevo", response.getMessage());
+        verify(mockUserRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void testLoginExecutorIsBounded() {
+        UserServiceImpl service = new UserServiceImpl();
+        ReflectionTestUtils.setField(service, "loginThreads", 1);
+        ReflectionTestUtils.setField(service, "loginQueueCapacity", 1);
+        service.init();
+        try {
+            ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "loginExecutor");
+            assertEquals(1, executor.getMaximumPoolSize());
+            assertEquals(1, executor.getQueue().remainingCapacity());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    // Tests para LoginRateLimiterImpl
+    private LoginRateLimiterImpl rateLimiter(AtomicLong now) {
+        LoginRateLimiterImpl limiter = new LoginRateLimiterImpl();
+        ReflectionTestUtils.setField(limiter, "userCapacity", 3);
+        ReflectionTestUtils.setField(limiter, "userRefillPerMinute", 6);
+        ReflectionTestUtils.setField(limiter, "ipCapacity", 5);
+        ReflectionTestUtils.setField(limiter, "ipRefillPerMinute", 5);
+        ReflectionTestUtils.setField(limiter, "clock", (LongSupplier) now::get);
+        return limiter;
+    }
+
+    @Test
+    void testLoginRateLimiter_PerUserBucket() {
+        AtomicLong now = new AtomicLong();
+        LoginRateLimiterImpl limiter = rateLimiter(now);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("user123", "10.0.0." + i));
+        }
+        // El usuario agotó su ráfaga aunque cada intento venga de otra IP
+        assertFalse(limiter.tryAcquire("user123", "10.0.0.9"));
+        assertTrue(limiter.tryAcquire("otherUser", "10.0.0.9"));
+
+        // 6 intentos por minuto: uno nuevo cada 10 segundos
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(limiter.tryAcquire("user123", "10.0.0.9"));
+        assertFalse(limiter.tryAcquire("user123", "10.0.0.9"));
+        assertEquals(10, limiter.getRetryAfterSeconds("user123", "10.0.0.9"));
+
+        assertEquals(5L, limiter.getStats().get("allowed"));
+        assertEquals(2L, limiter.getStats().get("rejected"));
+    }
+
+    @Test
+    void testLoginRateLimiter_PerIpBucket() {
+        LoginRateLimiterImpl limiter = rateLimiter(new AtomicLong());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("user" + i, "10.0.0.1"));
+        }
+        assertFalse(limiter.tryAcquire("user9", "10.0.0.1"));
+        // La IP rechazada no consume los intentos del usuario atacado
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("user9", "10.0.0.2"));
+        }
+    }
+
+    @Test
+    void testLoginRateLimiter_RetryAfterFromRefusingBucket() {
+        AtomicLong now = new AtomicLong();
+        LoginRateLimiterImpl limiter = rateLimiter(now);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("user" + i, "10.0.0.1"));
+        }
+        assertFalse(limiter.tryAcquire("user9", "10.0.0.1"));
+        // Rechazó la IP (5 intentos por minuto): 12 segundos, no los 10 del bucket del usuario
+        assertEquals(12, limiter.getRetryAfterSeconds("user9", "10.0.0.1"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(7));
+        assertEquals(5, limiter.getRetryAfterSeconds("user9", "10.0.0.1"));
+    }
+
+    @Test
+    void testLoginRateLimiter_EvictsIdleBucketsAndStaysBounded() {
+        AtomicLong now = new AtomicLong();
+        LoginRateLimiterImpl limiter = rateLimiter(now);
+        ReflectionTestUtils.setField(limiter, "maxBuckets", 4);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("user" + i, "10.0.0." + i);
+        }
+        assertTrue((Integer) limiter.getStats().get("userBuckets") <= 4);
+        assertTrue((Integer) limiter.getStats().get("ipBuckets") <= 4);
+
+        // Pasado el intervalo de barrido, los buckets recargados se descartan
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        limiter.tryAcquire("user0", "10.0.0.0");
+        assertEquals(1, limiter.getStats().get("userBuckets"));
+        assertEquals(1, limiter.getStats().get("ipBuckets"));
+    }
+
+    @Test
+    void testLoginRateLimiter_EvictsLeastRecentlyUsedBucket() {
+        LoginRateLimiterImpl limiter = rateLimiter(new AtomicLong());
+        ReflectionTestUtils.setField(limiter, "ipCapacity", 1000);
+        ReflectionTestUtils.setField(limiter, "maxBuckets", 3);
+
+        assertTrue(limiter.tryAcquire("victim", "10.0.0.1"));
+        assertTrue(limiter.tryAcquire("victim", "10.0.0.1"));
+        limiter.tryAcquire("attacker1", "10.0.0.1");
+        limiter.tryAcquire("attacker2", "10.0.0.1");
+        assertTrue(limiter.tryAcquire("victim", "10.0.0.1"));
+        // Rotar IDs descarta los buckets menos usados, no el de la víctima recién atacada
+        limiter.tryAcquire("attacker3", "10.0.0.1");
+        limiter.tryAcquire("attacker4", "10.0.0.1");
+
+        assertFalse(limiter.tryAcquire("victim", "10.0.0.1"));
+        assertEquals(3, limiter.getStats().get("userBuckets"));
+        assertEquals(2L, limiter.getStats().get("evictions"));
+    }
+
+    @Test
+    void testLoginRateLimiter_ConcurrentAttempts() throws InterruptedException {
+        LoginRateLimiterImpl limiter = rateLimiter(new AtomicLong());
+        ReflectionTestUtils.setField(limiter, "ipCapacity", 1000);
+        ReflectionTestUtils.setField(limiter, "userCapacity", 50);
+        AtomicInteger granted = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    if (limiter.tryAcquire("user123", "10.0.0.1")) granted.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        // Ningún intento se concede de más bajo concurrencia
+        assertEquals(50, granted.get());
+    }
+
+    // Tests para refresh tokens
+    @Test
+    void testJwtUtil_AccessAndRefreshTokens() {
+        JwtUtil jwtUtil = new JwtUtil();
+        Claims access = jwtUtil.extractAllClaims(jwtUtil.generateToken("user123"));
+        Claims refresh = jwtUtil.extractAllClaims(jwtUtil.generateRefreshToken("user123"));
+
+        assertFalse(JwtUtil.isRefreshToken(access));
+        assertTrue(JwtUtil.isRefreshToken(refresh));
+        long accessLifetime = access.getExpiration().getTime() - access.getIssuedAt().getTime();
+        long refreshLifetime = refresh.getExpiration().getTime() - refresh.getIssuedAt().getTime();
+        assertEquals(((Duration) ReflectionTestUtils.getField(jwtUtil, "accessTokenValidity")).toMillis(), accessLifetime, 1000);
+        assertEquals(((Duration) ReflectionTestUtils.getField(jwtUtil, "refreshTokenValidity")).toMillis(), refreshLifetime, 1000);
+    }
+
+    @Test
+    void testRefresh_IssuesAccessTokenWithoutDatabase() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(userService, "jwtUtil", jwtUtil);
+        String refreshToken = jwtUtil.generateRefreshToken("user123");
+
+        AuthenticationResponseDTO response = userService.refresh(refreshToken);
+        assertTrue(response.isAuthenticated());
+        assertEquals(refreshToken, response.getRefreshToken());
+        Claims claims = jwtUtil.extractAllClaims(response.getToken());
+        assertEquals("user123", claims.getSubject());
+        assertFalse(JwtUtil.isRefreshToken(claims));
+        // No se consulta la base de datos ni se verifica la contraseña
+        verifyNoInteractions(mockUserRepository);
+    }
+
+    @Test
+    void testRefresh_RejectsAccessAndInvalidTokens() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(userService, "jwtUtil", jwtUtil);
+
+        for (String token : new String[]{jwtUtil.generateToken("user123"), "token.invalido.x", null,
+                new JwtUtil().generateRefreshToken("user123")}) {
+            AuthenticationResponseDTO response = userService.refresh(token);
+            assertFalse(response.isAuthenticated());
+            assertNull(response.getToken());
+            assertEquals("Token de renovación inválido", response.getMessage());
+        }
+    }
+
+    @Test
+    void testJwtRequestFilter_IgnoresRefreshTokens() throws Exception {
+        JwtUtil jwtUtil = new JwtUtil();
+        JwtRequestFilter filter = new JwtRequestFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "tokenRevocationService", revocationService());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateRefreshToken("user123"));
+
+        filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    // Tests para la revocación de tokens
+    private static TokenRevocationServiceImpl revocationService() {
+        TokenRevocationServiceImpl service = new TokenRevocationServiceImpl();
+        ReflectionTestUtils.setField(service, "persist", false);
+        return service;
+    }
+
+    private static Date inOneHour() {
+        return new Date(System.currentTimeMillis() + 3_600_000);
+    }
+
+    @Test
+    void testJwtUtil_TokensHaveUniqueJti() {
+        JwtUtil jwtUtil = new JwtUtil();
+        String first = jwtUtil.extractAllClaims(jwtUtil.generateToken("user123")).getId();
+        String second = jwtUtil.extractAllClaims(jwtUtil.generateToken("user123")).getId();
+        assertNotNull(first);
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void testTokenRevocation_RevokeUntilExpiry() {
+        TokenRevocationServiceImpl service = revocationService();
+
+        assertFalse(service.isRevoked("jti-1"));
+        service.revoke("jti-1", inOneHour());
+        assertTrue(service.isRevoked("jti-1"));
+        assertFalse(service.isRevoked("jti-2"));
+        assertFalse(service.isRevoked(null));
+
+        // Un token ya expirado no necesita entrar en la lista
+        service.revoke("jti-3", new Date(System.currentTimeMillis() - 1000));
+        assertFalse(service.isRevoked("jti-3"));
+        assertEquals(1, service.getStats().get("size"));
+    }
+
+    @Test
+    void testTokenRevocation_BloomFalsePositivesConfirmedByExactSet() {
+        TokenRevocationServiceImpl service = revocationService();
+        // Filtro diminuto para forzar falsos positivos
+        ReflectionTestUtils.setField(service, "bloomBits", 64);
+        ReflectionTestUtils.setField(service, "bloomHashes", 1);
+        for (int i = 0; i < 32; i++) {
+            service.revoke("revoked-" + i, inOneHour());
+        }
+
+        for (int i = 0; i < 200; i++) {
+            assertFalse(service.isRevoked("valid-" + i));
+        }
+        for (int i = 0; i < 32; i++) {
+            assertTrue(service.isRevoked("revoked-" + i));
+        }
+        assertTrue((Long) service.getStats().get("falsePositives") > 0);
+    }
+
+    @Test
+    void testTokenRevocation_SyncSharesAndPurges() {
+        TokenRevocationServiceImpl service = new TokenRevocationServiceImpl();
+        ReflectionTestUtils.setField(service, "revokedTokenRepository", revokedTokenRepository);
+
+        service.revoke("local", inOneHour());
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+
+        // Otro nodo revocó un token; sync lo carga y reconstruye el filtro
+        when(revokedTokenRepository.findByExpiresAtAfter(any(Date.class)))
+                .thenReturn(List.of(new RevokedToken("remote", inOneHour())));
+        assertFalse(service.isRevoked("remote"));
+        service.sync();
+        assertTrue(service.isRevoked("remote"));
+        assertTrue(service.isRevoked("local"));
+
+        // Si la base de datos falla, se conserva la lista local
+        when(revokedTokenRepository.findByExpiresAtAfter(any(Date.class))).thenThrow(new RuntimeException("sin conexión"));
+        service.sync();
+        assertTrue(service.isRevoked("remote"));
+        assertEquals(2, service.getStats().get("size"));
+    }
+
+    @Test
+    void testJwtRequestFilter_RejectsRevokedToken() throws Exception {
+        JwtUtil jwtUtil = new JwtUtil();
+        TokenRevocationServiceImpl revocation = revocationService();
+        JwtRequestFilter filter = new JwtRequestFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "tokenRevocationService", revocation);
+        String token = jwtUtil.generateToken("user123");
+        Claims claims = jwtUtil.extractAllClaims(token);
+        revocation.revoke(claims.getId(), claims.getExpiration());
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testLogout_RevokesAccessAndRefreshTokens() {
+        JwtUtil jwtUtil = new JwtUtil();
+        TokenRevocationServiceImpl revocation = revocationService();
+        ReflectionTestUtils.setField(userService, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(userService, "tokenRevocationService", revocation);
+        Claims access = jwtUtil.extractAllClaims(jwtUtil.generateToken("user123"));
+        String refreshToken = jwtUtil.generateRefreshToken("user123");
+        String otherUserRefresh = jwtUtil.generateRefreshToken("otherUser");
+
+        assertTrue(userService.refresh(refreshToken).isAuthenticated());
+        userService.logout(access, refreshToken);
+        userService.logout(access, otherUserRefresh);
+        userService.logout(access, "token.invalido.x");
+
+        assertTrue(revocation.isRevoked(access.getId()));
+        assertTrue(revocation.isRevoked(jwtUtil.extractAllClaims(refreshToken).getId()));
+        // Solo se revocan refresh tokens del mismo usuario
+        assertFalse(revocation.isRevoked(jwtUtil.extractAllClaims(otherUserRefresh).getId()));
+        assertFalse(userService.refresh(refreshToken).isAuthenticated());
+        assertTrue(userService.refresh(otherUserRefresh).isAuthenticated());
+    }
 }
@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ModelTests {
@@ -86,6 +87,22 @@ public class ModelTests {
         assertEquals(1, booking.getPriority());
     }
 
+    @Test
+    void testBookingSlotKey() {
+        Booking booking = new Booking("testId", LocalDate.of(2024, 3, 7), LocalTime.of(9, 30), true, "A101", 1, null);
+        assertEquals("A101|2024-03-07|08", booking.getSlotKey());
+
+        // Las horas dentro de la misma franja de 2 horas comparten la clave
+        assertEquals(booking.getSlotKey(), Booking.slotKeyOf("A101", LocalDate.of(2024, 3, 7), LocalTime.of(8, 0)));
+
+        booking.setBookingTime(LocalTime.of(11, 0));
+        booking.setBookingClassRoom("B201");
+        booking.setBookingDate(LocalDate.of(2024, 3, 8));
+        assertEquals("B201|2024-03-08|10", booking.getSlotKey());
+
+        assertNull(Booking.slotKeyOf(null, LocalDate.of(2024, 3, 7), LocalTime.of(8, 0)));
+    }
+
     // Tests para User model
     @Test
     void testUserConstructorWithDTO() {
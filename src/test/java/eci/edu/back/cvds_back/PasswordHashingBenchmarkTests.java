@@ -0,0 +1,50 @@
+package eci.edu.back.cvds_back;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the p99 latency of a login password check for each BCrypt strength, to pick
+ * the highest {@code security.password.bcrypt-strength} that still meets the p99 login
+ * target (250 ms by default, override it with {@code -Dlogin.p99.millis=...}).
+ *
+ * The numbers are for one login thread; with {@code security.login.threads} logins in
+ * parallel each core should still keep to the same figure.
+ *
+ * Excluded from the default build; run it with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class PasswordHashingBenchmarkTests {
+
+    private static final int SAMPLES = 50;
+    private static final long P99_TARGET_MILLIS = Long.getLong("login.p99.millis", 250);
+
+    @ParameterizedTest(name = "strength {0}")
+    @ValueSource(ints = {8, 10, 11, 12, 13})
+    void measureLoginCheck(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String hash = encoder.encode("Contraseña-de-prueba-123");
+
+        // Calentamiento del JIT
+        encoder.matches("Contraseña-de-prueba-123", hash);
+
+        long[] nanos = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            assertTrue(encoder.matches("Contraseña-de-prueba-123", hash));
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double p50 = nanos[SAMPLES / 2] / 1_000_000.0;
+        double p99 = nanos[(int) Math.ceil(SAMPLES * 0.99) - 1] / 1_000_000.0;
+
+        System.out.printf("strength=%d p50=%.1f ms p99=%.1f ms target=%d ms %s%n",
+                strength, p50, p99, P99_TARGET_MILLIS, p99 <= P99_TARGET_MILLIS ? "OK" : "TOO SLOW");
+    }
+}